@@ -0,0 +1,136 @@
+package joelbits.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.cpu.ALU;
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.utils.RandomNumberGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures every ALU operation on its own. The operand is read from a data register, so that it is not a constant the
+ * JIT compiler can fold, and every operation also advances the program counter as it does when a program is run.
+ *
+ * Run with: java -jar target/benchmarks.jar AluBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AluBenchmark {
+	private static final int TARGET = 0x1;
+	private static final int OPERAND = 0x2;
+	private RegisterFile registers;
+	private ALU alu;
+
+	@Setup
+	public void setUp() {
+		registers = new RegisterFile();
+		alu = new ALU(registers, new RandomNumberGenerator(0));
+		registers.write(TARGET, 0x5A);
+		registers.write(OPERAND, 0xA7);
+		registers.writeIndex(0x300);
+		registers.writeProgramCounter(0x200);
+	}
+
+	@Benchmark
+	public RegisterFile load() {
+		alu.load(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile loadIndex() {
+		alu.loadIndex(registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile add() {
+		alu.add(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile addWithRandom() {
+		alu.addWithRandom(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile addWithCarry() {
+		alu.addWithCarry(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile addToIndexWithCarry() {
+		alu.addToIndexWithCarry(registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile subtractWithBorrow() {
+		alu.subtractWithBorrow(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile subtractWithNegatedBorrow() {
+		alu.subtractWithNegatedBorrow(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile bitwiseOR() {
+		alu.bitwiseOR(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile bitwiseAND() {
+		alu.bitwiseAND(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile bitwiseXOR() {
+		alu.bitwiseXOR(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile leftShiftWithCarry() {
+		alu.leftShiftWithCarry(TARGET);
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile rightShiftWithCarry() {
+		alu.rightShiftWithCarry(TARGET);
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile skipNextIfEqual() {
+		alu.skipNextIfEqual(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+
+	@Benchmark
+	public RegisterFile skipNextIfNotEqual() {
+		alu.skipNextIfNotEqual(TARGET, registers.read(OPERAND));
+		return registers;
+	}
+}
@@ -0,0 +1,39 @@
+package joelbits.emulator.benchmarks;
+
+/**
+ * Small programs that exercise the emulator the way games do, without depending on ROM files.
+ */
+final class BenchmarkPrograms {
+
+	private BenchmarkPrograms() {
+	}
+
+	/**
+	 * Loads a random number into V1 and calls a subroutine that stores V0 - V1 in memory and draws a sprite at (V0, V1),
+	 * after which V0 is incremented, the delay timer is set to V0 and the loop starts over.
+	 */
+	static byte[] drawingLoop() {
+		byte[] program = new byte[0x108];
+		writeOpcodes(program, 0x000, 0x6005, 0xC1FF, 0x2300, 0x7001, 0xF015, 0x1202);
+		writeOpcodes(program, 0x100, 0xA400, 0xF155, 0xD012, 0x00EE);
+		return program;
+	}
+
+	/**
+	 * Adds, subtracts, shifts and combines V0 - V3 in a loop that runs 256 times before it draws a sprite and starts over,
+	 * which is mostly register operations like the inner loops of games.
+	 */
+	static byte[] arithmeticLoop() {
+		byte[] program = new byte[0x20];
+		writeOpcodes(program, 0x000, 0x6000, 0x7103, 0x8214, 0x8326, 0x8133, 0x8323, 0x7001, 0x3000, 0x1202, 0xA400,
+				0xD125, 0x1202);
+		return program;
+	}
+
+	private static void writeOpcodes(byte[] program, int offset, int... opcodes) {
+		for (int i = 0; i < opcodes.length; i++) {
+			program[offset + 2 * i] = (byte) (opcodes[i] >> 8);
+			program[offset + 2 * i + 1] = (byte) opcodes[i];
+		}
+	}
+}
@@ -0,0 +1,63 @@
+package joelbits.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.cpu.instructions.Instructions;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures decoding one opcode of every instruction, from the hexadecimal string used by getInstruction and from the
+ * opcode itself as the CPU decodes it.
+ *
+ * Run with: java -jar target/benchmarks.jar DecodeBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodeBenchmark {
+	private static final int[] OPCODES = {
+			0x00E0, 0x00EE, 0x1234, 0x2345, 0x3456, 0x4567, 0x5670, 0x6789, 0x789A, 0x89A0, 0x89A1, 0x89A2, 0x89A3,
+			0x89A4, 0x89A5, 0x89A6, 0x89A7, 0x89AE, 0x9AB0, 0xABCD, 0xBCDE, 0xCDEF, 0xDEF5, 0xE19E, 0xE1A1, 0xF107,
+			0xF10A, 0xF115, 0xF118, 0xF11E, 0xF129, 0xF133, 0xF155, 0xF165};
+	private String[] opcodeStrings;
+	private int[] opcodes;
+
+	@Setup
+	public void setUp() {
+		opcodes = OPCODES.clone();
+		opcodeStrings = new String[opcodes.length];
+		for (int i = 0; i < opcodes.length; i++) {
+			opcodeStrings[i] = String.format("%04X", opcodes[i]);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(34)
+	public void getInstruction(Blackhole blackhole) {
+		for (String opcode : opcodeStrings) {
+			blackhole.consume(Instructions.getInstruction(opcode));
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(34)
+	public void decode(Blackhole blackhole) {
+		for (int opcode : opcodes) {
+			blackhole.consume(Instructions.decode(opcode));
+		}
+	}
+}
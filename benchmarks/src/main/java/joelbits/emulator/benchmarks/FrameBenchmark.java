@@ -0,0 +1,60 @@
+package joelbits.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.Chip8;
+import joelbits.emulator.EmulatorFactory;
+import joelbits.emulator.Program;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a whole frame of a synthetic program: decrementing the timers, executing velocity instructions and
+ * presenting the screen, which is the same work the instruction cycle does for every frame paced by the frame pacer.
+ * The programs are run both interpreted and with the JIT compiler enabled.
+ *
+ * Run with: java -jar target/benchmarks.jar FrameBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrameBenchmark {
+	@Param({"drawingLoop", "arithmeticLoop"})
+	private String program;
+	@Param({"10", "1000"})
+	private int velocity;
+	@Param({"false", "true"})
+	private boolean jitEnabled;
+	private Chip8 emulator;
+
+	@Setup
+	public void setUp() {
+		GameSettings settings = new GameSettings();
+		settings.setVelocity(velocity);
+		settings.setJitEnabled(jitEnabled);
+		emulator = EmulatorFactory.createChip8(settings, new Keypad(), new SilentAudio(), new HeadlessScreen(64, 32));
+		emulator.load(new Program("drawingLoop".equals(program) ? BenchmarkPrograms.drawingLoop() : BenchmarkPrograms.arithmeticLoop()));
+	}
+
+	@Benchmark
+	public Chip8 runFrame() {
+		emulator.runFrame();
+		return emulator;
+	}
+}
@@ -0,0 +1,107 @@
+package joelbits.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.flags.ClearFlag;
+import joelbits.emulator.flags.DrawFlag;
+import joelbits.emulator.graphics.GPU;
+import joelbits.emulator.memory.BufferFactory;
+import joelbits.emulator.memory.DirtyBuffer;
+import joelbits.emulator.memory.DisplayBuffer;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import joelbits.emulator.output.HeadlessScreen;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures drawing a sprite into the display buffer with different sprite heights, and drawing the screen with different
+ * numbers of dirty pixels. Drawing the screen first marks the dirty pixels again, which is one operation per 64 pixels,
+ * since drawing the screen clears the dirty buffer.
+ *
+ * Run with: java -jar target/benchmarks.jar GpuBenchmark -prof gc
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GpuBenchmark {
+	private static final int WIDTH = 64;
+	private static final int HEIGHT = 32;
+	private static final int SPRITE_LOCATION = 0x300;
+	private static final int[] SPRITE = {0xF0, 0x90, 0xF0, 0x90, 0x90, 0xE0, 0x90, 0xE0, 0x90, 0xE0, 0xF0, 0x80, 0x80, 0x80, 0xF0};
+
+	@State(Scope.Thread)
+	public static class Graphics {
+		final RegisterFile registers = new RegisterFile();
+		final MMU mmu = new MMU(new RAM());
+		final DisplayBuffer displayBuffer = BufferFactory.createDisplayBuffer(WIDTH, HEIGHT);
+		final DirtyBuffer dirtyBuffer = BufferFactory.createDirtyBuffer(displayBuffer.size());
+		final GPU gpu = new GPU(displayBuffer, dirtyBuffer, new HeadlessScreen(WIDTH, HEIGHT), new DrawFlag(), new ClearFlag());
+
+		@Setup
+		public void setUp() {
+			for (int row = 0; row < SPRITE.length; row++) {
+				mmu.writePrimaryMemory(SPRITE_LOCATION + row, SPRITE[row]);
+			}
+			registers.write(0x0, 60);
+			registers.write(0x1, 10);
+			registers.writeIndex(SPRITE_LOCATION);
+		}
+	}
+
+	public static class SpriteDrawing extends Graphics {
+		@Param({"1", "5", "8", "15"})
+		int height;
+	}
+
+	public static class ScreenDrawing extends Graphics {
+		@Param({"1", "64", "512", "2048"})
+		int dirtyPixels;
+		long[] dirtyWords;
+
+		/**
+		 * Spreads the dirty pixels evenly over the screen, as a game moving several sprites would.
+		 */
+		@Setup
+		public void spreadDirtyPixels() {
+			int pixels = displayBuffer.size();
+			dirtyWords = new long[pixels / Long.SIZE];
+			for (int i = 0; i < dirtyPixels; i++) {
+				int location = (int) ((long) i * pixels / dirtyPixels);
+				dirtyWords[location / Long.SIZE] |= Long.MIN_VALUE >>> (location % Long.SIZE);
+			}
+		}
+	}
+
+	/**
+	 * Draws the sprite at a position that wraps around the right edge of the screen. Drawing the same sprite twice
+	 * erases it, so the display alternates between two states.
+	 */
+	@Benchmark
+	public RegisterFile drawSprite(SpriteDrawing sprite) {
+		sprite.gpu.drawSprite(sprite.registers, sprite.mmu, 0xD010 | sprite.height);
+		return sprite.registers;
+	}
+
+	@Benchmark
+	public DirtyBuffer drawScreen(ScreenDrawing screen) {
+		long[] dirtyWords = screen.dirtyWords;
+		for (int word = 0; word < dirtyWords.length; word++) {
+			screen.dirtyBuffer.markWord(word, dirtyWords[word]);
+		}
+		screen.gpu.drawScreen();
+		return screen.dirtyBuffer;
+	}
+}
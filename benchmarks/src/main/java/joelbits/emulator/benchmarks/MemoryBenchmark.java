@@ -0,0 +1,60 @@
+package joelbits.emulator.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading the whole primary memory: as the copy returned by primaryMemory, which allocates, location by location
+ * in place, and into a reused snapshot buffer.
+ *
+ * Run with: java -jar target/benchmarks.jar MemoryBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoryBenchmark {
+	private MMU mmu;
+	private byte[] snapshot;
+
+	@Setup
+	public void setUp() {
+		mmu = new MMU(new RAM());
+		mmu.writePrimaryMemory(0x200, BenchmarkPrograms.drawingLoop());
+		snapshot = new byte[mmu.primaryMemorySize()];
+	}
+
+	@Benchmark
+	public int[] primaryMemory() {
+		return mmu.primaryMemory();
+	}
+
+	@Benchmark
+	public int readPrimaryMemory() {
+		int sum = 0;
+		for (int location = 0; location < snapshot.length; location++) {
+			sum += mmu.readPrimaryMemory(location);
+		}
+		return sum;
+	}
+
+	@Benchmark
+	public byte[] snapshotPrimaryMemory() {
+		mmu.snapshotPrimaryMemory(snapshot);
+		return snapshot;
+	}
+}
@@ -0,0 +1,101 @@
+package joelbits.emulator.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import joelbits.emulator.Chip8;
+import joelbits.emulator.EmulatorFactory;
+import joelbits.emulator.Program;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.state.MachineState;
+import joelbits.emulator.state.SaveStates;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of taking and restoring snapshots of a running emulator, and of encoding and decoding them in the
+ * binary save state format.
+ *
+ * Run with: java -jar target/benchmarks.jar SaveStateBenchmark -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SaveStateBenchmark {
+	private static final int FRAMES_BETWEEN_STATES = 60;
+	private Chip8 emulator;
+	private MachineState earlier;
+	private MachineState later;
+	private MachineState decoded;
+	private ByteBuffer buffer;
+	private boolean restoreEarlier;
+
+	@Setup
+	public void setUp() {
+		emulator = EmulatorFactory.createChip8s(1, SilentAudio::new, () -> new HeadlessScreen(64, 32)).get(0);
+		emulator.load(new Program(BenchmarkPrograms.drawingLoop()));
+		earlier = emulator.createState();
+		later = emulator.createState();
+		decoded = emulator.createState();
+
+		emulator.snapshot(earlier);
+		for (int frame = 0; frame < FRAMES_BETWEEN_STATES; frame++) {
+			emulator.runFrame();
+		}
+		emulator.snapshot(later);
+		buffer = ByteBuffer.allocate(SaveStates.size(later) + 64);
+	}
+
+	@Benchmark
+	public MachineState snapshot() {
+		emulator.snapshot(later);
+		return later;
+	}
+
+	/**
+	 * Restores the state the emulator is already in, i.e., no memory differs.
+	 */
+	@Benchmark
+	public Chip8 restoreUnchanged() {
+		emulator.restore(later);
+		return emulator;
+	}
+
+	/**
+	 * Alternates between two states that are a second apart, so that memory, registers and display differ each time.
+	 */
+	@Benchmark
+	public Chip8 restoreChanged() {
+		restoreEarlier = !restoreEarlier;
+		emulator.restore(restoreEarlier ? earlier : later);
+		return emulator;
+	}
+
+	@Benchmark
+	public ByteBuffer encode() {
+		buffer.clear();
+		SaveStates.write(later, buffer);
+		return buffer;
+	}
+
+	@Benchmark
+	public MachineState encodeAndDecode() {
+		buffer.clear();
+		SaveStates.write(later, buffer);
+		buffer.flip();
+		SaveStates.read(buffer, decoded);
+		return decoded;
+	}
+}
@@ -1,35 +1,47 @@
 package joelbits.emulator;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeUnit;
-
-import com.google.inject.*;
-import joelbits.emulator.cache.EmulatorCache;
-import joelbits.emulator.config.InterpreterConfig;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import joelbits.emulator.cpu.instructions.BlockCache;
 import joelbits.emulator.cpu.instructions.InstructionUnit;
+import joelbits.emulator.cpu.jit.BlockCompiler;
 import joelbits.emulator.output.Audio;
+import joelbits.emulator.output.Screen;
 import joelbits.emulator.settings.GameSettings;
+import joelbits.emulator.state.MachineState;
+import joelbits.emulator.state.RewindBuffer;
 import joelbits.emulator.graphics.GMU;
 import joelbits.emulator.memory.MMU;
+import joelbits.emulator.metrics.BlockExecutionListener;
+import joelbits.emulator.metrics.EmulatorMetrics;
+import joelbits.emulator.movie.Movie;
+import joelbits.emulator.movie.MovieRecorder;
+import joelbits.emulator.movie.Movies;
+import joelbits.emulator.timers.DelayTimer;
+import joelbits.emulator.timers.FrameCycle;
+import joelbits.emulator.timers.FramePacer;
+import joelbits.emulator.timers.SoundTimer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.google.inject.name.Named;
-
-import javafx.scene.input.KeyCode;
 import joelbits.emulator.cpu.ALU;
 import joelbits.emulator.cpu.CPU;
-import joelbits.emulator.cpu.registers.DataRegister;
-import joelbits.emulator.cpu.registers.IndexRegister;
-import joelbits.emulator.cpu.registers.ProgramCounter;
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.CallStack;
+import joelbits.emulator.cpu.Fault;
+import joelbits.emulator.cpu.TieringPolicy;
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.input.FrameInput;
 import joelbits.emulator.input.Input;
+import joelbits.emulator.input.InputTimeline;
 import joelbits.emulator.memory.RAM;
 import joelbits.emulator.timers.Timer;
 import static joelbits.emulator.utils.Chip8Util.*;
@@ -38,117 +50,725 @@ import joelbits.emulator.utils.RandomNumberGenerator;
 /**
  * A program is written to memory starting at location 0x200 since the CHIP-8 interpreter occupies
  * most of the preceding memory locations.
+ *
+ * All machine state (registers, memory, timers and display) is owned by the instance, so any number of
+ * emulators can run side by side in the same JVM.
  */
 public final class Chip8 implements Emulator {
 	private static final Logger log = LoggerFactory.getLogger(Chip8.class);
-	private final CPU cpu;
+	private static final AtomicInteger threadNumber = new AtomicInteger();
+	private static final AtomicInteger metricsNumber = new AtomicInteger();
+	private static final int REWIND_KEYFRAME_INTERVAL = 60;
+	private static final int REWIND_ARENA_SIZE = 1536 * 1024;
+	private final RegisterFile registers = new RegisterFile();
+	private final Timer<Integer> soundTimer = new SoundTimer<>();
+	private final Timer<Integer> delayTimer = new DelayTimer<>();
+	private final RandomNumberGenerator randomNumberGenerator = new RandomNumberGenerator();
+	private final GameSettings settings;
+	private final Input<Integer, ?> keyboard;
+	private final FrameInput frameInput;
+	private final InputTimeline recordedInput = new InputTimeline();
+	private final Audio sound;
+	private final GMU gmu;
 	private final MMU mmu;
-	
-	@Inject
-	private Input<Integer, KeyCode> keyboard;
-	@Inject
-	@Named("sound")
-	private Timer<Integer> soundTimer;
-	@Inject
-	@Named("delay")
-	private Timer<Integer> delayTimer;
-	@Inject
-    private Audio sound;
-	@Inject
-    private InterpreterConfig config;
-	@Inject
-    private GameSettings settings;
-	@Inject
-	private GMU gmu;
-	
-	public Chip8() {
-		EmulatorCache.getInstance().getInjector().injectMembers(this);
+	private final CPU cpu;
+	private FramePacer framePacer;
+	private Thread emulationThread;
+	private long skippedCycles;
+	private long executedInstructions;
+	private int frameInstructions;
+	private int loopStart;
+	private int loopEntry;
+	private boolean frameHalted;
+	private boolean frameIdle;
+	private RewindBuffer rewindBuffer;
+	private MachineState rewindState;
+	private volatile boolean rewinding;
+	private InputTimeline inputTimeline;
+	private MachineState hashState;
+	private long frame;
+	private long programHash;
+	private MovieRecorder movieRecorder;
+	private boolean deterministicBeforeRecording;
+	private long randomSeedBeforeRecording;
+	private EmulatorMetrics metrics;
+	private ObjectName metricsName;
+
+	public Chip8(GameSettings settings, Input<Integer, ?> keyboard, Audio sound, Screen<Integer> screen) {
+		this.settings = settings;
+		this.keyboard = keyboard;
+		this.sound = sound;
+		frameInput = new FrameInput(keyboard);
+		gmu = new GMU(screen);
 		mmu = new MMU(new RAM());
 		cpu = createCPU();
+		frameInput.setPressListener(cpu::keyPressed);
 	}
 	
 	private CPU createCPU() {
-		List<Register<Integer>> dataRegisters = initializeDataRegisters();
-		ALU alu = new ALU(ProgramCounter.getInstance(), dataRegisters.get(REGISTER_VF), new RandomNumberGenerator());
+		ALU alu = new ALU(registers, randomNumberGenerator);
 		InstructionUnit instructionUnit = new InstructionUnit(mmu);
+		BlockCache blockCache = new BlockCache(instructionUnit);
+		mmu.setWriteListener(blockCache);
 
-		Register<Integer> indexRegister = IndexRegister.getInstance();
-		return new CPU(new Stack<>(), mmu, keyboard, dataRegisters, indexRegister, delayTimer, soundTimer, alu, gmu, instructionUnit);
-	}
-
-	private List<Register<Integer>> initializeDataRegisters() {
-		List<Register<Integer>> dataRegisters = new ArrayList<>();
-		for (int i = 0; i <= NUMBER_OF_REGISTERS; i++) {
-			dataRegisters.add(i, new DataRegister<>());
-			dataRegisters.get(i).write(0);
-		}
-		return dataRegisters;
+		return new CPU(new CallStack(settings.getStackLevels()), mmu, frameInput, registers, delayTimer, soundTimer, alu, gmu, instructionUnit, blockCache);
 	}
 
 	@Override
 	public void reset() {
+		stop();
 		gmu.clearScreen();
 		start();
 	}
 
+	/**
+	 * Starts the emulation thread running the game in the settings. If the game cannot be read, the machine is left
+	 * initialized without a program and the thread is not started.
+	 */
 	@Override
 	public void start() {
-		cpu.initialize(PROGRAM_SPACE_START,  0x0, 0x0, 0x0, spriteGroups);
-		loadProgram();
-		if (!settings.isRunning()) {
-			Executors.newSingleThreadScheduledExecutor().scheduleAtFixedRate(new InstructionCycle(), 0, 17, TimeUnit.MILLISECONDS);
-			settings.setRunning(true);
+		stop();
+		if (loadProgram()) {
+			startEmulationThread();
+		}
+	}
+
+	/**
+	 * Starts the emulation thread running the supplied program instead of the game in the settings.
+	 */
+	public void start(Program program) {
+		stop();
+		load(program);
+		startEmulationThread();
+	}
+
+	private void startEmulationThread() {
+		framePacer = new FramePacer(new InstructionCycle());
+		emulationThread = new Thread(framePacer, "chip8-emulation-" + threadNumber.incrementAndGet());
+		emulationThread.setDaemon(true);
+		emulationThread.start();
+	}
+
+	@Override
+	public void pause() {
+		settings.setPaused(true);
+	}
+
+	@Override
+	public void resume() {
+		settings.setPaused(false);
+		LockSupport.unpark(emulationThread);
+	}
+
+	/**
+	 * Stops the emulation thread and waits for it to finish the frame it is running.
+	 */
+	@Override
+	public void stop() {
+		if (emulationThread == null) {
+			return;
+		}
+		framePacer.stop();
+		LockSupport.unpark(emulationThread);
+		if (Thread.currentThread() != emulationThread) {
+			try {
+				emulationThread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
 		}
+		emulationThread = null;
+		framePacer = null;
+	}
+
+	@Override
+	public void dispose() {
+		stop();
+		enableMetrics(false);
+		sound.stop();
+		gmu.dispose();
+	}
+
+	public boolean isRunning() {
+		return emulationThread != null && emulationThread.isAlive();
+	}
+
+	/**
+	 * Returns true if the emulation thread is paused and parked, and so runs no frames until it is resumed or stopped.
+	 */
+	public boolean isParked() {
+		FramePacer pacer = framePacer;
+		return pacer != null && pacer.isParked();
 	}
 	
-	private void loadProgram() {
+	/**
+	 * @return	false if the game in the settings could not be read, in which case an empty program is loaded so that
+	 * 			nothing of the previous program is left in the machine
+	 */
+	private boolean loadProgram() {
+		Program program = readProgram();
+		if (program == null) {
+			load(new Program(new byte[0]));
+			return false;
+		}
+		load(program);
+		return true;
+	}
+
+	private Program readProgram() {
+		if (settings.getGamePath() == null) {
+			throw new IllegalStateException("No game path in the settings, start the emulator with a program instead");
+		}
 		try {
-			cpu.loadProgram(new Program(Files
-					.readAllBytes(Paths.get(settings.getGamePath()))), PROGRAM_SPACE_START);
+			return new Program(Files.readAllBytes(Paths.get(settings.getGamePath())));
 		} catch (IOException e) {
 			log.error(e.toString(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Initializes the machine and writes the supplied program to memory, without starting the instruction cycle. Hot
+	 * blocks of the program are compiled to bytecode if the JIT is enabled in the settings. The execution counters of
+	 * the tiering policy start over with the thresholds in the settings, and so does the rewind buffer if rewinding is
+	 * enabled in the settings.
+	 *
+	 * In deterministic mode the random number generator is seeded with the seed in the settings, and the input is only
+	 * applied at frame boundaries, taken from the input timeline if one is set and from the keyboard otherwise. The
+	 * same program, seed and input then always lead to the same state hashes frame by frame.
+	 */
+	public void load(Program program) {
+		if (metrics != null) {
+			metrics.attributeExecutions();
+		}
+		endRecording();
+		cpu.setBlockCompiler(settings.isJitEnabled() ? new BlockCompiler() : null);
+		cpu.setTieringPolicy(new TieringPolicy(settings));
+		cpu.initialize(PROGRAM_SPACE_START,  0x0, 0x0, 0x0, spriteGroups);
+		cpu.loadProgram(program, PROGRAM_SPACE_START);
+		programHash = Movies.programHash(program.data());
+		frame = 0;
+		executedInstructions = 0;
+		frameInput.setLatching(settings.isDeterministic());
+		recordedInput.clear();
+		if (settings.isDeterministic()) {
+			randomNumberGenerator.setSeed(settings.getRandomSeed());
+		}
+		createRewindBuffer();
+		enableMetrics(settings.isMetricsEnabled());
+	}
+
+	private void createRewindBuffer() {
+		if (settings.getRewindSeconds() <= 0) {
+			rewindBuffer = null;
+			return;
 		}
+		rewindState = createState();
+		rewindBuffer = new RewindBuffer(rewindState, settings.getRewindSeconds() * FramePacer.FRAMES_PER_SECOND,
+				REWIND_KEYFRAME_INTERVAL, REWIND_ARENA_SIZE);
+	}
+
+	/**
+	 * Starts or stops counting metrics. The metrics of an emulator are kept when another program is loaded, and are
+	 * registered as an MBean named joelbits.emulator:type=Chip8,name=chip8-N as long as they are counted.
+	 */
+	private void enableMetrics(boolean enabled) {
+		if (enabled && metrics == null) {
+			metrics = new EmulatorMetrics(mmu);
+			registerMetrics();
+		} else if (!enabled && metrics != null) {
+			unregisterMetrics();
+			metrics = null;
+		}
+		if (metrics != null) {
+			metrics.setTieringPolicy(cpu.tieringPolicy());
+		}
+		gmu.setMetrics(metrics);
+	}
+
+	private void registerMetrics() {
+		try {
+			metricsName = new ObjectName("joelbits.emulator:type=Chip8,name=chip8-" + metricsNumber.incrementAndGet());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, metricsName);
+		} catch (JMException e) {
+			log.warn("Could not register metrics: " + e);
+			metricsName = null;
+		}
+	}
+
+	private void unregisterMetrics() {
+		if (metricsName == null) {
+			return;
+		}
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(metricsName);
+		} catch (JMException e) {
+			log.warn("Could not unregister metrics: " + e);
+		}
+		metricsName = null;
+	}
+
+	/**
+	 * The metrics of this emulator, or null if metrics are not enabled in the settings of the loaded program.
+	 */
+	public EmulatorMetrics metrics() {
+		return metrics;
+	}
+
+	/**
+	 * Runs a single 60 Hz frame, i.e., decrements the timers once, executes as many instructions as the
+	 * configured velocity and presents the resulting screen.
+	 */
+	public void runFrame() {
+		runFrame(settings.getVelocity());
+	}
+
+	/**
+	 * Runs the supplied number of instructions as fast as possible. The timers are decremented once for every
+	 * velocity instructions, as if the instructions had been executed frame by frame.
+	 *
+	 * @throws IllegalArgumentException	if the velocity in the settings is not positive
+	 */
+	public void runInstructions(long instructions) {
+		int velocity = settings.getVelocity();
+		if (velocity <= 0) {
+			throw new IllegalArgumentException("Velocity must be positive, was " + velocity);
+		}
+		for (long i = 0; i < instructions / velocity; i++) {
+			runFrame(velocity);
+		}
+		if (instructions % velocity > 0) {
+			runFrame((int) (instructions % velocity));
+		}
+	}
+
+	private void runFrame(int instructions) {
+		startFrame();
+		executeInstructions(instructions);
+		endFrame();
+	}
+
+	private void startFrame() {
+		frameInstructions = 0;
+		loopStart = -1;
+		loopEntry = 0;
+		frameHalted = false;
+		frameIdle = false;
+		captureRewindFrame();
+		latchFrameInput();
+		decrementTimers();
+		frame++;
+	}
+
+	private void endFrame() {
+		gmu.updateScreen();
+		if (metrics != null) {
+			metrics.frameEnded();
+		}
+		if (movieRecorder != null) {
+			movieRecorder.frameEnded(frame - 1, stateHash());
+		}
+	}
+
+	/**
+	 * Restarts the game in the settings in deterministic mode with a new seed, and records a movie of the session until
+	 * recording is stopped.
+	 */
+	@Override
+	public void startRecording() {
+		stop();
+		Program program = readProgram();
+		if (program != null) {
+			loadForRecording(program);
+			startEmulationThread();
+		}
+	}
+
+	/**
+	 * Loads the program in deterministic mode with a new seed, and records a movie of the run from its first frame until
+	 * recording is stopped. The emulation thread is not started. The deterministic mode and seed of the settings are
+	 * restored when recording is stopped or another program is loaded.
+	 */
+	public void loadForRecording(Program program) {
+		endRecording();
+		deterministicBeforeRecording = settings.isDeterministic();
+		randomSeedBeforeRecording = settings.getRandomSeed();
+		settings.setDeterministic(true);
+		settings.setRandomSeed(ThreadLocalRandom.current().nextLong());
+		load(program);
+		movieRecorder = new MovieRecorder(programHash, settings.getRandomSeed(), settings.getVelocity());
+	}
+
+	/**
+	 * Stops recording and returns the movie of the frames run since recording started, or null if no movie was being
+	 * recorded. The emulation continues where it was, in the mode it was in before recording started.
+	 */
+	@Override
+	public Movie stopRecording() {
+		boolean running = isRunning();
+		stop();
+		Movie movie = movieRecorder != null ? movieRecorder.createMovie(recordedInput) : null;
+		endRecording();
+		frameInput.setLatching(settings.isDeterministic());
+		if (running) {
+			startEmulationThread();
+		}
+		return movie;
+	}
+
+	private void endRecording() {
+		if (movieRecorder == null) {
+			return;
+		}
+		movieRecorder = null;
+		settings.setDeterministic(deterministicBeforeRecording);
+		settings.setRandomSeed(randomSeedBeforeRecording);
+	}
+
+	/**
+	 * Latches the key of the frame that is about to start in deterministic mode, and records it.
+	 */
+	private void latchFrameInput() {
+		if (!frameInput.isLatching()) {
+			return;
+		}
+		int key = inputTimeline != null ? inputTimeline.keyAt(frame) : frameInput.keyboardPressed();
+		recordedInput.record(frame, key);
+		frameInput.latch(key);
+	}
+
+	/**
+	 * Sets the timeline the input is taken from in deterministic mode, or null to take the input from the keyboard.
+	 */
+	public void setInputTimeline(InputTimeline inputTimeline) {
+		this.inputTimeline = inputTimeline;
+	}
+
+	/**
+	 * The input applied frame by frame in deterministic mode since the program was loaded.
+	 */
+	public InputTimeline recordedInput() {
+		return recordedInput;
+	}
+
+	/**
+	 * The number of frames started since the program was loaded.
+	 */
+	public long getFrame() {
+		return frame;
+	}
+
+	/**
+	 * Returns the hash of the current machine state, see MachineState.stateHash.
+	 */
+	public long stateHash() {
+		if (hashState == null) {
+			hashState = createState();
+		}
+		snapshot(hashState);
+		return hashState.stateHash();
+	}
+
+	/**
+	 * Returns the hash of the display buffer, see MachineState.displayHash.
+	 */
+	public long displayHash() {
+		if (hashState == null) {
+			hashState = createState();
+		}
+		gmu.snapshotDisplay(hashState.getDisplay());
+		return hashState.displayHash();
+	}
+
+	private void decrementTimers() {
+		if (delayTimer.getValue() > 0) {
+			decrementDelayTimer();
+			if (metrics != null) {
+				metrics.delayTimerTicked();
+			}
+		}
+
+		if (soundTimer.getValue() > 0) {
+			sound.start();
+			decrementSoundTimer();
+			if (metrics != null) {
+				metrics.soundTimerTicked();
+			}
+			if (soundTimer.getValue() <= 0) {
+				sound.stop();
+			}
+		}
+	}
+
+	/**
+	 * Stops executing instructions for the rest of the frame when the CPU halts waiting for a key press. The timers
+	 * keep being decremented by the following frames, which retry the key wait once each. A faulted CPU executes
+	 * nothing until the next program is loaded.
+	 *
+	 * The instructions are executed a basic block at a time. The rest of the frame is also skipped once a whole pass
+	 * of an idle loop has returned to its start, since the loop would take the same path until the timers are
+	 * decremented or a key is pressed. Loops are only looked up when a block ends with a jump backwards. The skipped
+	 * instructions are counted as skipped cycles.
+	 *
+	 * A frame may be executed in several slices. The idle loop detection and the halting of the frame carry over from
+	 * one slice to the next, so a frame ends in the same state however it is sliced.
+	 */
+	private void executeInstructions(int instructions) {
+		if (frameIdle) {
+			skippedCycles += instructions;
+			return;
+		}
+		if (frameHalted) {
+			return;
+		}
+		BlockExecutionListener blockListener = metrics != null ? metrics.frameBlockListener() : BlockExecutionListener.NONE;
+		int executed = executeBlocks(instructions, blockListener);
+		executedInstructions += executed;
+		if (metrics != null) {
+			metrics.instructionsExecuted(executed);
+		}
+	}
+
+	private int executeBlocks(int instructions, BlockExecutionListener blockListener) {
+		int executed = 0;
+		while (executed < instructions) {
+			int address = registers.readProgramCounter();
+			int blockInstructions = cpu.executeBlock(instructions - executed);
+			blockListener.executed(address, blockInstructions);
+			executed += blockInstructions;
+			if (endsSlice(address, blockInstructions, instructions - executed)) {
+				break;
+			}
+		}
+		return executed;
+	}
+
+	/**
+	 * Counts a block executed from the supplied address in the frame, and returns true if the rest of the slice is to be
+	 * skipped since the CPU halted or the block ended a whole pass of an idle loop.
+	 */
+	private boolean endsSlice(int address, int blockInstructions, int remainingInstructions) {
+		frameInstructions += blockInstructions;
+		if (cpu.isWaitingForKey() || cpu.getFault() != null) {
+			frameHalted = true;
+			return true;
+		}
+		int nextAddress = registers.readProgramCounter();
+		if (nextAddress > address) {
+			return false;
+		}
+		if (nextAddress == loopStart && frameInstructions - loopEntry == cpu.idleLoopLength(nextAddress)) {
+			skippedCycles += remainingInstructions;
+			frameIdle = true;
+			return true;
+		}
+		loopStart = nextAddress;
+		loopEntry = frameInstructions;
+		return false;
+	}
+
+	/**
+	 * Keeps the state at the start of the frame in the rewind buffer, if rewinding is enabled.
+	 */
+	private void captureRewindFrame() {
+		if (rewindBuffer != null) {
+			snapshot(rewindState);
+			rewindBuffer.capture(rewindState);
+		}
+	}
+
+	/**
+	 * Restores the state at the start of the previous frame in the rewind buffer and removes it from the buffer, under
+	 * the same conditions as restore.
+	 *
+	 * @return	false if rewinding is disabled or there are no more frames to rewind
+	 */
+	public boolean rewindFrame() {
+		if (rewindBuffer == null || !rewindBuffer.rewind(rewindState)) {
+			return false;
+		}
+		restore(rewindState);
+		return true;
+	}
+
+	/**
+	 * While rewinding, the running emulation steps backwards one frame per frame instead of executing instructions.
+	 */
+	@Override
+	public void setRewinding(boolean rewinding) {
+		this.rewinding = rewinding;
+	}
+
+	public RewindBuffer rewindBuffer() {
+		return rewindBuffer;
+	}
+
+	/**
+	 * The number of instruction cycles that have been skipped because the program was spinning in an idle loop.
+	 */
+	public long getSkippedCycles() {
+		return skippedCycles;
+	}
+
+	/**
+	 * The number of instructions executed since the program was loaded, not counting skipped cycles.
+	 */
+	public long getExecutedInstructions() {
+		return executedInstructions;
+	}
+
+	/**
+	 * The number of unknown instructions executed since the program was loaded.
+	 */
+	public long getUnknownInstructions() {
+		return cpu.getUnknownInstructions();
+	}
+
+	/**
+	 * The distinct unknown opcodes executed since the program was loaded, in ascending order.
+	 */
+	public int[] unknownOpcodes() {
+		return cpu.unknownOpcodes();
+	}
+
+	private void decrementDelayTimer() {
+		delayTimer.setValue(delayTimer.getValue() - 1);
+	}
+
+	private void decrementSoundTimer() {
+		soundTimer.setValue(soundTimer.getValue() - 1);
+	}
+
+	/**
+	 * The fault that stopped the running program, or null if the program has not faulted.
+	 */
+	public Fault getFault() {
+		return cpu.getFault();
+	}
+
+	/**
+	 * Creates a machine state with room for the state of this emulator.
+	 */
+	public MachineState createState() {
+		return new MachineState(mmu.primaryMemorySize(), cpu.callStack().levels(), gmu.displayWords());
+	}
+
+	/**
+	 * Copies the machine state into the supplied state, without allocating. The emulator must not be running on its
+	 * emulation thread while the state is copied, i.e., this is meant to be called between frames or from the
+	 * emulation thread itself.
+	 */
+	public void snapshot(MachineState state) {
+		mmu.snapshotPrimaryMemory(state.getMemory());
+		int[] dataRegisters = state.getDataRegisters();
+		for (int i = 0; i < dataRegisters.length; i++) {
+			dataRegisters[i] = registers.read(i);
+		}
+		state.setIndex(registers.readIndex());
+		state.setProgramCounter(registers.readProgramCounter());
+		int[] stack = state.getStack();
+		int stackPointer = cpu.callStack().snapshot(stack);
+		Arrays.fill(stack, stackPointer, stack.length, 0);
+		state.setStackPointer(stackPointer);
+		state.setDelayTimer(delayTimer.getValue());
+		state.setSoundTimer(soundTimer.getValue());
+		gmu.snapshotDisplay(state.getDisplay());
+		state.setRandomState(randomNumberGenerator.getState());
+		state.setWaitingForKey(cpu.isWaitingForKey());
+		state.setKeyPressedWhileWaiting(cpu.keyPressedWhileWaiting());
+		state.setFrame(frame);
+	}
+
+	/**
+	 * Replaces the machine state with the supplied state, under the same conditions as snapshot. Blocks decoded or
+	 * compiled from memory that is the same in both states are kept, and the whole screen is redrawn on the next frame.
+	 */
+	public void restore(MachineState state) {
+		if (metrics != null) {
+			metrics.attributeExecutions();
+		}
+		mmu.restorePrimaryMemory(state.getMemory());
+		int[] dataRegisters = state.getDataRegisters();
+		for (int i = 0; i < dataRegisters.length; i++) {
+			registers.write(i, dataRegisters[i]);
+		}
+		registers.writeIndex(state.getIndex());
+		registers.writeProgramCounter(state.getProgramCounter());
+		cpu.callStack().restore(state.getStack(), state.getStackPointer());
+		delayTimer.setValue(state.getDelayTimer());
+		soundTimer.setValue(state.getSoundTimer());
+		gmu.restoreDisplay(state.getDisplay());
+		randomNumberGenerator.setState(state.getRandomState());
+		cpu.restoreKeyWait(state.isWaitingForKey(), state.getKeyPressedWhileWaiting());
+		frame = state.getFrame();
+	}
+
+	/**
+	 * The tiering policy of the loaded program, or null if no program has been loaded.
+	 */
+	public TieringPolicy tieringPolicy() {
+		return cpu.tieringPolicy();
+	}
+
+	public RegisterFile registers() {
+		return registers;
+	}
+
+	public int readMemory(int location) {
+		return mmu.readPrimaryMemory(location);
+	}
+
+	public int readPixel(int x, int y) {
+		return gmu.readPixel(x, y);
 	}
 	
-	class InstructionCycle implements Runnable {
+	/**
+	 * The frames paced by the FramePacer when the emulator is started.
+	 */
+	class InstructionCycle implements FrameCycle {
+		private boolean rewindingFrame;
+
+		/**
+		 * A frame that starts while rewinding steps backwards, and the sound is stopped when rewinding begins.
+		 */
 		@Override
-		public void run() {
-			if (!settings.isPaused()) {
-	 			if (delayTimer.getValue() > 0) {
-	 				decrementDelayTimer();
-	 			}
-	 			
-	 			if (soundTimer.getValue() > 0) {
-                    sound.start();
-	 				decrementSoundTimer();
-	 				if (soundTimer.getValue() <= 0) {
-	 					sound.stop();
-	 				}
-	 			}
-	 			
-	 			for (int i = 0; i < settings.getVelocity(); i++) {
-	 				if (gmu.isClearFlagActive()) {
-	 	 				gmu.clearScreen();
-	 	 				gmu.toggleClearFlag();
-	 	 			}
-	 	 			
-	 	 			if (gmu.isDrawFlagActive()) {
-	 	 				gmu.drawScreen();
-	 	 				gmu.toggleDrawFlag();
-	 	 			}
-	 				
-	 				cpu.executeNextOperation();
-	 			}
+		public void startFrame() {
+			if (rewinding) {
+				if (!rewindingFrame) {
+					sound.stop();
+				}
+				rewindingFrame = true;
+				rewindFrame();
+				return;
 			}
-			return;
+			rewindingFrame = false;
+			Chip8.this.startFrame();
 		}
-		
-		private void decrementDelayTimer() {
-			delayTimer.setValue(delayTimer.getValue() - 1);
+
+		@Override
+		public void executeInstructions(int instructions) {
+			if (!rewindingFrame) {
+				Chip8.this.executeInstructions(instructions);
+			}
+		}
+
+		@Override
+		public void endFrame() {
+			if (rewindingFrame) {
+				gmu.updateScreen();
+			} else {
+				Chip8.this.endFrame();
+			}
 		}
-		
-		private void decrementSoundTimer() {
-			soundTimer.setValue(soundTimer.getValue() - 1);
+
+		@Override
+		public int instructionsPerFrame() {
+			return settings.getVelocity();
+		}
+
+		@Override
+		public boolean isPaused() {
+			return settings.isPaused();
 		}
 	}
 }
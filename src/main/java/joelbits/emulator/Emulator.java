@@ -1,6 +1,15 @@
 package joelbits.emulator;
 
+import joelbits.emulator.movie.Movie;
+
 public interface Emulator {
     void reset();
     void start();
+    void pause();
+    void resume();
+    void stop();
+    void dispose();
+    void setRewinding(boolean rewinding);
+    void startRecording();
+    Movie stopRecording();
 }
@@ -0,0 +1,30 @@
+package joelbits.emulator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import joelbits.emulator.input.Input;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.Audio;
+import joelbits.emulator.output.Screen;
+import joelbits.emulator.settings.GameSettings;
+
+public final class EmulatorFactory {
+	public static Chip8 createChip8(GameSettings settings, Input<Integer, ?> keyboard, Audio sound, Screen<Integer> screen) {
+		return new Chip8(settings, keyboard, sound, screen);
+	}
+
+	/**
+	 * Creates a number of independent emulators. Every emulator gets its own settings and keypad, and a sound and
+	 * screen from the supplied suppliers, so no state is shared between the created emulators. The settings have no
+	 * game path, so the emulators must be started with a program.
+	 */
+	public static List<Chip8> createChip8s(int count, Supplier<Audio> sounds, Supplier<Screen<Integer>> screens) {
+		List<Chip8> emulators = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			emulators.add(createChip8(new GameSettings(), new Keypad(), sounds.get(), screens.get()));
+		}
+		return emulators;
+	}
+}
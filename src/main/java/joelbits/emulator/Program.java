@@ -6,7 +6,7 @@ package joelbits.emulator;
 public class Program {
     private final byte[] data;
 
-    Program(byte[] data) {
+    public Program(byte[] data) {
         this.data = data;
     }
 
@@ -17,4 +17,8 @@ public class Program {
     public byte data(int location) {
         return data[location];
     }
+
+    public byte[] data() {
+        return data.clone();
+    }
 }
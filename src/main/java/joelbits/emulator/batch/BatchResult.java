@@ -0,0 +1,87 @@
+package joelbits.emulator.batch;
+
+import java.util.Locale;
+
+import joelbits.emulator.cpu.Fault;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The outcome of running one ROM of a batch. A ROM that could not be run at all, e.g., because it could not be read,
+ * has an error and no other results.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class BatchResult {
+	private final String rom;
+	private final long frames;
+	private final long instructions;
+	private final long skippedCycles;
+	private final long displayHash;
+	private final long stateHash;
+	private final long unknownInstructions;
+	private final int[] unknownOpcodes;
+	private final Fault fault;
+	private final String error;
+	private final long elapsedNanos;
+
+	public static BatchResult failed(String rom, String error, long elapsedNanos) {
+		return new BatchResult(rom, 0, 0, 0, 0, 0, 0, new int[0], null, error, elapsedNanos);
+	}
+
+	public boolean isFailed() {
+		return error != null;
+	}
+
+	/**
+	 * Returns the result as a single line JSON object. Hashes, addresses and opcodes are written as hexadecimal strings,
+	 * since 64-bit hashes do not fit in a JSON number without losing precision.
+	 */
+	public String toJson() {
+		StringBuilder json = new StringBuilder(256);
+		json.append("{\"rom\":").append(quote(rom));
+		if (isFailed()) {
+			json.append(",\"error\":").append(quote(error));
+		} else {
+			json.append(",\"frames\":").append(frames);
+			json.append(",\"instructions\":").append(instructions);
+			json.append(",\"skippedCycles\":").append(skippedCycles);
+			json.append(",\"framebufferHash\":\"").append(String.format("%016x", displayHash)).append('"');
+			json.append(",\"stateHash\":\"").append(String.format("%016x", stateHash)).append('"');
+			json.append(",\"unknownInstructions\":").append(unknownInstructions);
+			json.append(",\"unknownOpcodes\":[");
+			for (int i = 0; i < unknownOpcodes.length; i++) {
+				json.append(i > 0 ? "," : "").append(String.format("\"%04x\"", unknownOpcodes[i]));
+			}
+			json.append("],\"fault\":");
+			if (fault == null) {
+				json.append("null");
+			} else {
+				json.append("{\"type\":\"").append(fault.getType()).append('"');
+				json.append(",\"address\":\"").append(Integer.toHexString(fault.getAddress())).append('"');
+				json.append(",\"opcode\":\"").append(String.format("%04x", fault.getOpcode())).append('"');
+				json.append(",\"message\":").append(quote(fault.getMessage())).append('}');
+			}
+		}
+		json.append(",\"elapsedMs\":").append(String.format(Locale.ROOT, "%.3f", elapsedNanos / 1e6));
+		return json.append('}').toString();
+	}
+
+	private static String quote(String value) {
+		if (value == null) {
+			return "null";
+		}
+		StringBuilder quoted = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+			if (character == '"' || character == '\\') {
+				quoted.append('\\').append(character);
+			} else if (character < 0x20) {
+				quoted.append(String.format("\\u%04x", (int) character));
+			} else {
+				quoted.append(character);
+			}
+		}
+		return quoted.append('"').toString();
+	}
+}
@@ -0,0 +1,106 @@
+package joelbits.emulator.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import joelbits.emulator.Chip8;
+import joelbits.emulator.EmulatorFactory;
+import joelbits.emulator.Program;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs ROMs for a number of frames each, without input, and collects the results. Every ROM is run in its own emulator,
+ * with its own settings, keypad and screen, so that any number of ROMs can be run in parallel.
+ *
+ * The ROMs are run in deterministic mode with the same seed, so the results of a ROM only change when the emulator or
+ * the ROM changes.
+ */
+@RequiredArgsConstructor
+public final class BatchRunner {
+	private static final Logger log = LoggerFactory.getLogger(BatchRunner.class);
+	private final int screenWidth;
+	private final int screenHeight;
+	private final long frames;
+	private final int velocity;
+	private final boolean jitEnabled;
+	private final long randomSeed;
+
+	/**
+	 * Returns the ROMs in the supplied directory, i.e., the files with the .ch8 or .rom extension, sorted by name.
+	 */
+	public static List<Path> roms(Path directory) throws IOException {
+		try (Stream<Path> files = Files.list(directory)) {
+			return files.filter(Files::isRegularFile)
+					.filter(BatchRunner::isRom)
+					.sorted()
+					.collect(Collectors.toList());
+		}
+	}
+
+	private static boolean isRom(Path file) {
+		String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+		return name.endsWith(".ch8") || name.endsWith(".rom");
+	}
+
+	/**
+	 * Runs the ROMs in parallel on the supplied pool. The results are passed to the consumer on the calling thread, in
+	 * the order of the ROMs, as soon as the result of every earlier ROM has been passed.
+	 */
+	public void runAll(List<Path> roms, ForkJoinPool pool, Consumer<BatchResult> results) {
+		List<ForkJoinTask<BatchResult>> tasks = new ArrayList<>(roms.size());
+		for (Path rom : roms) {
+			tasks.add(pool.submit(() -> run(rom)));
+		}
+		for (ForkJoinTask<BatchResult> task : tasks) {
+			results.accept(task.join());
+		}
+	}
+
+	/**
+	 * Runs a single ROM in a new emulator. A ROM that can not be read or loaded gives a failed result instead of an
+	 * exception, so that one broken ROM does not stop the rest of the batch.
+	 */
+	public BatchResult run(Path rom) {
+		String name = rom.getFileName().toString();
+		long start = System.nanoTime();
+		try {
+			Program program = new Program(Files.readAllBytes(rom));
+			Chip8 emulator = EmulatorFactory.createChip8(createSettings(), new Keypad(), new SilentAudio(),
+					new HeadlessScreen(screenWidth, screenHeight));
+			emulator.load(program);
+			for (long frame = 0; frame < frames; frame++) {
+				emulator.runFrame();
+			}
+			return new BatchResult(name, frames, emulator.getExecutedInstructions(), emulator.getSkippedCycles(),
+					emulator.displayHash(), emulator.stateHash(), emulator.getUnknownInstructions(),
+					emulator.unknownOpcodes(), emulator.getFault(), null, System.nanoTime() - start);
+		} catch (IOException | RuntimeException e) {
+			log.warn("Could not run " + rom + ": " + e);
+			return BatchResult.failed(name, e.toString(), System.nanoTime() - start);
+		}
+	}
+
+	private GameSettings createSettings() {
+		GameSettings settings = new GameSettings();
+		settings.setVelocity(velocity);
+		settings.setJitEnabled(jitEnabled);
+		settings.setDeterministic(true);
+		settings.setRandomSeed(randomSeed);
+		return settings;
+	}
+}
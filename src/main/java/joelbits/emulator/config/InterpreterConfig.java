@@ -37,4 +37,12 @@ public class InterpreterConfig {
 	public int pixelSize() {
 		return Integer.parseInt(properties.getProperty("pixelSize"));
 	}
+	
+	public int rewindSeconds() {
+		return Integer.parseInt(properties.getProperty("rewindSeconds"));
+	}
+
+	public boolean metricsEnabled() {
+		return Boolean.parseBoolean(properties.getProperty("metricsEnabled"));
+	}
 }
@@ -1,102 +1,113 @@
 package joelbits.emulator.cpu;
 
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import static joelbits.emulator.utils.Chip8Util.*;
 import joelbits.emulator.utils.RandomNumberGenerator;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public class ALU {
-	private final Register<Integer> programCounter;
-	private final Register<Integer> dataRegisterVF;
+	private final RegisterFile registers;
 	private final RandomNumberGenerator randomNumberGenerator;
-	
-	public void load(Register<Integer> register, int value) {
-		register.write(value);
+
+	public void load(int register, int value) {
+		registers.write(register, value);
 		incrementProgramCounter();
 	}
-	
-	public void add(Register<Integer> register, int value) {
-		register.write((register.read() + value) & FIT_8BIT_REGISTER);
+
+	public void loadIndex(int value) {
+		registers.writeIndex(value);
+		incrementProgramCounter();
+	}
+
+	public void add(int register, int value) {
+		registers.write(register, (registers.read(register) + value) & FIT_8BIT_REGISTER);
 		incrementProgramCounter();
 	}
-	
-	public void addWithRandom(Register<Integer> register, int value) {
+
+	public void addWithRandom(int register, int value) {
 		randomNumberGenerator.generate(FIT_8BIT_REGISTER);
-		register.write(randomNumberGenerator.getValue() & value);
+		registers.write(register, randomNumberGenerator.getValue() & value);
 		incrementProgramCounter();
 	}
-	
-	public void addWithCarry(Register<Integer> register, int value, int limit) {
-		int sum = (register.read() + value) & FIT_16BIT_REGISTER;
-		dataRegisterVF.write((sum > limit) ? 1 : 0);
-		register.write(limit == FIT_8BIT_REGISTER ? sum & FIT_8BIT_REGISTER : sum);
+
+	public void addWithCarry(int register, int value) {
+		int sum = (registers.read(register) + value) & FIT_16BIT_REGISTER;
+		registers.write(REGISTER_VF, (sum > FIT_8BIT_REGISTER) ? 1 : 0);
+		registers.write(register, sum & FIT_8BIT_REGISTER);
 		incrementProgramCounter();
 	}
-	
-	public void subtractWithBorrow(Register<Integer> register, int value) {
-		dataRegisterVF.write(register.read() > value ? 1 : 0);
-		register.write(convertToUnsignedInt(register.read() - value) & FIT_8BIT_REGISTER);
+
+	public void addToIndexWithCarry(int value) {
+		int sum = (registers.readIndex() + value) & FIT_16BIT_REGISTER;
+		registers.write(REGISTER_VF, (sum > FIT_12BIT_ADDRESS) ? 1 : 0);
+		registers.writeIndex(sum);
 		incrementProgramCounter();
 	}
-	
-	public void subtractWithNegatedBorrow(Register<Integer> register, int value) {
-		dataRegisterVF.write(register.read() > value ? 0 : 1);
-		register.write(convertToUnsignedInt(value - register.read()) & FIT_8BIT_REGISTER);
+
+	public void subtractWithBorrow(int register, int value) {
+		registers.write(REGISTER_VF, registers.read(register) > value ? 1 : 0);
+		registers.write(register, convertToUnsignedInt(registers.read(register) - value) & FIT_8BIT_REGISTER);
 		incrementProgramCounter();
 	}
-	
-	public void bitwiseOR(Register<Integer> register, int value) {
-		register.write((register.read() | value));
+
+	public void subtractWithNegatedBorrow(int register, int value) {
+		registers.write(REGISTER_VF, registers.read(register) > value ? 0 : 1);
+		registers.write(register, convertToUnsignedInt(value - registers.read(register)) & FIT_8BIT_REGISTER);
 		incrementProgramCounter();
 	}
-	
-	public void bitwiseAND(Register<Integer> register, int value) {
-		register.write((register.read() & value));
+
+	public void bitwiseOR(int register, int value) {
+		registers.write(register, registers.read(register) | value);
 		incrementProgramCounter();
 	}
-	
-	public void bitwiseXOR(Register<Integer> register, int value) {
-		register.write((register.read() ^ value));
+
+	public void bitwiseAND(int register, int value) {
+		registers.write(register, registers.read(register) & value);
 		incrementProgramCounter();
 	}
-	
-	public void leftShiftWithCarry(Register<Integer> register) {
-		dataRegisterVF.write((register.read() >> 7) & 0x1);
-		register.write((register.read() << 1) & FIT_8BIT_REGISTER);
+
+	public void bitwiseXOR(int register, int value) {
+		registers.write(register, registers.read(register) ^ value);
 		incrementProgramCounter();
 	}
-	
-	public void rightShiftWithCarry(Register<Integer> register) {
-		dataRegisterVF.write(register.read() & 0x1);
-		register.write((register.read() >> 1));
+
+	public void leftShiftWithCarry(int register) {
+		registers.write(REGISTER_VF, (registers.read(register) >> 7) & 0x1);
+		registers.write(register, (registers.read(register) << 1) & FIT_8BIT_REGISTER);
 		incrementProgramCounter();
 	}
-	
-	public void skipNextIfEqual(Register<Integer> register, int value) {
-		if (register.read().equals(value)) {
+
+	public void rightShiftWithCarry(int register) {
+		registers.write(REGISTER_VF, registers.read(register) & 0x1);
+		registers.write(register, registers.read(register) >> 1);
+		incrementProgramCounter();
+	}
+
+	public void skipNextIfEqual(int register, int value) {
+		if (registers.read(register) == value) {
 			incrementProgramCounter();
 		}
 		incrementProgramCounter();
 	}
-	
-	public void skipNextIfNotEqual(Register<Integer> register, int value) {
-		if (!register.read().equals(value)) {
+
+	public void skipNextIfNotEqual(int register, int value) {
+		if (registers.read(register) != value) {
 			incrementProgramCounter();
 		}
 		incrementProgramCounter();
 	}
 
 	void setProgramCounter(int address) {
-		programCounter.write(address);
+		registers.writeProgramCounter(address);
 	}
 
 	public int programCounter() {
-		return programCounter.read();
+		return registers.readProgramCounter();
 	}
 
 	private void incrementProgramCounter() {
-		programCounter.write((programCounter.read() + 2) & FIT_16BIT_REGISTER);
+		registers.writeProgramCounter((registers.readProgramCounter() + 2) & FIT_16BIT_REGISTER);
 	}
 
 	private int convertToUnsignedInt(int value) {
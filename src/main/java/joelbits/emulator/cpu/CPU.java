@@ -1,10 +1,16 @@
 package joelbits.emulator.cpu;
 
-import java.util.List;
-import java.util.Stack;
+import java.util.BitSet;
 
 import joelbits.emulator.Program;
+import joelbits.emulator.cpu.instructions.BasicBlock;
+import joelbits.emulator.cpu.instructions.BlockCache;
+import joelbits.emulator.cpu.instructions.DecodedInstruction;
+import static joelbits.emulator.cpu.instructions.DecodedInstruction.*;
+import joelbits.emulator.cpu.instructions.FusedInstruction;
 import joelbits.emulator.cpu.instructions.InstructionUnit;
+import joelbits.emulator.cpu.jit.BlockCompiler;
+import joelbits.emulator.cpu.jit.CompiledBlock;
 import joelbits.emulator.graphics.GMU;
 import joelbits.emulator.memory.MMU;
 import static joelbits.emulator.utils.Chip8Util.*;
@@ -12,9 +18,8 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javafx.scene.input.KeyCode;
 import joelbits.emulator.cpu.instructions.Instructions;
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import joelbits.emulator.input.Input;
 import joelbits.emulator.timers.Timer;
 
@@ -23,26 +28,43 @@ import joelbits.emulator.timers.Timer;
  * to 1 if any screen pixels are flipped from set to unset when a sprite is
  * drawn and set to 0 otherwise. Last 8 bits of each register are used to
  * represent an unsigned byte.
+ *
+ * The CPU halts on Fx0A until a key is pressed. While halted the program counter stays on the Fx0A instruction, so
+ * that the instruction is executed again on the next frame, and the key pressed while the CPU was halted is stored
+ * even if it has already been released.
  */
 @RequiredArgsConstructor
 public final class CPU {
 	private static final Logger log = LoggerFactory.getLogger(CPU.class);
-	private final Stack<Integer> stack;
+	private final CallStack stack;
 	private final MMU mmu;
-	private final Input<Integer, KeyCode> keyboard;
-	private final List<Register<Integer>> dataRegisters;
-	private final Register<Integer> indexRegister;
+	private final Input<Integer, ?> keyboard;
+	private final RegisterFile registers;
 	private final Timer<Integer> delayTimer;
 	private final Timer<Integer> soundTimer;
 	private final ALU alu;
 	private final GMU gmu;
 	private final InstructionUnit instructionUnit;
+	private final BlockCache blockCache;
+	private final BitSet unknownOpcodes = new BitSet();
+	private BlockCompiler blockCompiler;
+	private Fault fault;
+	private long unknownInstructions;
+	private TieringPolicy tieringPolicy;
+	private volatile boolean waitingForKey;
+	private volatile int keyPressedWhileWaiting;
 
 	public void initialize(int address, int index, int delayTime, int soundTime, int[] data) {
 		alu.setProgramCounter(address);
 		delayTimer.setValue(delayTime);
 		soundTimer.setValue(soundTime);
-		indexRegister.write(index);
+		registers.writeIndex(index);
+		stack.clear();
+		fault = null;
+		unknownInstructions = 0;
+		unknownOpcodes.clear();
+		waitingForKey = false;
+		keyPressedWhileWaiting = 0;
 		
 		gmu.clearBuffers();
 		mmu.clearPrimaryMemory();
@@ -50,22 +72,178 @@ public final class CPU {
 	}
 	
 	public void loadProgram(Program program, int startLocation) {
-		for (int i = 0, location = startLocation; i < program.size(); i++, location++) {
-			mmu.writePrimaryMemory(location, Byte.toUnsignedInt(program.data(i)));
-		}
-		resetDataRegisters();
+		mmu.writePrimaryMemory(startLocation, program.data());
+		registers.clearDataRegisters();
 	}
 	
-	private void resetDataRegisters() {
-		for (Register<Integer> register : dataRegisters) {
-			register.write(0);
+	/**
+	 * Fetches the instruction at the program counter and executes it, without building a DecodedInstruction.
+	 */
+	public void executeNextOperation() {
+		int opcode = instructionUnit.fetchInstruction(alu.programCounter());
+		execute(Instructions.decode(opcode), opcode, registerLocationX(opcode), registerLocationY(opcode), address(opcode), lowestByte(opcode));
+	}
+
+	/**
+	 * Executes the code at the program counter in the tier chosen by the tiering policy. Cold code is executed one
+	 * instruction at a time. Warm code is executed as the basic block at the program counter, or as much of it as fits
+	 * within the supplied number of instructions. The block is taken from the block cache, so that the instructions are
+	 * not fetched and decoded again every time the block is executed. Hot blocks are compiled if a block compiler is set,
+	 * and from then on executed as compiled code whenever the whole block fits. Hot blocks that are not compiled are
+	 * executed in their fused form, where common sequences of instructions are executed by one handler each.
+	 *
+	 * A fault of the program stops the CPU. The fault is logged and kept until the next program is initialized, and
+	 * no more instructions are executed until then.
+	 *
+	 * @return	the number of executed instructions
+	 */
+	public int executeBlock(int maxInstructions) {
+		if (fault != null) {
+			return 0;
+		}
+		int address = alu.programCounter();
+		try {
+			return executeTier(maxInstructions);
+		} catch (FaultException e) {
+			int faultAddress = alu.programCounter();
+			fault = new Fault(e.getType(), faultAddress, instructionUnit.fetchInstruction(faultAddress), e.getMessage());
+			log.error("Program fault in block at location " + Integer.toHexString(address) + ": " + fault);
+			return 0;
 		}
 	}
-	
-	public void executeNextOperation() {
-		int instruction = instructionUnit.fetchNextInstruction(alu.programCounter());
-		
-		switch(Instructions.getInstruction(String.format("%04X", instruction & FIT_16BIT_REGISTER).toUpperCase())) {
+
+	private int executeTier(int maxInstructions) {
+		ExecutionTier tier = tieringPolicy.recordExecution(alu.programCounter());
+		if (tier == ExecutionTier.COLD) {
+			executeNextOperation();
+			return 1;
+		}
+		BasicBlock block = blockCache.block(alu.programCounter());
+		if (tier == ExecutionTier.HOT) {
+			if (blockCompiler != null && block.size() <= maxInstructions) {
+				CompiledBlock compiledBlock = compiledBlock(block);
+				if (compiledBlock != null) {
+					compiledBlock.execute(registers);
+					return block.size();
+				}
+			}
+			int instructions = executeFused(blockCache.fusedInstructions(block), maxInstructions);
+			if (instructions > 0) {
+				return instructions;
+			}
+		}
+		int instructions = Math.min(maxInstructions, block.size());
+		for (int i = 0; i < instructions; i++) {
+			execute(block.instruction(i));
+		}
+		return instructions;
+	}
+
+	/**
+	 * Executes the fused steps that fit within the supplied number of instructions, until a superinstruction takes a
+	 * skip and so leaves the block.
+	 *
+	 * @return	the number of executed instructions
+	 */
+	private int executeFused(FusedInstruction[] steps, int maxInstructions) {
+		int instructions = 0;
+		for (FusedInstruction step : steps) {
+			if (instructions + step.size() > maxInstructions) {
+				break;
+			}
+			if (step.getSuperinstruction() == null) {
+				execute(step.part(0));
+				instructions++;
+			} else {
+				int executed = executeSuperinstruction(step);
+				instructions += executed;
+				if (executed < step.size()) {
+					break;
+				}
+			}
+		}
+		return instructions;
+	}
+
+	/**
+	 * @return	the number of instructions executed by the superinstruction, which is less than its size when a skip is taken
+	 */
+	private int executeSuperinstruction(FusedInstruction step) {
+		DecodedInstruction first = step.part(0);
+		DecodedInstruction second = step.part(1);
+		switch (step.getSuperinstruction()) {
+			case SKIP_OR_JUMP:
+				return skipOrJump(first, second.getAddress());
+			case LOAD_BYTE_AND_INDEX:
+				registers.write(first.getRegisterLocationX(), first.getLowestByte());
+				registers.writeIndex(second.getAddress());
+				alu.setProgramCounter((alu.programCounter() + 4) & FIT_16BIT_REGISTER);
+				return 2;
+			case ADD_TO_INDEX_AND_LOAD_REGISTERS:
+				alu.addToIndexWithCarry(registers.read(first.getRegisterLocationX()));
+				writeMemoryToDataRegisters(second.getRegisterLocationX());
+				alu.setProgramCounter(alu.programCounter() + 2);
+				return 2;
+			case ADD_AND_SKIP_OR_JUMP:
+				alu.add(first.getRegisterLocationX(), first.getLowestByte());
+				return 1 + skipOrJump(second, step.part(2).getAddress());
+			default:
+				throw new IllegalStateException("Unknown superinstruction " + step.getSuperinstruction());
+		}
+	}
+
+	private int skipOrJump(DecodedInstruction skip, int jumpAddress) {
+		boolean equal = registers.read(skip.getRegisterLocationX()) == skip.getLowestByte();
+		if (equal == (skip.getOperation() == Instructions.SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL)) {
+			alu.setProgramCounter((alu.programCounter() + 4) & FIT_16BIT_REGISTER);
+			return 1;
+		}
+		alu.setProgramCounter(jumpAddress);
+		return 2;
+	}
+
+	private CompiledBlock compiledBlock(BasicBlock block) {
+		if (!block.isCompilationAttempted()) {
+			block.setCompiledBlock(blockCompiler.compile(block));
+		}
+		return block.getCompiledBlock();
+	}
+
+	/**
+	 * Sets the compiler used for hot blocks. Without a compiler, which is the default, all blocks are interpreted.
+	 */
+	public void setBlockCompiler(BlockCompiler blockCompiler) {
+		this.blockCompiler = blockCompiler;
+	}
+
+	/**
+	 * Replaces the tiering policy, and with it all execution counters. There is no default policy, so a policy must be
+	 * set before executeBlock is called; Chip8 sets one from the settings whenever a program is loaded.
+	 */
+	public void setTieringPolicy(TieringPolicy tieringPolicy) {
+		this.tieringPolicy = tieringPolicy;
+	}
+
+	public TieringPolicy tieringPolicy() {
+		return tieringPolicy;
+	}
+
+	private void execute(DecodedInstruction instruction) {
+		execute(instruction.getOperation(), instruction.getOpcode(), instruction.getRegisterLocationX(),
+				instruction.getRegisterLocationY(), instruction.getAddress(), instruction.getLowestByte());
+	}
+
+	/**
+	 * Executes an opcode that has been decoded to the supplied operation and operands. The operation is null if the
+	 * opcode is not a valid instruction.
+	 */
+	private void execute(Instructions operation, int opcode, int x, int y, int address, int lowestByte) {
+		if (operation == null) {
+			unknownInstruction(opcode);
+			return;
+		}
+
+		switch(operation) {
 			case CLEAR_THE_DISPLAY:
 				gmu.clearBuffers();
 				alu.setProgramCounter(alu.programCounter() + 2);
@@ -74,133 +252,233 @@ public final class CPU {
 				alu.setProgramCounter(stack.pop() + 2);
 				break;
 			case JUMP_TO_LOCATION:
-				alu.setProgramCounter(instructionUnit.getAddress());
+				alu.setProgramCounter(address);
 				break;
 			case CALL_SUBROUTINE:
 				stack.push(alu.programCounter());
-				alu.setProgramCounter(instructionUnit.getAddress());
+				alu.setProgramCounter(address);
 				break;
 			case SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL:
-				alu.skipNextIfEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), instructionUnit.getLowestByte());
+				alu.skipNextIfEqual(x, lowestByte);
 				break;
 			case SKIP_NEXT_INSTRUCTION_IF_VALUES_NOT_EQUAL:
-				alu.skipNextIfNotEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), instructionUnit.getLowestByte());
+				alu.skipNextIfNotEqual(x, lowestByte);
 				break;
 			case SKIP_NEXT_INSTRUCTION_IF_REGISTERS_EQUAL:
-				alu.skipNextIfEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.skipNextIfEqual(x, registers.read(y));
 				break;
 			case LOAD_BYTE_TO_REGISTER:
-				alu.load(dataRegisters.get(instructionUnit.getRegisterLocationX()), instructionUnit.getLowestByte());
+				alu.load(x, lowestByte);
 				break;
 			case ADD_BYTE_TO_REGISTER:
-				alu.add(dataRegisters.get(instructionUnit.getRegisterLocationX()), instructionUnit.getLowestByte());
+				alu.add(x, lowestByte);
 				break;
 			case LOAD_REGISTER_VALUE_TO_REGISTER:
-				alu.load(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.load(x, registers.read(y));
 				break;
 			case BITWISE_OR:
-				alu.bitwiseOR(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.bitwiseOR(x, registers.read(y));
 				break;
 			case BITWISE_AND:
-				alu.bitwiseAND(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.bitwiseAND(x, registers.read(y));
 				break;
 			case BITWISE_XOR:
-				alu.bitwiseXOR(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.bitwiseXOR(x, registers.read(y));
 				break;
 			case ADD_REGISTER_VALUE_TO_REGISTER:
-				alu.addWithCarry(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read(), FIT_8BIT_REGISTER);
+				alu.addWithCarry(x, registers.read(y));
 				break;
 			case SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
-				alu.subtractWithBorrow(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.subtractWithBorrow(x, registers.read(y));
 				break;
 			case SHIFT_REGISTER_VALUE_RIGHT:
-				alu.rightShiftWithCarry(dataRegisters.get(instructionUnit.getRegisterLocationX()));
+				alu.rightShiftWithCarry(x);
 				break;
 			case NEGATED_SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
-				alu.subtractWithNegatedBorrow(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.subtractWithNegatedBorrow(x, registers.read(y));
 				break;
 			case SHIFT_REGISTER_VALUE_LEFT:
-				alu.leftShiftWithCarry(dataRegisters.get(instructionUnit.getRegisterLocationX()));
+				alu.leftShiftWithCarry(x);
 				break;
 			case SKIP_NEXT_IF_REGISTERS_NOT_EQUAL:
-				alu.skipNextIfNotEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), dataRegisters.get(instructionUnit.getRegisterLocationY()).read());
+				alu.skipNextIfNotEqual(x, registers.read(y));
 				break;
 			case LOAD_ADDRESS_TO_INDEX_REGISTER:
-				alu.load(indexRegister, instructionUnit.getAddress());
+				alu.loadIndex(address);
 				break;
 			case JUMP_TO_LOCATION_WITH_OFFSET:
-				alu.setProgramCounter(dataRegisters.get(0x0).read() + instructionUnit.getAddress());
+				alu.setProgramCounter(registers.read(0x0) + address);
 				break;
 			case SET_RANDOM_BYTE_IN_REGISTER:
-				alu.addWithRandom(dataRegisters.get(instructionUnit.getRegisterLocationX()), instructionUnit.getLowestByte());
+				alu.addWithRandom(x, lowestByte);
 				break;
 			case DRAW_SPRITE:
-				gmu.drawSprite(dataRegisters, mmu.primaryMemory(), indexRegister, instruction);
+				gmu.drawSprite(registers, mmu, opcode);
 				alu.setProgramCounter(alu.programCounter() + 2);
 				break;
 			case SKIP_NEXT_IF_KEY_PRESSED:
-				alu.skipNextIfEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), keyboard.currentlyPressed());
+				alu.skipNextIfEqual(x, keyboard.currentlyPressed());
 				break;
 			case SKIP_NEXT_IF_KEY_NOT_PRESSED:
-				alu.skipNextIfNotEqual(dataRegisters.get(instructionUnit.getRegisterLocationX()), keyboard.currentlyPressed());
+				alu.skipNextIfNotEqual(x, keyboard.currentlyPressed());
 				break;
 			case LOAD_REGISTER_WITH_DELAY_TIMER_VALUE:
-				alu.load(dataRegisters.get(instructionUnit.getRegisterLocationX()), delayTimer.getValue());
+				alu.load(x, delayTimer.getValue());
 				break;
 			case WAIT_FOR_KEY_PRESS_AND_STORE_VALUE_IN_REGISTER:
-				while (keyboard.currentlyPressed().equals(0)) {
-					;
-				}
-				alu.load(dataRegisters.get(instructionUnit.getRegisterLocationX()), keyboard.currentlyPressed());
+				waitForKeyPress(x);
 				break;
 			case SET_DELAY_TIMER:
-				delayTimer.setValue(dataRegisters.get(instructionUnit.getRegisterLocationX()).read());
+				delayTimer.setValue(registers.read(x));
 				alu.setProgramCounter(alu.programCounter() + 2);
 				break;
 			case SET_SOUND_TIMER:
-				int value = dataRegisters.get(instructionUnit.getRegisterLocationX()).read();
+				int value = registers.read(x);
 				soundTimer.setValue(value == 1 ? 2 : value);
 				alu.setProgramCounter(alu.programCounter() + 2);
 				break;
 			case ADD_DATA_REGISTER_AND_INDEX_REGISTER:
-				alu.addWithCarry(indexRegister, dataRegisters.get(instructionUnit.getRegisterLocationX()).read(), 0xFFF);
+				alu.addToIndexWithCarry(registers.read(x));
 				break;
 			case LOAD_SPRITE_LOCATION_TO_REGISTER:
-				alu.load(indexRegister, (dataRegisters.get(instructionUnit.getRegisterLocationX()).read() * 5) & FIT_16BIT_REGISTER);
+				alu.loadIndex((registers.read(x) * 5) & FIT_16BIT_REGISTER);
 				break;
 			case STORE_BCD_REPRESENTATION_IN_MEMORY:
-				writeBcdRepresentationToMemory(instructionUnit.getRegisterLocationX());
+				writeBcdRepresentationToMemory(x);
 			 	alu.setProgramCounter(alu.programCounter() + 2);
 			 	break;
 			case STORE_DATA_REGISTERS_IN_MEMORY:
-				writeDataRegistersToMemory(instructionUnit.getRegisterLocationX());
+				writeDataRegistersToMemory(x);
 				alu.setProgramCounter(alu.programCounter() + 2);
 				break;
 			case LOAD_FROM_MEMORY_TO_DATA_REGISTERS:
-				writeMemoryToDataRegisters(instructionUnit.getRegisterLocationX());
+				writeMemoryToDataRegisters(x);
 				alu.setProgramCounter(alu.programCounter() + 2);
 				break;
 			default:
-				log.warn("Unknown instruction " + Integer.toHexString(instruction & FIT_16BIT_REGISTER) + " at location " + alu.programCounter());
+				unknownInstruction(opcode);
 				break;
 		}
 	}
+
+	/**
+	 * Counts an unknown instruction. Since the program counter is not advanced past an unknown instruction it is
+	 * usually executed over and over again, so each unknown opcode is only logged the first time it is executed.
+	 */
+	private void unknownInstruction(int instruction) {
+		int opcode = instruction & FIT_16BIT_REGISTER;
+		unknownInstructions++;
+		if (!unknownOpcodes.get(opcode)) {
+			unknownOpcodes.set(opcode);
+			log.warn("Unknown instruction " + Integer.toHexString(opcode) + " at location " + alu.programCounter());
+		}
+	}
 	
+	private void waitForKeyPress(int registerLocation) {
+		waitingForKey = true;
+		int key = keyPressedWhileWaiting != 0 ? keyPressedWhileWaiting : keyboard.currentlyPressed();
+		if (key == 0) {
+			return;
+		}
+		waitingForKey = false;
+		keyPressedWhileWaiting = 0;
+		alu.load(registerLocation, key);
+	}
+
+	/**
+	 * Signals that a key has been pressed. The key is remembered only if the CPU is halted waiting for a key press.
+	 */
+	public void keyPressed(int key) {
+		if (waitingForKey) {
+			keyPressedWhileWaiting = key;
+		}
+	}
+
+	/**
+	 * Returns the number of instructions in the idle loop starting at the supplied address, or 0 if there is no idle
+	 * loop at the address. An idle loop is a jump to itself, a delay timer poll (Fx07 followed by 3xkk or 4xkk on
+	 * the same register and a jump back) or a key poll (Ex9E or ExA1 followed by a jump back). Within a frame such a
+	 * loop keeps taking the same path, since the only values it depends on change between frames.
+	 */
+	public int idleLoopLength(int address) {
+		int first = opcodeAt(address);
+		int jumpBack = 0x1000 | address;
+		if (first == jumpBack) {
+			return 1;
+		}
+		int x = first & 0x0F00;
+		int second = opcodeAt(address + 2);
+		if ((first & 0xF0FF) == 0xE09E || (first & 0xF0FF) == 0xE0A1) {
+			return second == jumpBack ? 2 : 0;
+		}
+		if ((first & 0xF0FF) == 0xF007 && ((second & 0xFF00) == (0x3000 | x) || (second & 0xFF00) == (0x4000 | x))) {
+			return opcodeAt(address + 4) == jumpBack ? 3 : 0;
+		}
+		return 0;
+	}
+
+	private int opcodeAt(int address) {
+		return mmu.readPrimaryMemory(address) << 8 | mmu.readPrimaryMemory(address + 1);
+	}
+
+	public Fault getFault() {
+		return fault;
+	}
+
+	/**
+	 * The number of unknown instructions executed since the program was initialized.
+	 */
+	public long getUnknownInstructions() {
+		return unknownInstructions;
+	}
+
+	/**
+	 * The distinct unknown opcodes executed since the program was initialized, in ascending order.
+	 */
+	public int[] unknownOpcodes() {
+		return unknownOpcodes.stream().toArray();
+	}
+
+	public CallStack callStack() {
+		return stack;
+	}
+
+	public boolean isWaitingForKey() {
+		return waitingForKey;
+	}
+
+	/**
+	 * The key pressed while the CPU was halted on Fx0A that has not yet been loaded into a register, or 0 if none.
+	 */
+	public int keyPressedWhileWaiting() {
+		return keyPressedWhileWaiting;
+	}
+
+	/**
+	 * Restores the state of a pending key wait, e.g., when a saved machine state is loaded. Any fault is cleared, since
+	 * the restored state is from before the program faulted.
+	 */
+	public void restoreKeyWait(boolean waitingForKey, int keyPressedWhileWaiting) {
+		this.waitingForKey = waitingForKey;
+		this.keyPressedWhileWaiting = keyPressedWhileWaiting;
+		fault = null;
+	}
+
 	private void writeBcdRepresentationToMemory(int registerLocation) {
-		mmu.writePrimaryMemory(indexRegister.read(), dataRegisters.get(registerLocation).read() / 100);
- 		mmu.writePrimaryMemory(indexRegister.read() + 1, (dataRegisters.get(registerLocation).read() % 100) / 10);
- 		mmu.writePrimaryMemory(indexRegister.read() + 2, dataRegisters.get(registerLocation).read() % 10);
+		mmu.writePrimaryMemory(registers.readIndex(), registers.read(registerLocation) / 100);
+ 		mmu.writePrimaryMemory(registers.readIndex() + 1, (registers.read(registerLocation) % 100) / 10);
+ 		mmu.writePrimaryMemory(registers.readIndex() + 2, registers.read(registerLocation) % 10);
 	}
 	
 	private void writeDataRegistersToMemory(int registerBound) {
 		for (int i = 0; i <= registerBound; i++) {
-			mmu.writePrimaryMemory(indexRegister.read() + i, dataRegisters.get(i).read());
+			mmu.writePrimaryMemory(registers.readIndex() + i, registers.read(i));
 		}
 	}
 	
 	private void writeMemoryToDataRegisters(int registerBound) {
 		for (int i = 0; i <= registerBound; i++) {
-			dataRegisters.get(i).write(mmu.readPrimaryMemory(indexRegister.read() + i));
+			registers.write(i, mmu.readPrimaryMemory(registers.readIndex() + i));
 		}
 	}
 }
@@ -0,0 +1,83 @@
+package joelbits.emulator.cpu;
+
+import java.util.Arrays;
+
+/**
+ * The stack of return addresses of called subroutines. The addresses are kept in an int array with a fixed number of
+ * levels, 16 by default, and the stack pointer is the number of addresses currently on the stack. Calling beyond the
+ * last level or returning from an empty stack is a fault of the running program.
+ */
+public final class CallStack {
+	public static final int DEFAULT_LEVELS = 16;
+	private final int[] addresses;
+	private int stackPointer;
+
+	public CallStack() {
+		this(DEFAULT_LEVELS);
+	}
+
+	public CallStack(int levels) {
+		if (levels <= 0) {
+			throw new IllegalArgumentException("Call stack must have at least one level, not " + levels);
+		}
+		addresses = new int[levels];
+	}
+
+	public void push(int address) {
+		if (stackPointer == addresses.length) {
+			throw new FaultException(Fault.Type.STACK_OVERFLOW, "Call stack overflow at depth " + stackPointer);
+		}
+		addresses[stackPointer++] = address;
+	}
+
+	public int pop() {
+		if (stackPointer == 0) {
+			throw new FaultException(Fault.Type.STACK_UNDERFLOW, "Return with an empty call stack");
+		}
+		return addresses[--stackPointer];
+	}
+
+	public int peek() {
+		if (stackPointer == 0) {
+			throw new FaultException(Fault.Type.STACK_UNDERFLOW, "Peek at an empty call stack");
+		}
+		return addresses[stackPointer - 1];
+	}
+
+	public int getStackPointer() {
+		return stackPointer;
+	}
+
+	public int levels() {
+		return addresses.length;
+	}
+
+	public boolean isEmpty() {
+		return stackPointer == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(addresses, 0);
+		stackPointer = 0;
+	}
+
+	/**
+	 * Copies the addresses on the stack, from the bottom up, to the destination and returns the stack pointer.
+	 */
+	public int snapshot(int[] destination) {
+		System.arraycopy(addresses, 0, destination, 0, stackPointer);
+		return stackPointer;
+	}
+
+	/**
+	 * Replaces the contents of the stack with the supplied addresses, from the bottom up.
+	 */
+	public void restore(int[] source, int stackPointer) {
+		if (stackPointer < 0 || stackPointer > addresses.length) {
+			throw new IllegalArgumentException("Stack pointer " + stackPointer + " does not fit " + addresses.length + " levels");
+		}
+		clear();
+		System.arraycopy(source, 0, addresses, 0, stackPointer);
+		this.stackPointer = stackPointer;
+	}
+}
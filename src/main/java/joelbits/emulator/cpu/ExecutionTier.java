@@ -0,0 +1,11 @@
+package joelbits.emulator.cpu;
+
+/**
+ * The form in which code at an address is executed. Cold code is fetched and decoded one instruction at a time, warm
+ * code is executed as cached basic blocks of decoded instructions and hot code in its most optimized form.
+ */
+public enum ExecutionTier {
+	COLD,
+	WARM,
+	HOT
+}
@@ -0,0 +1,27 @@
+package joelbits.emulator.cpu;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A fault of the running program, which stops the CPU until the next program is loaded. The address is the location of
+ * the instruction that caused the fault.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class Fault {
+	public enum Type {
+		STACK_OVERFLOW,
+		STACK_UNDERFLOW
+	}
+
+	private final Type type;
+	private final int address;
+	private final int opcode;
+	private final String message;
+
+	@Override
+	public String toString() {
+		return type + " at location " + Integer.toHexString(address) + " executing " + Integer.toHexString(opcode) + ": " + message;
+	}
+}
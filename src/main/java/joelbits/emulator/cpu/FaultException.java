@@ -0,0 +1,17 @@
+package joelbits.emulator.cpu;
+
+import lombok.Getter;
+
+/**
+ * Thrown by a part of the machine when the running program faults. The CPU turns it into a Fault.
+ */
+@Getter
+public final class FaultException extends RuntimeException {
+	private static final long serialVersionUID = 1L;
+	private final Fault.Type type;
+
+	public FaultException(Fault.Type type, String message) {
+		super(message);
+		this.type = type;
+	}
+}
@@ -0,0 +1,62 @@
+package joelbits.emulator.cpu;
+
+import static joelbits.emulator.utils.Chip8Util.FIT_12BIT_ADDRESS;
+
+import joelbits.emulator.settings.GameSettings;
+import lombok.Getter;
+
+/**
+ * Counts how many times execution has been dispatched to each address and decides the execution tier from the count.
+ * Code is cold during its first warmThreshold executions, warm during the following executions up to hotThreshold, and
+ * hot after that. The number of promotions to each tier are kept as metrics.
+ */
+public final class TieringPolicy {
+	@Getter private final int warmThreshold;
+	@Getter private final int hotThreshold;
+	private final int[] executions = new int[FIT_12BIT_ADDRESS + 1];
+	@Getter private long promotionsToWarm;
+	@Getter private long promotionsToHot;
+
+	/**
+	 * Creates a policy with the warm and hot thresholds in the settings.
+	 */
+	public TieringPolicy(GameSettings settings) {
+		this(settings.getWarmThreshold(), settings.getHotThreshold());
+	}
+
+	public TieringPolicy(int warmThreshold, int hotThreshold) {
+		if (warmThreshold < 0 || hotThreshold < warmThreshold) {
+			throw new IllegalArgumentException("Invalid tier thresholds " + warmThreshold + " and " + hotThreshold);
+		}
+		this.warmThreshold = warmThreshold;
+		this.hotThreshold = hotThreshold;
+	}
+
+	/**
+	 * Counts one more execution at the supplied address and returns the tier in which to execute it.
+	 */
+	public ExecutionTier recordExecution(int address) {
+		int location = address & FIT_12BIT_ADDRESS;
+		int count = executions[location];
+		if (count > hotThreshold) {
+			return ExecutionTier.HOT;
+		}
+		executions[location] = ++count;
+		if (count > hotThreshold) {
+			promotionsToHot++;
+			return ExecutionTier.HOT;
+		}
+		if (count > warmThreshold) {
+			if (count == warmThreshold + 1) {
+				promotionsToWarm++;
+			}
+			return ExecutionTier.WARM;
+		}
+		return ExecutionTier.COLD;
+	}
+
+	public ExecutionTier tierOf(int address) {
+		int count = executions[address & FIT_12BIT_ADDRESS];
+		return count > hotThreshold ? ExecutionTier.HOT : count > warmThreshold ? ExecutionTier.WARM : ExecutionTier.COLD;
+	}
+}
@@ -0,0 +1,59 @@
+package joelbits.emulator.cpu.instructions;
+
+import joelbits.emulator.cpu.jit.CompiledBlock;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A sequence of decoded instructions stored back to back in memory, where only the last instruction may change the
+ * program counter to anything other than the following instruction.
+ */
+@RequiredArgsConstructor
+public final class BasicBlock {
+    @Getter private final int startAddress;
+    private final DecodedInstruction[] instructions;
+    @Getter private CompiledBlock compiledBlock;
+    @Getter private boolean compilationAttempted;
+    @Getter private FusedInstruction[] fusedInstructions;
+    private int fusedLength;
+
+    public DecodedInstruction instruction(int index) {
+        return instructions[index];
+    }
+
+    /**
+     * Sets the compiled form of the block, which is null if the block could not be compiled. The block is only
+     * compiled once.
+     */
+    public void setCompiledBlock(CompiledBlock compiledBlock) {
+        this.compiledBlock = compiledBlock;
+        compilationAttempted = true;
+    }
+
+    /**
+     * Sets the fused form of the block, which may include instructions following the block up to the supplied length
+     * in bytes.
+     */
+    public void setFusedInstructions(FusedInstruction[] fusedInstructions, int fusedLength) {
+        this.fusedInstructions = fusedInstructions;
+        this.fusedLength = fusedLength;
+    }
+
+    public int size() {
+        return instructions.length;
+    }
+
+    /**
+     * The number of memory bytes the instructions of this block were decoded from.
+     */
+    public int byteLength() {
+        return instructions.length * 2;
+    }
+
+    /**
+     * The number of memory bytes that both the block and its fused form, if any, were decoded from.
+     */
+    public int codeLength() {
+        return Math.max(byteLength(), fusedLength);
+    }
+}
@@ -0,0 +1,120 @@
+package joelbits.emulator.cpu.instructions;
+
+import static joelbits.emulator.cpu.instructions.Instructions.*;
+import static joelbits.emulator.utils.Chip8Util.FIT_12BIT_ADDRESS;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import joelbits.emulator.memory.MemoryWriteListener;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Caches basic blocks of decoded instructions by the address of their first instruction. Every memory byte that has
+ * been decoded into a cached block is marked in a bitmap. When such a byte is written, i.e., when the program
+ * modifies its own code, all cached blocks containing the byte are dropped and decoded again on their next use.
+ *
+ * A block ends after any instruction that may change the program counter non-sequentially or that writes to memory,
+ * so that a write can never modify an instruction later in the block that is currently executing. The fused form of a
+ * block may also contain the jump following the block, whose bytes then count as code of the block.
+ */
+@RequiredArgsConstructor
+public final class BlockCache implements MemoryWriteListener {
+    private static final int MEMORY_SIZE = FIT_12BIT_ADDRESS + 1;
+    public static final int MAX_BLOCK_INSTRUCTIONS = 32;
+    private static final int MAX_BLOCK_BYTES = MAX_BLOCK_INSTRUCTIONS * 2;
+    private static final int MAX_CODE_BYTES = MAX_BLOCK_BYTES + 2;
+    private static final Set<Instructions> blockTerminators = EnumSet.of(
+            RETURN_FROM_SUBROUTINE, JUMP_TO_LOCATION, CALL_SUBROUTINE, JUMP_TO_LOCATION_WITH_OFFSET,
+            SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL, SKIP_NEXT_INSTRUCTION_IF_VALUES_NOT_EQUAL,
+            SKIP_NEXT_INSTRUCTION_IF_REGISTERS_EQUAL, SKIP_NEXT_IF_REGISTERS_NOT_EQUAL,
+            SKIP_NEXT_IF_KEY_PRESSED, SKIP_NEXT_IF_KEY_NOT_PRESSED, WAIT_FOR_KEY_PRESS_AND_STORE_VALUE_IN_REGISTER,
+            STORE_BCD_REPRESENTATION_IN_MEMORY, STORE_DATA_REGISTERS_IN_MEMORY);
+    private final InstructionUnit instructionUnit;
+    private final BasicBlock[] blocks = new BasicBlock[MEMORY_SIZE];
+    private final long[] codeBytes = new long[MEMORY_SIZE / 64];
+
+    /**
+     * Returns the block starting at the supplied address, decoding it first if it is not cached.
+     */
+    public BasicBlock block(int address) {
+        int startAddress = address & FIT_12BIT_ADDRESS;
+        BasicBlock block = blocks[startAddress];
+        if (block == null) {
+            block = decodeBlock(startAddress);
+            blocks[startAddress] = block;
+            markCode(startAddress, block.byteLength());
+        }
+        return block;
+    }
+
+    /**
+     * Returns the fused form of the block, fusing it first if it has not been fused. The bytes of the instructions
+     * following the block that were fused into it are marked as code of the block.
+     */
+    public FusedInstruction[] fusedInstructions(BasicBlock block) {
+        FusedInstruction[] fusedInstructions = block.getFusedInstructions();
+        if (fusedInstructions == null) {
+            fusedInstructions = instructionUnit.fuseBlock(block);
+            int fusedLength = 0;
+            for (FusedInstruction step : fusedInstructions) {
+                fusedLength += step.size() * 2;
+            }
+            block.setFusedInstructions(fusedInstructions, fusedLength);
+            markCode(block.getStartAddress(), block.codeLength());
+        }
+        return fusedInstructions;
+    }
+
+    private BasicBlock decodeBlock(int startAddress) {
+        List<DecodedInstruction> instructions = new ArrayList<>();
+        int address = startAddress;
+        while (instructions.size() < MAX_BLOCK_INSTRUCTIONS && address < FIT_12BIT_ADDRESS) {
+            DecodedInstruction instruction = instructionUnit.decodeInstruction(address);
+            instructions.add(instruction);
+            if (instruction.getOperation() == null || blockTerminators.contains(instruction.getOperation())) {
+                break;
+            }
+            address += 2;
+        }
+        if (instructions.isEmpty()) {
+            instructions.add(instructionUnit.decodeInstruction(address));
+        }
+        return new BasicBlock(startAddress, instructions.toArray(new DecodedInstruction[instructions.size()]));
+    }
+
+    private void markCode(int startAddress, int length) {
+        for (int location = startAddress; location < startAddress + length; location++) {
+            int byteLocation = location & FIT_12BIT_ADDRESS;
+            codeBytes[byteLocation >>> 6] |= 1L << (byteLocation & 63);
+        }
+    }
+
+    @Override
+    public void written(int location, int length) {
+        for (int i = 0; i < length; i++) {
+            int byteLocation = (location + i) & FIT_12BIT_ADDRESS;
+            long bit = 1L << (byteLocation & 63);
+            if ((codeBytes[byteLocation >>> 6] & bit) != 0) {
+                invalidateBlocksContaining(byteLocation);
+                codeBytes[byteLocation >>> 6] &= ~bit;
+            }
+        }
+    }
+
+    private void invalidateBlocksContaining(int byteLocation) {
+        for (int offset = 0; offset < MAX_CODE_BYTES; offset++) {
+            int startAddress = (byteLocation - offset) & FIT_12BIT_ADDRESS;
+            BasicBlock block = blocks[startAddress];
+            if (block != null && offset < block.codeLength()) {
+                blocks[startAddress] = null;
+            }
+        }
+    }
+
+    public boolean isCached(int address) {
+        return blocks[address & FIT_12BIT_ADDRESS] != null;
+    }
+}
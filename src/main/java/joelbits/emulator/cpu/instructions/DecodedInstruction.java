@@ -0,0 +1,43 @@
+package joelbits.emulator.cpu.instructions;
+
+import static joelbits.emulator.utils.Chip8Util.FIT_8BIT_REGISTER;
+import lombok.Getter;
+
+/**
+ * An instruction that has been fetched and decoded once, so that it can be executed any number of times without
+ * extracting its operands again. The operation is null if the opcode is not a valid instruction.
+ */
+@Getter
+public final class DecodedInstruction {
+    private final int opcode;
+    private final Instructions operation;
+    private final int registerLocationX;
+    private final int registerLocationY;
+    private final int address;
+    private final int lowestByte;
+
+    public DecodedInstruction(int opcode) {
+        this.opcode = opcode;
+        operation = Instructions.decode(opcode);
+        registerLocationX = registerLocationX(opcode);
+        registerLocationY = registerLocationY(opcode);
+        address = address(opcode);
+        lowestByte = lowestByte(opcode);
+    }
+
+    public static int registerLocationX(int opcode) {
+        return (opcode & 0x0F00) >> 8;
+    }
+
+    public static int registerLocationY(int opcode) {
+        return (opcode & 0x00F0) >> 4;
+    }
+
+    public static int address(int opcode) {
+        return opcode & 0x0FFF;
+    }
+
+    public static int lowestByte(int opcode) {
+        return opcode & FIT_8BIT_REGISTER;
+    }
+}
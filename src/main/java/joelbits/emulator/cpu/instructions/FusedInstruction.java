@@ -0,0 +1,28 @@
+package joelbits.emulator.cpu.instructions;
+
+import lombok.Getter;
+
+/**
+ * One step of a fused block. A step is either a superinstruction made up of the decoded instructions it replaces, or a
+ * single decoded instruction, in which case the superinstruction is null.
+ */
+public final class FusedInstruction {
+    @Getter private final Superinstructions superinstruction;
+    private final DecodedInstruction[] parts;
+
+    public FusedInstruction(Superinstructions superinstruction, DecodedInstruction... parts) {
+        this.superinstruction = superinstruction;
+        this.parts = parts;
+    }
+
+    public DecodedInstruction part(int index) {
+        return parts[index];
+    }
+
+    /**
+     * The largest number of instructions the step executes.
+     */
+    public int size() {
+        return parts.length;
+    }
+}
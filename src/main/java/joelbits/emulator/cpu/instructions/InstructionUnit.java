@@ -1,31 +1,66 @@
 package joelbits.emulator.cpu.instructions;
 
+import static joelbits.emulator.cpu.instructions.Instructions.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import joelbits.emulator.memory.MMU;
-import static joelbits.emulator.utils.Chip8Util.FIT_8BIT_REGISTER;
-import lombok.AccessLevel;
-import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
-@Getter
 public class InstructionUnit {
-    @Getter(AccessLevel.NONE) private final MMU mmu;
-    private int registerLocationX;
-    private int registerLocationY;
-    private int address;
-    private int lowestByte;
+    private final MMU mmu;
 
-    public int fetchNextInstruction(int programCounter) {
-        int instruction = mmu.readPrimaryMemory(programCounter) << 8 | mmu.readPrimaryMemory(programCounter + 1);
-        extractInstructionInformation(instruction);
+    public int fetchInstruction(int programCounter) {
+        return mmu.readPrimaryMemory(programCounter) << 8 | mmu.readPrimaryMemory(programCounter + 1);
+    }
+
+    /**
+     * Fetches and decodes the instruction at the supplied location into a record. Only used when building blocks, so
+     * that executing single instructions does not allocate.
+     */
+    public DecodedInstruction decodeInstruction(int programCounter) {
+        return new DecodedInstruction(fetchInstruction(programCounter));
+    }
 
-        return instruction;
+    /**
+     * Recognizes the superinstructions in a block and returns the block as a sequence of fused steps. A block ending
+     * with a 3xkk or 4xkk skip is fused with the 1nnn jump following the block, if there is one, since the jump is
+     * the instruction being skipped.
+     */
+    public FusedInstruction[] fuseBlock(BasicBlock block) {
+        List<FusedInstruction> steps = new ArrayList<>();
+        DecodedInstruction jump = decodeInstruction(block.getStartAddress() + block.byteLength());
+        boolean endsWithSkipOrJump = isValueSkip(block.instruction(block.size() - 1)) && jump.getOperation() == JUMP_TO_LOCATION;
+        int i = 0;
+        while (i < block.size()) {
+            DecodedInstruction instruction = block.instruction(i);
+            DecodedInstruction next = i + 1 < block.size() ? block.instruction(i + 1) : null;
+            if (endsWithSkipOrJump && i == block.size() - 1) {
+                steps.add(new FusedInstruction(Superinstructions.SKIP_OR_JUMP, instruction, jump));
+            } else if (endsWithSkipOrJump && i == block.size() - 2 && instruction.getOperation() == ADD_BYTE_TO_REGISTER
+                    && instruction.getRegisterLocationX() == next.getRegisterLocationX()) {
+                steps.add(new FusedInstruction(Superinstructions.ADD_AND_SKIP_OR_JUMP, instruction, next, jump));
+                i++;
+            } else if (next != null && instruction.getOperation() == LOAD_BYTE_TO_REGISTER
+                    && next.getOperation() == LOAD_ADDRESS_TO_INDEX_REGISTER) {
+                steps.add(new FusedInstruction(Superinstructions.LOAD_BYTE_AND_INDEX, instruction, next));
+                i++;
+            } else if (next != null && instruction.getOperation() == ADD_DATA_REGISTER_AND_INDEX_REGISTER
+                    && next.getOperation() == LOAD_FROM_MEMORY_TO_DATA_REGISTERS) {
+                steps.add(new FusedInstruction(Superinstructions.ADD_TO_INDEX_AND_LOAD_REGISTERS, instruction, next));
+                i++;
+            } else {
+                steps.add(new FusedInstruction(null, instruction));
+            }
+            i++;
+        }
+        return steps.toArray(new FusedInstruction[steps.size()]);
     }
 
-    private void extractInstructionInformation(int instruction) {
-        registerLocationX = (instruction & 0x0F00) >> 8;
-        registerLocationY = (instruction & 0x00F0) >> 4;
-        address = instruction & 0x0FFF;
-        lowestByte = instruction & FIT_8BIT_REGISTER;
+    private boolean isValueSkip(DecodedInstruction instruction) {
+        return instruction.getOperation() == SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL
+                || instruction.getOperation() == SKIP_NEXT_INSTRUCTION_IF_VALUES_NOT_EQUAL;
     }
 }
@@ -40,33 +40,68 @@ public enum Instructions {
 	LOAD_FROM_MEMORY_TO_DATA_REGISTERS("Fx65");
 	
 	private static final Logger log = LoggerFactory.getLogger(Instructions.class);
+	private static final Instructions[] decodeTable = createDecodeTable();
 	private final String opcode;
 	
 	Instructions(String opcode) {
 		this.opcode = opcode;
 	}
-	
-	public static Instructions getInstruction(String opcode) {
+
+	/**
+	 * Every possible 16-bit opcode is matched against the instruction patterns once, so that decoding an opcode
+	 * at runtime is a single array lookup. Opcodes without a matching instruction are left as null.
+	 */
+	private static Instructions[] createDecodeTable() {
+		Instructions[] table = new Instructions[0x10000];
 		for (Instructions instruction : Instructions.values()) {
-			if (isEqual(instruction.opcode, opcode)) {
-				return instruction;
+			int mask = instruction.mask();
+			int pattern = instruction.pattern();
+			for (int opcode = 0; opcode < table.length; opcode++) {
+				if ((opcode & mask) == pattern && table[opcode] == null) {
+					table[opcode] = instruction;
+				}
 			}
 		}
-		log.error(opcode + " is not a valid opcode");
-		throw new IllegalArgumentException(opcode + " is not a valid opcode");
+		return table;
+	}
+
+	/**
+	 * Nibbles marked with 'x' are operands and are ignored when matching an opcode.
+	 */
+	private int mask() {
+		int mask = 0;
+		for (int i = 0; i < opcode.length(); i++) {
+			mask = (mask << 4) | (opcode.charAt(i) == 'x' ? 0x0 : 0xF);
+		}
+		return mask;
+	}
+
+	private int pattern() {
+		return Integer.parseInt(opcode.replace('x', '0'), 16);
+	}
+
+	/**
+	 * Returns the instruction corresponding to the supplied opcode, or null if the opcode is not a valid instruction.
+	 */
+	public static Instructions decode(int opcode) {
+		return decodeTable[opcode & 0xFFFF];
 	}
 	
-	private static boolean isEqual(String instruction, String opcode) {
-		if (instruction.length() != opcode.length()) {
-			log.error(instruction + " and " + opcode + " differs in length");
-			throw new IllegalArgumentException(instruction + " and " + opcode + " differs in length");
+	public static Instructions getInstruction(String opcode) {
+		if (opcode.length() != 4) {
+			log.error(opcode + " differs in length from the instruction opcodes");
+			throw new IllegalArgumentException(opcode + " differs in length from the instruction opcodes");
 		}
-		for (int i = 0; i < opcode.length(); i++) {
-			char instructionChar = instruction.charAt(i);
-			if (instructionChar != 'x' && instructionChar != opcode.charAt(i)) {
-				return false;
-			}
+		Instructions instruction = null;
+		try {
+			instruction = decode(Integer.parseInt(opcode, 16));
+		} catch (NumberFormatException e) {
+			log.error(e.toString(), e);
+		}
+		if (instruction == null) {
+			log.error(opcode + " is not a valid opcode");
+			throw new IllegalArgumentException(opcode + " is not a valid opcode");
 		}
-		return true;
+		return instruction;
 	}
 }
@@ -0,0 +1,24 @@
+package joelbits.emulator.cpu.instructions;
+
+/**
+ * Sequences of instructions that are executed by one fused handler. The handlers have exactly the same effect as the
+ * separate instructions, including VF and the program counter.
+ */
+public enum Superinstructions {
+	/**
+	 * 3xkk or 4xkk followed by 1nnn. Either skips the jump or jumps.
+	 */
+	SKIP_OR_JUMP,
+	/**
+	 * 6xkk followed by Annn.
+	 */
+	LOAD_BYTE_AND_INDEX,
+	/**
+	 * Fx1E followed by Fy65.
+	 */
+	ADD_TO_INDEX_AND_LOAD_REGISTERS,
+	/**
+	 * 7xkk followed by 3xkk or 4xkk on the same register and 1nnn, i.e., a loop counter.
+	 */
+	ADD_AND_SKIP_OR_JUMP
+}
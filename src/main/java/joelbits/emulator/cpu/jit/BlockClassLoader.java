@@ -0,0 +1,16 @@
+package joelbits.emulator.cpu.jit;
+
+/**
+ * Defines the class of a single compiled block. Nothing but the class refers to its loader, so the class and the loader
+ * can be unloaded as soon as the compiled block is no longer referred to.
+ */
+final class BlockClassLoader extends ClassLoader {
+
+    BlockClassLoader() {
+        super(CompiledBlock.class.getClassLoader());
+    }
+
+    Class<?> defineBlock(String className, byte[] classFile) {
+        return defineClass(className, classFile, 0, classFile.length);
+    }
+}
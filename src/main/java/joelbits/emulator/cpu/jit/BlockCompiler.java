@@ -0,0 +1,426 @@
+package joelbits.emulator.cpu.jit;
+
+import static joelbits.emulator.utils.Chip8Util.*;
+
+import java.io.ByteArrayOutputStream;
+
+import joelbits.emulator.cpu.instructions.BasicBlock;
+import joelbits.emulator.cpu.instructions.DecodedInstruction;
+import joelbits.emulator.cpu.instructions.Instructions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiles basic blocks to JVM bytecode. Every compiled block is a class of its own implementing CompiledBlock, whose
+ * execute method calls the RegisterFile directly and is free of branches, so the JIT of the JVM can compile it well.
+ *
+ * Only blocks of register and index operations, optionally ending with a jump or a skip, are compiled. Blocks with any
+ * other instruction, e.g., drawing, waiting for a key, timers or memory access, return null and are left to the
+ * interpreter. A compiled block never writes to memory, so it can not modify its own code.
+ *
+ * Every compiled class is defined by a class loader of its own, so the class is unloaded as soon as its block has been
+ * invalidated or the program has been replaced, instead of living as long as the compiler.
+ */
+public final class BlockCompiler {
+    private static final Logger log = LoggerFactory.getLogger(BlockCompiler.class);
+    private static final String PACKAGE = "joelbits/emulator/cpu/jit/";
+    private static final String REGISTER_FILE = "joelbits/emulator/cpu/registers/RegisterFile";
+    private static final int REGISTERS_LOCAL = 1;
+    private static final int VALUE_LOCAL = 2;
+    private static final int SUM_LOCAL = 3;
+    private static final int MAX_STACK = 10;
+    private static final int MAX_LOCALS = 4;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ILOAD = 0x15;
+    private static final int ALOAD = 0x19;
+    private static final int ISTORE = 0x36;
+    private static final int DUP = 0x59;
+    private static final int IADD = 0x60;
+    private static final int ISUB = 0x64;
+    private static final int INEG = 0x74;
+    private static final int ISHL = 0x78;
+    private static final int ISHR = 0x7A;
+    private static final int IUSHR = 0x7C;
+    private static final int IAND = 0x7E;
+    private static final int IOR = 0x80;
+    private static final int IXOR = 0x82;
+    private static final int INVOKEVIRTUAL = 0xB6;
+    private static final int RETURN = 0xB1;
+    private int compiledBlocks;
+
+    /**
+     * Returns the compiled block, or null if the block contains instructions that are only interpreted.
+     */
+    public CompiledBlock compile(BasicBlock block) {
+        if (!isCompilable(block)) {
+            return null;
+        }
+        String className = PACKAGE + "Block" + Integer.toHexString(block.getStartAddress()).toUpperCase() + "_" + compiledBlocks++;
+        ClassFileWriter classFile = new ClassFileWriter();
+        byte[] code = new MethodCode(classFile).translate(block);
+        byte[] bytes = classFile.write(className, PACKAGE + "CompiledBlock", "execute", "(L" + REGISTER_FILE + ";)V",
+                code, MAX_STACK, MAX_LOCALS);
+        try {
+            return (CompiledBlock) new BlockClassLoader().defineBlock(className.replace('/', '.'), bytes).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            log.warn("Could not compile block at " + Integer.toHexString(block.getStartAddress()), e);
+            return null;
+        }
+    }
+
+    public int getCompiledBlocks() {
+        return compiledBlocks;
+    }
+
+    private boolean isCompilable(BasicBlock block) {
+        for (int i = 0; i < block.size(); i++) {
+            Instructions operation = block.instruction(i).getOperation();
+            boolean last = i == block.size() - 1;
+            if (operation == null || !(isRegisterOperation(operation) || last && isBranch(operation))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isRegisterOperation(Instructions operation) {
+        switch (operation) {
+            case LOAD_BYTE_TO_REGISTER:
+            case ADD_BYTE_TO_REGISTER:
+            case LOAD_REGISTER_VALUE_TO_REGISTER:
+            case BITWISE_OR:
+            case BITWISE_AND:
+            case BITWISE_XOR:
+            case ADD_REGISTER_VALUE_TO_REGISTER:
+            case SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
+            case SHIFT_REGISTER_VALUE_RIGHT:
+            case NEGATED_SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
+            case SHIFT_REGISTER_VALUE_LEFT:
+            case LOAD_ADDRESS_TO_INDEX_REGISTER:
+            case ADD_DATA_REGISTER_AND_INDEX_REGISTER:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isBranch(Instructions operation) {
+        switch (operation) {
+            case JUMP_TO_LOCATION:
+            case SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL:
+            case SKIP_NEXT_INSTRUCTION_IF_VALUES_NOT_EQUAL:
+            case SKIP_NEXT_INSTRUCTION_IF_REGISTERS_EQUAL:
+            case SKIP_NEXT_IF_REGISTERS_NOT_EQUAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Translates the instructions of a block to the code of the execute method. Each instruction has the same effect
+     * as the corresponding ALU operation, including the order in which VF and the target register are written. The
+     * program counter is only written once, at the end of the block.
+     */
+    private static final class MethodCode {
+        private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+        private final int read;
+        private final int write;
+        private final int readIndex;
+        private final int writeIndex;
+        private final int readProgramCounter;
+        private final int writeProgramCounter;
+        private final ClassFileWriter classFile;
+
+        MethodCode(ClassFileWriter classFile) {
+            this.classFile = classFile;
+            read = classFile.methodReference(REGISTER_FILE, "read", "(I)I");
+            write = classFile.methodReference(REGISTER_FILE, "write", "(II)V");
+            readIndex = classFile.methodReference(REGISTER_FILE, "readIndex", "()I");
+            writeIndex = classFile.methodReference(REGISTER_FILE, "writeIndex", "(I)V");
+            readProgramCounter = classFile.methodReference(REGISTER_FILE, "readProgramCounter", "()I");
+            writeProgramCounter = classFile.methodReference(REGISTER_FILE, "writeProgramCounter", "(I)V");
+        }
+
+        byte[] translate(BasicBlock block) {
+            int last = block.size() - 1;
+            for (int i = 0; i < last; i++) {
+                translateRegisterOperation(block.instruction(i));
+            }
+            DecodedInstruction lastInstruction = block.instruction(last);
+            if (lastInstruction.getOperation() == Instructions.JUMP_TO_LOCATION) {
+                registers();
+                push(lastInstruction.getAddress());
+                invoke(writeProgramCounter);
+            } else if (isBranch(lastInstruction.getOperation())) {
+                advanceProgramCounter(block.byteLength(), lastInstruction);
+            } else {
+                translateRegisterOperation(lastInstruction);
+                advanceProgramCounter(block.byteLength(), null);
+            }
+            code.write(RETURN);
+            return code.toByteArray();
+        }
+
+        private void translateRegisterOperation(DecodedInstruction instruction) {
+            int x = instruction.getRegisterLocationX();
+            int y = instruction.getRegisterLocationY();
+            switch (instruction.getOperation()) {
+                case LOAD_BYTE_TO_REGISTER:
+                    beginWrite(x);
+                    push(instruction.getLowestByte());
+                    invoke(write);
+                    break;
+                case ADD_BYTE_TO_REGISTER:
+                    beginWrite(x);
+                    readRegister(x);
+                    push(instruction.getLowestByte());
+                    op(IADD);
+                    mask(FIT_8BIT_REGISTER);
+                    invoke(write);
+                    break;
+                case LOAD_REGISTER_VALUE_TO_REGISTER:
+                    beginWrite(x);
+                    readRegister(y);
+                    invoke(write);
+                    break;
+                case BITWISE_OR:
+                    bitwise(x, y, IOR);
+                    break;
+                case BITWISE_AND:
+                    bitwise(x, y, IAND);
+                    break;
+                case BITWISE_XOR:
+                    bitwise(x, y, IXOR);
+                    break;
+                case ADD_REGISTER_VALUE_TO_REGISTER:
+                    storeRegister(y, VALUE_LOCAL);
+                    readRegister(x);
+                    load(VALUE_LOCAL);
+                    op(IADD);
+                    mask(FIT_16BIT_REGISTER);
+                    store(SUM_LOCAL);
+                    beginWrite(REGISTER_VF);
+                    load(SUM_LOCAL);
+                    push(8);
+                    op(IUSHR);
+                    invoke(write);
+                    beginWrite(x);
+                    load(SUM_LOCAL);
+                    mask(FIT_8BIT_REGISTER);
+                    invoke(write);
+                    break;
+                case SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
+                    storeRegister(y, VALUE_LOCAL);
+                    beginWrite(REGISTER_VF);
+                    load(VALUE_LOCAL);
+                    readRegister(x);
+                    op(ISUB);
+                    push(31);
+                    op(IUSHR);
+                    invoke(write);
+                    beginWrite(x);
+                    readRegister(x);
+                    load(VALUE_LOCAL);
+                    op(ISUB);
+                    mask(FIT_8BIT_REGISTER);
+                    invoke(write);
+                    break;
+                case NEGATED_SUBTRACT_REGISTER_VALUE_FROM_REGISTER:
+                    storeRegister(y, VALUE_LOCAL);
+                    beginWrite(REGISTER_VF);
+                    push(1);
+                    load(VALUE_LOCAL);
+                    readRegister(x);
+                    op(ISUB);
+                    push(31);
+                    op(IUSHR);
+                    op(ISUB);
+                    invoke(write);
+                    beginWrite(x);
+                    load(VALUE_LOCAL);
+                    readRegister(x);
+                    op(ISUB);
+                    mask(FIT_8BIT_REGISTER);
+                    invoke(write);
+                    break;
+                case SHIFT_REGISTER_VALUE_RIGHT:
+                    beginWrite(REGISTER_VF);
+                    readRegister(x);
+                    mask(1);
+                    invoke(write);
+                    beginWrite(x);
+                    readRegister(x);
+                    push(1);
+                    op(ISHR);
+                    invoke(write);
+                    break;
+                case SHIFT_REGISTER_VALUE_LEFT:
+                    beginWrite(REGISTER_VF);
+                    readRegister(x);
+                    push(7);
+                    op(ISHR);
+                    mask(1);
+                    invoke(write);
+                    beginWrite(x);
+                    readRegister(x);
+                    push(1);
+                    op(ISHL);
+                    mask(FIT_8BIT_REGISTER);
+                    invoke(write);
+                    break;
+                case LOAD_ADDRESS_TO_INDEX_REGISTER:
+                    registers();
+                    push(instruction.getAddress());
+                    invoke(writeIndex);
+                    break;
+                case ADD_DATA_REGISTER_AND_INDEX_REGISTER:
+                    storeRegister(x, VALUE_LOCAL);
+                    registers();
+                    invoke(readIndex);
+                    load(VALUE_LOCAL);
+                    op(IADD);
+                    mask(FIT_16BIT_REGISTER);
+                    store(SUM_LOCAL);
+                    beginWrite(REGISTER_VF);
+                    push(FIT_12BIT_ADDRESS);
+                    load(SUM_LOCAL);
+                    op(ISUB);
+                    push(31);
+                    op(IUSHR);
+                    invoke(write);
+                    registers();
+                    load(SUM_LOCAL);
+                    invoke(writeIndex);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Instruction " + instruction.getOperation() + " can not be compiled");
+            }
+        }
+
+        /**
+         * Writes the program counter of the instruction following the block, plus one more instruction if the block
+         * ends with a skip whose condition holds.
+         */
+        private void advanceProgramCounter(int blockLength, DecodedInstruction skip) {
+            registers();
+            registers();
+            invoke(readProgramCounter);
+            push(blockLength);
+            op(IADD);
+            if (skip != null) {
+                skipCondition(skip);
+                push(1);
+                op(ISHL);
+                op(IADD);
+            }
+            mask(FIT_16BIT_REGISTER);
+            invoke(writeProgramCounter);
+        }
+
+        /**
+         * Pushes 1 if the skip is taken and 0 otherwise. Two values are equal if their XOR is 0, which is the only
+         * value whose sign bit is clear both in itself and in its negation.
+         */
+        private void skipCondition(DecodedInstruction skip) {
+            readRegister(skip.getRegisterLocationX());
+            switch (skip.getOperation()) {
+                case SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL:
+                case SKIP_NEXT_INSTRUCTION_IF_VALUES_NOT_EQUAL:
+                    push(skip.getLowestByte());
+                    break;
+                default:
+                    readRegister(skip.getRegisterLocationY());
+                    break;
+            }
+            op(IXOR);
+            op(DUP);
+            op(INEG);
+            op(IOR);
+            push(31);
+            op(IUSHR);
+            if (skip.getOperation() == Instructions.SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL
+                    || skip.getOperation() == Instructions.SKIP_NEXT_INSTRUCTION_IF_REGISTERS_EQUAL) {
+                push(1);
+                op(IXOR);
+            }
+        }
+
+        private void bitwise(int x, int y, int operation) {
+            storeRegister(y, VALUE_LOCAL);
+            beginWrite(x);
+            readRegister(x);
+            load(VALUE_LOCAL);
+            op(operation);
+            invoke(write);
+        }
+
+        private void registers() {
+            code.write(ALOAD);
+            code.write(REGISTERS_LOCAL);
+        }
+
+        private void beginWrite(int register) {
+            registers();
+            push(register);
+        }
+
+        private void readRegister(int register) {
+            registers();
+            push(register);
+            invoke(read);
+        }
+
+        private void storeRegister(int register, int local) {
+            readRegister(register);
+            store(local);
+        }
+
+        private void load(int local) {
+            code.write(ILOAD);
+            code.write(local);
+        }
+
+        private void store(int local) {
+            code.write(ISTORE);
+            code.write(local);
+        }
+
+        private void mask(int mask) {
+            push(mask);
+            op(IAND);
+        }
+
+        private void op(int opcode) {
+            code.write(opcode);
+        }
+
+        private void invoke(int methodReference) {
+            code.write(INVOKEVIRTUAL);
+            writeShort(methodReference);
+        }
+
+        private void push(int value) {
+            if (value >= -1 && value <= 5) {
+                code.write(ICONST_0 + value);
+            } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+                code.write(BIPUSH);
+                code.write(value);
+            } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+                code.write(SIPUSH);
+                writeShort(value);
+            } else {
+                code.write(LDC_W);
+                writeShort(classFile.integer(value));
+            }
+        }
+
+        private void writeShort(int value) {
+            code.write(value >> 8);
+            code.write(value);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package joelbits.emulator.cpu.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a class file with a public no-argument constructor and a single public method implementing an interface
+ * method. Class file version 49 is used, so the JVM verifies the class without stack map frames.
+ */
+final class ClassFileWriter {
+    private static final int CLASS_FILE_VERSION = 49;
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int ALOAD_0 = 0x2A;
+    private static final int INVOKESPECIAL = 0xB7;
+    private static final int RETURN = 0xB1;
+    private final ByteArrayOutputStream constantPoolBytes = new ByteArrayOutputStream();
+    private final DataOutputStream constantPool = new DataOutputStream(constantPoolBytes);
+    private final Map<String, Integer> constants = new HashMap<>();
+    private int constantCount = 1;
+
+    int utf8(String value) {
+        return constant("U" + value, () -> {
+            constantPool.writeByte(CONSTANT_UTF8);
+            constantPool.writeUTF(value);
+        });
+    }
+
+    int integer(int value) {
+        return constant("I" + value, () -> {
+            constantPool.writeByte(CONSTANT_INTEGER);
+            constantPool.writeInt(value);
+        });
+    }
+
+    int classReference(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, () -> {
+            constantPool.writeByte(CONSTANT_CLASS);
+            constantPool.writeShort(name);
+        });
+    }
+
+    int methodReference(String owner, String name, String descriptor) {
+        int ownerClass = classReference(owner);
+        int methodName = utf8(name);
+        int methodDescriptor = utf8(descriptor);
+        int nameAndType = constant("N" + name + descriptor, () -> {
+            constantPool.writeByte(CONSTANT_NAME_AND_TYPE);
+            constantPool.writeShort(methodName);
+            constantPool.writeShort(methodDescriptor);
+        });
+        return constant("M" + owner + "." + name + descriptor, () -> {
+            constantPool.writeByte(CONSTANT_METHODREF);
+            constantPool.writeShort(ownerClass);
+            constantPool.writeShort(nameAndType);
+        });
+    }
+
+    private int constant(String key, ConstantWriter writer) {
+        Integer index = constants.get(key);
+        if (index == null) {
+            try {
+                writer.write();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            index = constantCount++;
+            constants.put(key, index);
+        }
+        return index;
+    }
+
+    /**
+     * Writes the class, where the implemented method has the supplied code, stack size and number of local variables.
+     */
+    byte[] write(String className, String interfaceName, String methodName, String methodDescriptor,
+                 byte[] code, int maxStack, int maxLocals) {
+        int thisClass = classReference(className);
+        int superClass = classReference("java/lang/Object");
+        int implemented = classReference(interfaceName);
+        int objectConstructor = methodReference("java/lang/Object", "<init>", "()V");
+        int constructorName = utf8("<init>");
+        int constructorDescriptor = utf8("()V");
+        int name = utf8(methodName);
+        int descriptor = utf8(methodDescriptor);
+        int codeAttribute = utf8("Code");
+
+        ByteArrayOutputStream classBytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(classBytes)) {
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_FILE_VERSION);
+            out.writeShort(constantCount);
+            out.write(constantPoolBytes.toByteArray());
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(implemented);
+            out.writeShort(0);
+            out.writeShort(2);
+            byte[] constructorCode = {ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectConstructor >> 8), (byte) objectConstructor, (byte) RETURN};
+            writeMethod(out, constructorName, constructorDescriptor, codeAttribute, constructorCode, 1, 1);
+            writeMethod(out, name, descriptor, codeAttribute, code, maxStack, maxLocals);
+            out.writeShort(0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return classBytes.toByteArray();
+    }
+
+    private void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                             byte[] code, int maxStack, int maxLocals) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + code.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private interface ConstantWriter {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,11 @@
+package joelbits.emulator.cpu.jit;
+
+import joelbits.emulator.cpu.registers.RegisterFile;
+
+/**
+ * A basic block that has been compiled to JVM bytecode. Executing it has the same effect on the registers as
+ * interpreting every instruction of the block, including leaving the program counter where the block ends.
+ */
+public interface CompiledBlock {
+    void execute(RegisterFile registers);
+}
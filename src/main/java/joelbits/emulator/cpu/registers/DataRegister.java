@@ -1,15 +0,0 @@
-package joelbits.emulator.cpu.registers;
-
-public final class DataRegister<T> implements Register<T> {
-	private T data;
-
-	@Override
-	public T read() {
-		return data;
-	}
-
-	@Override
-	public void write(T data) {
-		this.data = data;
-	}
-}
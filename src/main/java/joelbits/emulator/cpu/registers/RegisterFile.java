@@ -0,0 +1,90 @@
+package joelbits.emulator.cpu.registers;
+
+import static joelbits.emulator.utils.Chip8Util.NUMBER_OF_REGISTERS;
+
+/**
+ * Holds the CHIP-8 registers as primitive values. The data registers V0 to VF are kept in an int array, while the index
+ * register (I) and the program counter (PC) are kept in int fields. The ALU, CPU and GPU operate on these values directly,
+ * the Register views are only meant to be used by tests and tools.
+ */
+public final class RegisterFile {
+	private final int[] dataRegisters = new int[NUMBER_OF_REGISTERS + 1];
+	private int indexRegister;
+	private int programCounter;
+
+	public int read(int register) {
+		return dataRegisters[register];
+	}
+
+	public void write(int register, int data) {
+		dataRegisters[register] = data;
+	}
+
+	public int readIndex() {
+		return indexRegister;
+	}
+
+	public void writeIndex(int data) {
+		indexRegister = data;
+	}
+
+	public int readProgramCounter() {
+		return programCounter;
+	}
+
+	public void writeProgramCounter(int data) {
+		programCounter = data;
+	}
+
+	public void clearDataRegisters() {
+		for (int i = 0; i < dataRegisters.length; i++) {
+			dataRegisters[i] = 0;
+		}
+	}
+
+	public int size() {
+		return dataRegisters.length;
+	}
+
+	public Register<Integer> dataRegister(int register) {
+		return new Register<Integer>() {
+			@Override
+			public Integer read() {
+				return dataRegisters[register];
+			}
+
+			@Override
+			public void write(Integer data) {
+				dataRegisters[register] = data;
+			}
+		};
+	}
+
+	public Register<Integer> indexRegister() {
+		return new Register<Integer>() {
+			@Override
+			public Integer read() {
+				return indexRegister;
+			}
+
+			@Override
+			public void write(Integer data) {
+				indexRegister = data;
+			}
+		};
+	}
+
+	public Register<Integer> programCounter() {
+		return new Register<Integer>() {
+			@Override
+			public Integer read() {
+				return programCounter;
+			}
+
+			@Override
+			public void write(Integer data) {
+				programCounter = data;
+			}
+		};
+	}
+}
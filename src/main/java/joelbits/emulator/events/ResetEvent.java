@@ -1,10 +1,19 @@
 package joelbits.emulator.events;
 
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.TypeLiteral;
 import javafx.event.Event;
 import javafx.event.EventHandler;
-import joelbits.emulator.Chip8;
+import javafx.scene.input.KeyCode;
 import joelbits.emulator.Emulator;
+import joelbits.emulator.EmulatorFactory;
 import joelbits.emulator.cache.EmulatorCache;
+import joelbits.emulator.config.InterpreterConfig;
+import joelbits.emulator.input.Input;
+import joelbits.emulator.output.Audio;
+import joelbits.emulator.output.Chip8Screen;
+import joelbits.emulator.settings.GameSettings;
 
 public class ResetEvent implements EventHandler {
     @Override
@@ -12,9 +21,19 @@ public class ResetEvent implements EventHandler {
         if (EmulatorCache.getInstance().hasEmulator()) {
             EmulatorCache.getInstance().getEmulator().reset();
         } else if (EmulatorCache.getInstance().hasGraphicsContext()) {
-            Emulator emulator = new Chip8();
+            Emulator emulator = createEmulator();
             EmulatorCache.getInstance().setEmulator(emulator);
             emulator.reset();
         }
     }
+
+    private Emulator createEmulator() {
+        Injector injector = EmulatorCache.getInstance().getInjector();
+        InterpreterConfig config = injector.getInstance(InterpreterConfig.class);
+
+        return EmulatorFactory.createChip8(injector.getInstance(GameSettings.class),
+                injector.getInstance(Key.get(new TypeLiteral<Input<Integer, KeyCode>>() {})),
+                injector.getInstance(Audio.class),
+                new Chip8Screen(EmulatorCache.getInstance().getGraphicsContext(), config.screenWidth(), config.screenHeight(), config.pixelSize()));
+    }
 }
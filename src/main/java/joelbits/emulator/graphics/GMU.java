@@ -1,40 +1,30 @@
 package joelbits.emulator.graphics;
 
-import com.google.inject.Inject;
-import com.google.inject.name.Named;
-import joelbits.emulator.cache.EmulatorCache;
-import joelbits.emulator.config.InterpreterConfig;
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.flags.ClearFlag;
+import joelbits.emulator.flags.DrawFlag;
 import joelbits.emulator.flags.Flag;
 import joelbits.emulator.memory.BufferFactory;
-import joelbits.emulator.memory.Memory;
-import joelbits.emulator.output.Chip8Screen;
+import joelbits.emulator.memory.DisplayBuffer;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.metrics.EmulatorMetrics;
 import joelbits.emulator.output.Screen;
 
-import java.util.List;
-
 /**
  * Graphics Management Unit. Handles tasks related to graphics.
  */
 public class GMU {
     private final GPU gpu;
-    private final Memory displayBuffer;
+    private final DisplayBuffer displayBuffer;
     private final Screen<Integer> screen;
-    @Inject
-    @Named("clear")
-    private Flag clearFlag;
-    @Inject
-    @Named("draw")
-    private Flag drawFlag;
-    @Inject
-    private InterpreterConfig config;
-
-    public GMU() {
-        EmulatorCache.getInstance().getInjector().injectMembers(this);
+    private final Flag clearFlag = new ClearFlag();
+    private final Flag drawFlag = new DrawFlag();
+    private EmulatorMetrics metrics;
 
-        displayBuffer = BufferFactory.createDisplayBuffer(config.screenWidth(), config.screenHeight());
-        screen = new Chip8Screen(config.screenWidth(), config.screenHeight(), config.pixelSize());
-        gpu = new GPU(displayBuffer, BufferFactory.createDirtyBuffer(), screen, drawFlag, clearFlag);
+    public GMU(Screen<Integer> screen) {
+        this.screen = screen;
+        displayBuffer = BufferFactory.createDisplayBuffer(screen.getWidth(), screen.getHeight());
+        gpu = new GPU(displayBuffer, BufferFactory.createDirtyBuffer(displayBuffer.size()), screen, drawFlag, clearFlag);
     }
 
     public void clearScreen() {
@@ -45,14 +35,72 @@ public class GMU {
         gpu.clearBuffers();
     }
 
-    public void drawSprite(List<Register<Integer>> dataRegisters, int[] primaryMemory, Register<Integer> indexRegister, int instruction) {
-        gpu.drawSprite(dataRegisters, primaryMemory, indexRegister, instruction);
+    public void drawSprite(RegisterFile registers, MMU mmu, int instruction) {
+        int flippedPixels = gpu.drawSprite(registers, mmu, instruction);
+        if (metrics != null) {
+            metrics.spriteDrawn(flippedPixels);
+        }
     }
 
     public void drawScreen() {
         gpu.drawScreen();
     }
 
+    /**
+     * Brings the screen up to date with the display buffer and presents it, if anything has changed since the
+     * previous frame.
+     */
+    public void updateScreen() {
+        if (!clearFlag.isActive() && !drawFlag.isActive()) {
+            return;
+        }
+        if (clearFlag.isActive()) {
+            clearScreen();
+            toggleClearFlag();
+        }
+        if (drawFlag.isActive()) {
+            if (metrics != null && metrics.screenDrawn()) {
+                long start = System.nanoTime();
+                drawScreen();
+                metrics.screenDrawTimed(System.nanoTime() - start);
+            } else {
+                drawScreen();
+            }
+            toggleDrawFlag();
+        }
+        screen.render();
+    }
+
+    /**
+     * Sets the metrics counting drawn sprites and screens, or null to not count them.
+     */
+    public void setMetrics(EmulatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public void snapshotDisplay(long[] destination) {
+        displayBuffer.snapshot(destination);
+    }
+
+    /**
+     * Replaces the display buffer, after which the pixels that changed are redrawn on the next update.
+     */
+    public void restoreDisplay(long[] source) {
+        gpu.restoreDisplay(source);
+    }
+
+    public int displayWords() {
+        return displayBuffer.words();
+    }
+
+    public void dispose() {
+        screen.dispose();
+    }
+
+    public int readPixel(int x, int y) {
+        return displayBuffer.read(x + y * screen.getWidth());
+    }
+
     public boolean isClearFlagActive() {
         return clearFlag.isActive();
     }
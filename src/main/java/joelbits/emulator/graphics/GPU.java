@@ -1,17 +1,17 @@
 package joelbits.emulator.graphics;
 
-import java.util.List;
-
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import joelbits.emulator.flags.Flag;
-import joelbits.emulator.memory.Memory;
+import joelbits.emulator.memory.DirtyBuffer;
+import joelbits.emulator.memory.DisplayBuffer;
+import joelbits.emulator.memory.MMU;
 import joelbits.emulator.output.Screen;
 import lombok.RequiredArgsConstructor;
 
 @RequiredArgsConstructor
 public class GPU {
-	private final Memory displayBuffer;
-	private final Memory dirtyBuffer;
+	private final DisplayBuffer displayBuffer;
+	private final DirtyBuffer dirtyBuffer;
 	private final Screen<Integer> screen;
 	private final Flag drawFlag;
 	private final Flag clearFlag;
@@ -21,13 +21,13 @@ public class GPU {
 	 * before, only dirty sprites are updated. The dirty buffer contains information about which sprites has
 	 * had their state changed and thus should be redrawn.
 	 */
-	void drawScreen() {
-		for (int i = 0; i < dirtyBuffer.size(); i++) {
-			int dirtyLocation = dirtyBuffer.read(i);
+	public void drawScreen() {
+		for (int dirtyLocation = dirtyBuffer.nextDirty(0); dirtyLocation >= 0; dirtyLocation = dirtyBuffer.nextDirty(dirtyLocation + 1)) {
 			int x = dirtyLocation % screen.getWidth();
 			int y = dirtyLocation / screen.getWidth();
 			updateSprite(displayBuffer.read(dirtyLocation), x, y);
 		}
+		dirtyBuffer.clear();
 	}
 
 	/**
@@ -46,36 +46,48 @@ public class GPU {
 		}
 	}
 
-	public void drawSprite(List<Register<Integer>> dataRegisters, int[] primaryMemory, Register<Integer> indexRegister, int instruction) {
+	/**
+	 * Draws a sprite of n rows by XORing each sprite row onto the display buffer in one operation. Data register VF is set to 1
+	 * if any visible pixel is erased by the sprite, and 0 otherwise. The sprite rows are read in place from primary memory.
+	 *
+	 * @return	the number of pixels flipped by the sprite
+	 */
+	public int drawSprite(RegisterFile registers, MMU mmu, int instruction) {
 		int nibble = instruction & 0x000F;
-		int registerLocationX = (instruction & 0x0F00) >> 8;
-		int registerLocationY = (instruction & 0x00F0) >> 4;
-		
-		dataRegisters.get(0xF).write(0);
+		int coordinateX = registers.read((instruction & 0x0F00) >> 8);
+		int coordinateY = registers.read((instruction & 0x00F0) >> 4);
+
+		int collision = 0;
+		int flippedPixels = 0;
 		for (int row = 0; row < nibble; row++) {
-			int memoryByte = primaryMemory[indexRegister.read() + row];
-			int coordinateY = dataRegisters.get(registerLocationY).read() + row;
-			for (int column = 0; column < 8; column++) {
-				if ((memoryByte & (0x80 >> column)) != 0) {
-					int coordinateX = dataRegisters.get(registerLocationX).read() + column;
-					updateBuffers(dataRegisters, coordinateX, coordinateY);
-				}
+			int memoryByte = mmu.readPrimaryMemory(registers.readIndex() + row);
+			flippedPixels += Integer.bitCount(memoryByte);
+			if (displayBuffer.drawSpriteRow(coordinateX, coordinateY + row, memoryByte)) {
+				collision = 1;
 			}
+			markDirty(memoryByte, coordinateX, coordinateY + row);
 		}
+		registers.write(0xF, collision);
 		activateDrawFlag();
+		return flippedPixels;
 	}
 
-	private void updateBuffers(List<Register<Integer>> dataRegisters, int coordinateX, int coordinateY) {
-		int data = displayBuffer.read(convertToIndex(coordinateX, coordinateY));
-		if (data != 0) {
-			dataRegisters.get(0xF).write(1);
-		}
-		displayBuffer.write(convertToIndex(coordinateX, coordinateY), data^1);
-		dirtyBuffer.write(convertToIndex(coordinateX, coordinateY), data^1);
-	}
+	/**
+	 * Marks the pixels flipped by a sprite row as dirty. A row of the display is stored in whole words of the dirty buffer,
+	 * so the row is marked with at most two words, the second one when the sprite row wraps around to the next word.
+	 */
+	private void markDirty(int memoryByte, int coordinateX, int coordinateY) {
+		int width = displayBuffer.getWidth();
+		int column = coordinateX % width;
+		int rowStart = (coordinateY % displayBuffer.getHeight()) * width / Long.SIZE;
+		int word = column / Long.SIZE;
+		int offset = column % Long.SIZE;
+		long sprite = (long) (memoryByte & 0xFF) << (Long.SIZE - 8);
 
-	private int convertToIndex(int coordinateX, int coordinateY) {
-		return (coordinateX % screen.getWidth()) + ((coordinateY % screen.getWidth()) * screen.getWidth());
+		dirtyBuffer.markWord(rowStart + word, sprite >>> offset);
+		if (offset > Long.SIZE - 8) {
+			dirtyBuffer.markWord(rowStart + (word + 1) % (width / Long.SIZE), sprite << (Long.SIZE - offset));
+		}
 	}
 
 	/**
@@ -88,6 +100,23 @@ public class GPU {
 		}
 	}
 
+	/**
+	 * Replaces the display with the packed pixels of the source. Only the pixels that differ from the current display are
+	 * marked as dirty, so that stepping between similar states, e.g., when rewinding, only redraws what has changed.
+	 */
+	public void restoreDisplay(long[] source) {
+		long changed = 0;
+		for (int word = 0; word < source.length; word++) {
+			long pixels = displayBuffer.word(word) ^ source[word];
+			dirtyBuffer.markWord(word, pixels);
+			changed |= pixels;
+		}
+		displayBuffer.restore(source);
+		if (changed != 0) {
+			activateDrawFlag();
+		}
+	}
+
 	public void clearBuffers() {
 		dirtyBuffer.clear();
 		displayBuffer.clear();
@@ -1,6 +1,7 @@
 package joelbits.emulator.gui;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -24,18 +25,26 @@ import javafx.scene.layout.BorderPane;
 import javafx.scene.paint.Color;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
+import joelbits.emulator.Emulator;
 import joelbits.emulator.cache.EmulatorCache;
 import joelbits.emulator.events.ResetEvent;
 import joelbits.emulator.gui.components.*;
 import joelbits.emulator.config.InterpreterConfig;
 import joelbits.emulator.input.Input;
 import joelbits.emulator.modules.InterpreterModule;
+import joelbits.emulator.movie.Movie;
+import joelbits.emulator.movie.Movies;
 import joelbits.emulator.output.Audio;
 import joelbits.emulator.settings.GameSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class GraphicalUserInterface extends Application {
+	private static final Logger log = LoggerFactory.getLogger(GraphicalUserInterface.class);
+	private static final KeyCode REWIND_KEY = KeyCode.BACK_SPACE;
 	private Stage stage;
 	private FileChooserComponent fileChooser;
+	private FileChooserComponent movieChooser;
 	private TextInputDialogComponent velocityDialog;
 
 	@Inject
@@ -58,19 +67,31 @@ public class GraphicalUserInterface extends Application {
 
 		velocityDialog = createVelocityDialog();
 		fileChooser = createFileChooser();
+		movieChooser = createMovieChooser();
 		
 		BorderPane root = new BorderPane();
 		root.setStyle("-fx-background: black;");
 		Scene scene = new Scene(root);
 		stage.setScene(scene);
 		stage.setResizable(false);
-		stage.setOnCloseRequest(event -> {
-			Platform.exit();
-			System.exit(0);
-		});
+		stage.setOnCloseRequest(event -> exit());
 		
-		scene.setOnKeyPressed(event -> keyboard.press(event.getCode()));
-		scene.setOnKeyReleased(event -> keyboard.releasePressed());
+		settings.setRewindSeconds(config.rewindSeconds());
+		settings.setMetricsEnabled(config.metricsEnabled());
+		scene.setOnKeyPressed(event -> {
+			if (event.getCode() == REWIND_KEY) {
+				setRewinding(true);
+			} else {
+				keyboard.press(event.getCode());
+			}
+		});
+		scene.setOnKeyReleased(event -> {
+			if (event.getCode() == REWIND_KEY) {
+				setRewinding(false);
+			} else {
+				keyboard.releasePressed();
+			}
+		});
 		
 		root.setTop(MenuBarComponent.builder()
 				.menus(Arrays.asList(createInterpreterMenu(), createOptionsMenu(), createGameMenu()))
@@ -89,6 +110,13 @@ public class GraphicalUserInterface extends Application {
 				.build();
 	}
 
+	private FileChooserComponent createMovieChooser() {
+		return FileChooserComponent.builder()
+				.fileChooser(new FileChooser())
+				.extensions(Arrays.asList(new FileChooser.ExtensionFilter("c8m", "*.c8m")))
+				.build();
+	}
+
 	private TextInputDialogComponent createVelocityDialog() {
 		return TextInputDialogComponent.builder()
 				.title("Change game velocity")
@@ -117,14 +145,35 @@ public class GraphicalUserInterface extends Application {
 
 	private Menu createInterpreterMenu() {
 		MenuItem open = createMenuItem("Open", event -> openLoadFileDialog(), new KeyCodeCombination(KeyCode.O, CONTROL_DOWN));
-		MenuItem exit = createMenuItem("Exit", event -> {
-			Platform.exit();
-			System.exit(0);
-		}, new KeyCodeCombination(KeyCode.Q, CONTROL_DOWN));
+		MenuItem exit = createMenuItem("Exit", event -> exit(), new KeyCodeCombination(KeyCode.Q, CONTROL_DOWN));
 
 		return createMenu(Arrays.asList(open, exit), "Interpreter");
 	}
 
+	private void exit() {
+		if (EmulatorCache.getInstance().hasEmulator()) {
+			EmulatorCache.getInstance().getEmulator().dispose();
+		}
+		Platform.exit();
+		System.exit(0);
+	}
+
+	private void setRewinding(boolean rewinding) {
+		if (EmulatorCache.getInstance().hasEmulator()) {
+			EmulatorCache.getInstance().getEmulator().setRewinding(rewinding);
+		}
+	}
+
+	private void setPaused(boolean paused) {
+		if (!EmulatorCache.getInstance().hasEmulator()) {
+			settings.setPaused(paused);
+		} else if (paused) {
+			EmulatorCache.getInstance().getEmulator().pause();
+		} else {
+			EmulatorCache.getInstance().getEmulator().resume();
+		}
+	}
+
 	private MenuItem createMenuItem(String displayName, EventHandler<ActionEvent> event, KeyCodeCombination keyCode) {
 		return MenuItemComponent.builder()
 				.displayName(displayName)
@@ -137,27 +186,58 @@ public class GraphicalUserInterface extends Application {
 		return MenuComponent.builder()
 				.menuItems(menuItems)
 				.title(title)
-				.onHidden(event -> settings.setPaused(false))
-				.onShowing(event -> settings.setPaused(true))
+				.onHidden(event -> setPaused(false))
+				.onShowing(event -> setPaused(true))
 				.build();
 	}
 	
 	private void openLoadFileDialog() {
-		settings.setPaused(true);
+		setPaused(true);
 		File file = fileChooser.showOpenDialog(stage);
 		if (Objects.nonNull(file)) {
 			settings.setGamePath(file.toURI());
 			new ResetEvent().handle(new Event(Event.ANY));
 		}
-		settings.setPaused(false);
+		setPaused(false);
 	}
 	
 	private Menu createGameMenu() {
 		CheckMenuItem pause = createCheckMenuItem("Pause", new KeyCodeCombination(KeyCode.F2));
-		pause.setOnAction(event -> settings.setPaused(pause.isSelected()));
+		pause.setOnAction(event -> setPaused(pause.isSelected()));
 		MenuItem reset = createMenuItem("Reset", event -> new ResetEvent().handle(new Event(Event.ANY)), new KeyCodeCombination(KeyCode.F3));
+		CheckMenuItem recordMovie = createCheckMenuItem("Record movie", new KeyCodeCombination(KeyCode.F6));
+		recordMovie.setOnAction(event -> toggleRecording(recordMovie));
+
+		return createMenu(Arrays.asList(pause, reset, recordMovie), "Game");
+	}
 
-		return createMenu(Arrays.asList(pause, reset), "Game");
+	/**
+	 * Recording restarts the game in deterministic mode. When recording is stopped the movie is saved to the chosen file.
+	 */
+	private void toggleRecording(CheckMenuItem recordMovie) {
+		if (!EmulatorCache.getInstance().hasEmulator()) {
+			recordMovie.setSelected(false);
+			return;
+		}
+		Emulator emulator = EmulatorCache.getInstance().getEmulator();
+		if (recordMovie.isSelected()) {
+			emulator.startRecording();
+			return;
+		}
+		Movie movie = emulator.stopRecording();
+		if (Objects.isNull(movie)) {
+			return;
+		}
+		setPaused(true);
+		File file = movieChooser.showSaveDialog(stage);
+		if (Objects.nonNull(file)) {
+			try {
+				Movies.write(movie, file.toPath());
+			} catch (IOException e) {
+				log.error(e.toString(), e);
+			}
+		}
+		setPaused(false);
 	}
 
 	private CheckMenuItem createCheckMenuItem(String displayName, KeyCodeCombination keyCode) {
@@ -184,8 +264,8 @@ public class GraphicalUserInterface extends Application {
     }
 	
 	private void showVelocityDialog() {
-		settings.setPaused(true);
+		setPaused(true);
         velocityDialog.showDialog().ifPresent(s -> settings.setVelocity(Integer.parseInt(s)));
-		settings.setPaused(false);
+		setPaused(false);
 	}
 }
\ No newline at end of file
@@ -16,6 +16,10 @@ public class FileChooserComponent {
 		return fileChooser.showOpenDialog(stage);
 	}
 
+	public File showSaveDialog(Stage stage) {
+		return fileChooser.showSaveDialog(stage);
+	}
+
 	public static class FileChooserComponentBuilder {
 		public FileChooserComponent build() {
 			fileChooser.getExtensionFilters().addAll(extensions);
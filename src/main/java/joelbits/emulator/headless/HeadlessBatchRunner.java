@@ -0,0 +1,126 @@
+package joelbits.emulator.headless;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import joelbits.emulator.batch.BatchResult;
+import joelbits.emulator.batch.BatchRunner;
+import joelbits.emulator.config.InterpreterConfig;
+import joelbits.emulator.settings.GameSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs every ROM in a directory for a number of frames, in parallel on all cores, without a display or JavaFX toolkit.
+ * One JSON line is written for every ROM, in the order of the ROM names, to standard output or to the output file. A
+ * summary of the batch is written to standard error when the batch is finished.
+ *
+ * Usage: HeadlessBatchRunner directory [--frames N] [--velocity N] [--jit] [--seed N] [--threads N] [--output file]
+ */
+public final class HeadlessBatchRunner {
+	private static final Logger log = LoggerFactory.getLogger(HeadlessBatchRunner.class);
+	private static final long DEFAULT_FRAMES = 600;
+	private static final String USAGE = "Usage: HeadlessBatchRunner directory [--frames N] [--velocity N] [--jit] [--seed N] [--threads N] [--output file]";
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+
+		long frames = DEFAULT_FRAMES;
+		int velocity = new GameSettings().getVelocity();
+		boolean jitEnabled = false;
+		long seed = 0;
+		int threads = Runtime.getRuntime().availableProcessors();
+		Path output = null;
+		for (int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+				case "--frames":
+					frames = Long.parseLong(args[++i]);
+					break;
+				case "--velocity":
+					velocity = Integer.parseInt(args[++i]);
+					if (velocity <= 0) {
+						System.err.println("The velocity must be positive");
+						System.err.println(USAGE);
+						System.exit(1);
+					}
+					break;
+				case "--jit":
+					jitEnabled = true;
+					break;
+				case "--seed":
+					seed = Long.parseLong(args[++i]);
+					break;
+				case "--threads":
+					threads = Integer.parseInt(args[++i]);
+					break;
+				case "--output":
+					output = Paths.get(args[++i]);
+					break;
+				default:
+					System.err.println("Unknown argument " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		List<Path> roms = null;
+		try {
+			roms = BatchRunner.roms(Paths.get(args[0]));
+		} catch (IOException e) {
+			log.error(e.toString(), e);
+			System.err.println("Could not list " + args[0]);
+			System.exit(1);
+		}
+
+		InterpreterConfig config = new InterpreterConfig();
+		BatchRunner runner = new BatchRunner(config.screenWidth(), config.screenHeight(), frames, velocity, jitEnabled, seed);
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		int[] counts = new int[3];
+		long start = System.nanoTime();
+		try (Writer writer = output != null ? Files.newBufferedWriter(output, StandardCharsets.UTF_8)
+				: new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+			runner.runAll(roms, pool, result -> {
+				count(result, counts);
+				try {
+					writer.write(result.toJson());
+					writer.write(System.lineSeparator());
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			});
+		} catch (IOException | UncheckedIOException e) {
+			log.error(e.toString(), e);
+			System.err.println("Could not write results: " + e.getMessage());
+			System.exit(1);
+		} finally {
+			pool.shutdown();
+		}
+		long elapsed = System.nanoTime() - start;
+
+		System.err.println(String.format("roms=%d failed=%d faulted=%d withUnknownOpcodes=%d threads=%d elapsedMs=%.3f",
+				roms.size(), counts[0], counts[1], counts[2], threads, elapsed / 1e6));
+	}
+
+	private static void count(BatchResult result, int[] counts) {
+		if (result.isFailed()) {
+			counts[0]++;
+		}
+		if (result.getFault() != null) {
+			counts[1]++;
+		}
+		if (result.getUnknownInstructions() > 0) {
+			counts[2]++;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+package joelbits.emulator.headless;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import joelbits.emulator.Chip8;
+import joelbits.emulator.EmulatorFactory;
+import joelbits.emulator.Program;
+import joelbits.emulator.config.InterpreterConfig;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.metrics.EmulatorMetrics;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a ROM without a display or JavaFX toolkit, as fast as the host allows, for either a number of frames or a
+ * number of instructions. A summary of the run is written to standard output when the run is finished.
+ *
+ * Usage: HeadlessInterpreter rom [--frames N | --instructions N] [--velocity N] [--jit] [--seed N] [--metrics] [--screen]
+ */
+public final class HeadlessInterpreter {
+	private static final Logger log = LoggerFactory.getLogger(HeadlessInterpreter.class);
+	private static final long DEFAULT_FRAMES = 600;
+	private static final String USAGE = "Usage: HeadlessInterpreter rom [--frames N | --instructions N] [--velocity N] [--jit] [--seed N] [--metrics] [--screen]";
+
+	public static void main(String[] args) {
+		if (args.length == 0) {
+			System.err.println(USAGE);
+			System.exit(1);
+		}
+
+		GameSettings settings = new GameSettings();
+		long frames = DEFAULT_FRAMES;
+		long instructions = -1;
+		boolean printScreen = false;
+		for (int i = 1; i < args.length; i++) {
+			switch (args[i]) {
+				case "--frames":
+					frames = Long.parseLong(args[++i]);
+					break;
+				case "--instructions":
+					instructions = Long.parseLong(args[++i]);
+					break;
+				case "--velocity":
+					settings.setVelocity(Integer.parseInt(args[++i]));
+					if (settings.getVelocity() <= 0) {
+						System.err.println("The velocity must be positive");
+						System.err.println(USAGE);
+						System.exit(1);
+					}
+					break;
+				case "--jit":
+					settings.setJitEnabled(true);
+					break;
+				case "--seed":
+					settings.setDeterministic(true);
+					settings.setRandomSeed(Long.parseLong(args[++i]));
+					break;
+				case "--metrics":
+					settings.setMetricsEnabled(true);
+					break;
+				case "--screen":
+					printScreen = true;
+					break;
+				default:
+					System.err.println("Unknown argument " + args[i]);
+					System.exit(1);
+			}
+		}
+
+		InterpreterConfig config = new InterpreterConfig();
+		Chip8 emulator = EmulatorFactory.createChip8(settings, new Keypad(), new SilentAudio(),
+				new HeadlessScreen(config.screenWidth(), config.screenHeight()));
+		try {
+			emulator.load(new Program(Files.readAllBytes(Paths.get(args[0]))));
+		} catch (IOException e) {
+			log.error(e.toString(), e);
+			System.err.println("Could not read " + args[0]);
+			System.exit(1);
+		}
+
+		if (instructions < 0) {
+			instructions = frames * settings.getVelocity();
+		}
+		long start = System.nanoTime();
+		emulator.runInstructions(instructions);
+		long elapsed = System.nanoTime() - start;
+
+		long executed = emulator.getExecutedInstructions();
+		long skippedCycles = emulator.getSkippedCycles();
+		System.out.println(String.format("cycles=%d frames=%d executedInstructions=%d skippedCycles=%d haltedCycles=%d elapsedMs=%.3f instructionsPerSecond=%.0f",
+				instructions, instructions / settings.getVelocity(), executed, skippedCycles,
+				instructions - executed - skippedCycles, elapsed / 1e6, executed / (elapsed / 1e9)));
+		System.out.println(String.format("promotionsToWarm=%d promotionsToHot=%d",
+				emulator.tieringPolicy().getPromotionsToWarm(), emulator.tieringPolicy().getPromotionsToHot()));
+		if (settings.isDeterministic()) {
+			System.out.println(String.format("stateHash=%016x", emulator.stateHash()));
+		}
+		if (emulator.metrics() != null) {
+			printMetrics(emulator.metrics());
+		}
+		if (emulator.getFault() != null) {
+			System.out.println("fault=" + emulator.getFault());
+		}
+		if (printScreen) {
+			printScreen(emulator, config.screenWidth(), config.screenHeight());
+		}
+	}
+
+	private static void printMetrics(EmulatorMetrics metrics) {
+		metrics.publish();
+		System.out.println(String.format("spritesDrawn=%d pixelsFlipped=%d screenDraws=%d screenDrawMs=%.3f delayTimerTicks=%d soundTimerTicks=%d",
+				metrics.getSpritesDrawn(), metrics.getPixelsFlipped(), metrics.getScreenDraws(), metrics.getScreenDrawMillis(),
+				metrics.getDelayTimerTicks(), metrics.getSoundTimerTicks()));
+		metrics.getInstructionCounts().entrySet().stream()
+				.filter(count -> count.getValue() > 0)
+				.sorted((first, second) -> Long.compare(second.getValue(), first.getValue()))
+				.forEach(count -> System.out.println(count.getKey() + "=" + count.getValue()));
+	}
+
+	private static void printScreen(Chip8 emulator, int width, int height) {
+		StringBuilder screen = new StringBuilder();
+		for (int y = 0; y < height; y++) {
+			for (int x = 0; x < width; x++) {
+				screen.append(emulator.readPixel(x, y) != 0 ? '#' : '.');
+			}
+			screen.append(System.lineSeparator());
+		}
+		System.out.print(screen);
+	}
+}
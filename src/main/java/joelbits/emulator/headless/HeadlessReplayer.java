@@ -0,0 +1,69 @@
+package joelbits.emulator.headless;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+import joelbits.emulator.Program;
+import joelbits.emulator.config.InterpreterConfig;
+import joelbits.emulator.movie.MovieReplayer;
+import joelbits.emulator.movie.Movies;
+import joelbits.emulator.movie.ReplayResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Replays movies recorded with a ROM without a display or JavaFX toolkit, as fast as the host allows, and verifies the
+ * state hash of every frame against the recording. One line is written to standard output for every movie, and the exit
+ * status is 1 if any movie could not be verified.
+ *
+ * Usage: HeadlessReplayer rom movie... [--jit]
+ */
+public final class HeadlessReplayer {
+	private static final Logger log = LoggerFactory.getLogger(HeadlessReplayer.class);
+
+	public static void main(String[] args) {
+		if (args.length < 2) {
+			System.err.println("Usage: HeadlessReplayer rom movie... [--jit]");
+			System.exit(1);
+		}
+
+		boolean jitEnabled = false;
+		List<String> movies = new ArrayList<>();
+		for (int i = 1; i < args.length; i++) {
+			if ("--jit".equals(args[i])) {
+				jitEnabled = true;
+			} else {
+				movies.add(args[i]);
+			}
+		}
+
+		Program program = null;
+		try {
+			program = new Program(Files.readAllBytes(Paths.get(args[0])));
+		} catch (IOException e) {
+			log.error(e.toString(), e);
+			System.err.println("Could not read " + args[0]);
+			System.exit(1);
+		}
+
+		InterpreterConfig config = new InterpreterConfig();
+		MovieReplayer replayer = new MovieReplayer(config.screenWidth(), config.screenHeight(), jitEnabled);
+		int failures = 0;
+		for (String movie : movies) {
+			try {
+				ReplayResult result = replayer.replay(program, Movies.read(Paths.get(movie)));
+				System.out.println(movie + " " + result);
+				if (!result.isVerified()) {
+					failures++;
+				}
+			} catch (IOException | IllegalArgumentException e) {
+				System.out.println(movie + " error=" + e.getMessage());
+				failures++;
+			}
+		}
+		System.exit(failures > 0 ? 1 : 0);
+	}
+}
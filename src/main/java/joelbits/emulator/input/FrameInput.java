@@ -0,0 +1,83 @@
+package joelbits.emulator.input;
+
+import java.util.function.Consumer;
+
+/**
+ * The input seen by the CPU. Live input passes the keyboard straight through, so that a key press is seen as soon as it
+ * happens on the thread handling the keyboard. Latched input only changes at frame boundaries, when the emulator latches
+ * the key of the next frame, which makes the input of every frame reproducible.
+ *
+ * Keys are reported the same way as by the Keypad, i.e., offset by one so that 0 means that no key is pressed.
+ */
+public final class FrameInput implements Input<Integer, Integer> {
+	private static final int NUMBER_OF_KEYS = 16;
+	private final Input<Integer, ?> keyboard;
+	private volatile boolean latching;
+	private int latchedKey;
+	private volatile Consumer<Integer> pressListener;
+
+	public FrameInput(Input<Integer, ?> keyboard) {
+		this.keyboard = keyboard;
+		keyboard.setPressListener(this::keyboardKeyPressed);
+	}
+
+	private void keyboardKeyPressed(Integer key) {
+		if (!latching && pressListener != null) {
+			pressListener.accept(key);
+		}
+	}
+
+	@Override
+	public Integer currentlyPressed() {
+		return latching ? latchedKey : keyboard.currentlyPressed();
+	}
+
+	/**
+	 * Latches the supplied key, 0 meaning no key, as the key seen by the CPU until the next key is latched. The listener
+	 * is notified when a key that was not latched before is latched.
+	 */
+	public void latch(int key) {
+		boolean pressed = key != 0 && key != latchedKey;
+		latchedKey = key;
+		if (pressed && pressListener != null) {
+			pressListener.accept(key);
+		}
+	}
+
+	/**
+	 * Latches the key with the supplied index (0x0 - 0xF).
+	 */
+	@Override
+	public void press(Integer key) {
+		latch(key >= 0 && key < NUMBER_OF_KEYS ? key + 1 : 0);
+	}
+
+	@Override
+	public void releasePressed() {
+		latch(0);
+	}
+
+	@Override
+	public void setPressListener(Consumer<Integer> listener) {
+		pressListener = listener;
+	}
+
+	/**
+	 * Switches between latched input and live keyboard input. No key is latched when latching starts.
+	 */
+	public void setLatching(boolean latching) {
+		latchedKey = 0;
+		this.latching = latching;
+	}
+
+	public boolean isLatching() {
+		return latching;
+	}
+
+	/**
+	 * The key currently pressed on the keyboard, regardless of what is latched.
+	 */
+	public int keyboardPressed() {
+		return keyboard.currentlyPressed();
+	}
+}
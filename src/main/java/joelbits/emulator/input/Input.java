@@ -1,7 +1,14 @@
 package joelbits.emulator.input;
 
+import java.util.function.Consumer;
+
 public interface Input<S, T> {
 	S currentlyPressed();
 	void press(T pressed);
 	void releasePressed();
+
+	/**
+	 * The listener is notified with the currently pressed key every time a valid key is pressed.
+	 */
+	void setPressListener(Consumer<S> listener);
 }
@@ -0,0 +1,93 @@
+package joelbits.emulator.input;
+
+import java.util.Arrays;
+
+/**
+ * The key pressed in every frame of a run, stored as the frames where the pressed key changes. Keys are stored the same
+ * way as they are reported by an Input, i.e., offset by one so that 0 means that no key is pressed.
+ *
+ * Recording a key for a frame replaces what was recorded for that frame and every later frame, so that recording can
+ * continue from an earlier frame after the emulation has been rewound.
+ */
+public final class InputTimeline {
+	private static final int INITIAL_CAPACITY = 64;
+	private long[] frames = new long[INITIAL_CAPACITY];
+	private int[] keys = new int[INITIAL_CAPACITY];
+	private int changes;
+	private long length;
+
+	/**
+	 * Records the key pressed in the supplied frame, discarding anything recorded for that frame or later frames.
+	 */
+	public void record(long frame, int key) {
+		changes = changeIndex(frame);
+		if (changes > 0 && keys[changes - 1] == key || changes == 0 && key == 0) {
+			length = frame + 1;
+			return;
+		}
+		if (changes == frames.length) {
+			frames = Arrays.copyOf(frames, changes * 2);
+			keys = Arrays.copyOf(keys, changes * 2);
+		}
+		frames[changes] = frame;
+		keys[changes] = key;
+		changes++;
+		length = frame + 1;
+	}
+
+	/**
+	 * The key pressed in the supplied frame, which is the key of the last change at or before the frame.
+	 */
+	public int keyAt(long frame) {
+		int index = changeIndex(frame + 1);
+		return index > 0 ? keys[index - 1] : 0;
+	}
+
+	/**
+	 * Returns the number of changes before the supplied frame.
+	 */
+	private int changeIndex(long frame) {
+		int low = 0;
+		int high = changes;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (frames[middle] < frame) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The number of frames covered by the timeline.
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * Sets the number of frames covered by the timeline, e.g., when the last frames of a recording have no changes.
+	 */
+	public void setLength(long length) {
+		this.length = length;
+	}
+
+	public int changes() {
+		return changes;
+	}
+
+	public long changeFrame(int change) {
+		return frames[change];
+	}
+
+	public int changeKey(int change) {
+		return keys[change];
+	}
+
+	public void clear() {
+		changes = 0;
+		length = 0;
+	}
+}
@@ -3,6 +3,7 @@ package joelbits.emulator.input;
 import javafx.scene.input.KeyCode;
 
 import java.util.Objects;
+import java.util.function.Consumer;
 
 /**
  * CHIP-8 is able to detect input from a sixteen key keypad, with each key corresponding to a single unique hexadecimal
@@ -11,6 +12,7 @@ import java.util.Objects;
  */
 public class Keyboard implements Input<Integer, KeyCode> {
 	private int currentlyPressedKey;
+	private volatile Consumer<Integer> pressListener;
 	private final char[] keyPad = {'8', '4', '6', '2', 'Q', 'W', 'E', 'R', 'T', 'Y', 'A', 'S', 'D', 'Z', 'X', 'C'};
 	
 	@Override
@@ -21,6 +23,9 @@ public class Keyboard implements Input<Integer, KeyCode> {
 	@Override
     public void press(KeyCode keyCode) {
     	currentlyPressedKey = mapKeyCodeToChip8Key(keyCode);
+    	if (currentlyPressedKey != 0 && pressListener != null) {
+    		pressListener.accept(currentlyPressedKey);
+    	}
     }
     
     private int mapKeyCodeToChip8Key(KeyCode keyCode) {
@@ -36,4 +41,9 @@ public class Keyboard implements Input<Integer, KeyCode> {
     public void releasePressed() {
     	currentlyPressedKey = 0;
     }
+
+    @Override
+    public void setPressListener(Consumer<Integer> listener) {
+    	pressListener = listener;
+    }
 }
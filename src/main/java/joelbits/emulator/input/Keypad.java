@@ -0,0 +1,36 @@
+package joelbits.emulator.input;
+
+import java.util.function.Consumer;
+
+/**
+ * Input on plain CHIP-8 key indices (0x0 - 0xF), without any dependency on a windowing toolkit. The currently pressed
+ * key is reported the same way as the Keyboard reports it, i.e., offset by one so that 0 means that no key is pressed.
+ */
+public class Keypad implements Input<Integer, Integer> {
+	private static final int NUMBER_OF_KEYS = 16;
+	private int currentlyPressedKey;
+	private volatile Consumer<Integer> pressListener;
+
+	@Override
+	public Integer currentlyPressed() {
+		return currentlyPressedKey;
+	}
+
+	@Override
+	public void press(Integer key) {
+		currentlyPressedKey = key >= 0 && key < NUMBER_OF_KEYS ? key + 1 : 0;
+		if (currentlyPressedKey != 0 && pressListener != null) {
+			pressListener.accept(currentlyPressedKey);
+		}
+	}
+
+	@Override
+	public void releasePressed() {
+		currentlyPressedKey = 0;
+	}
+
+	@Override
+	public void setPressListener(Consumer<Integer> listener) {
+		pressListener = listener;
+	}
+}
@@ -1,11 +1,11 @@
 package joelbits.emulator.memory;
 
 public final class BufferFactory {
-	public static Memory createDisplayBuffer(int width, int height) {
+	public static DisplayBuffer createDisplayBuffer(int width, int height) {
 		return new DisplayBuffer(width, height);
 	}
 	
-	public static Memory createDirtyBuffer() {
-		return new DirtyBuffer();
+	public static DirtyBuffer createDirtyBuffer(int locations) {
+		return new DirtyBuffer(locations);
 	}
 }
@@ -1,22 +1,37 @@
 package joelbits.emulator.memory;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 /**
  *  A dirty buffer is used to keep track of which pixels (their locations) that has been changed. That way only the affected
  *  pixels have to be re-rendered.
  *
+ *  Every pixel location is represented by one bit, so a location that is changed several times between two renderings is only
+ *  stored once. Dirty locations are always retrieved in ascending order.
  */
 public final class DirtyBuffer implements Memory {
-	private final List<Integer> dirtyBuffer = new ArrayList<>();
+	private static final int BITS_PER_WORD = 64;
+	private final long[] dirtyBuffer;
+	private final int locations;
+	private int size;
+
+	public DirtyBuffer(int locations) {
+		this.locations = locations;
+		dirtyBuffer = new long[(locations + BITS_PER_WORD - 1) / BITS_PER_WORD];
+	}
 	
 	/**
-	 * It does not matter which element is removed because all of this buffer's elements should be drawn on the display at the same time (FIFO).
+	 * Removes and returns the lowest dirty location, or -1 if there are no dirty locations. It does not matter which element
+	 * is removed because all of this buffer's elements should be drawn on the display at the same time.
 	 */
 	@Override
 	public int read(int index) {
-		return dirtyBuffer.size() > 0 ? dirtyBuffer.remove(0) : -1;
+		int location = nextDirty(0);
+		if (location >= 0) {
+			dirtyBuffer[location / BITS_PER_WORD] &= ~bit(location);
+			size--;
+		}
+		return location;
 	}
 
 	/**
@@ -24,16 +39,54 @@ public final class DirtyBuffer implements Memory {
 	 */
 	@Override
 	public void write(int index, int data) {
-		dirtyBuffer.add(index);
+		int location = index % locations;
+		long word = dirtyBuffer[location / BITS_PER_WORD];
+		if ((word & bit(location)) == 0) {
+			dirtyBuffer[location / BITS_PER_WORD] = word | bit(location);
+			size++;
+		}
+	}
+
+	/**
+	 * Returns the lowest dirty location that is equal to or larger than the supplied location, or -1 if there is none.
+	 */
+	public int nextDirty(int fromLocation) {
+		int wordIndex = fromLocation / BITS_PER_WORD;
+		if (wordIndex >= dirtyBuffer.length) {
+			return -1;
+		}
+		long word = dirtyBuffer[wordIndex] & (-1L >>> (fromLocation % BITS_PER_WORD));
+		while (word == 0) {
+			if (++wordIndex == dirtyBuffer.length) {
+				return -1;
+			}
+			word = dirtyBuffer[wordIndex];
+		}
+		return wordIndex * BITS_PER_WORD + Long.numberOfLeadingZeros(word);
+	}
+
+	/**
+	 * Marks the locations set in the supplied bits as dirty, where the most significant bit is the first of the 64 locations
+	 * starting at the supplied word times 64.
+	 */
+	public void markWord(int word, long locations) {
+		long dirty = dirtyBuffer[word];
+		size += Long.bitCount(locations & ~dirty);
+		dirtyBuffer[word] = dirty | locations;
+	}
+
+	private long bit(int location) {
+		return Long.MIN_VALUE >>> (location % BITS_PER_WORD);
 	}
 
 	@Override
 	public void clear() {
-		dirtyBuffer.clear();
+		Arrays.fill(dirtyBuffer, 0L);
+		size = 0;
 	}
 
 	@Override
 	public int size() {
-		return dirtyBuffer.size();
+		return size;
 	}
 }
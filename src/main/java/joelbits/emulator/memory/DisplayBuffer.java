@@ -1,41 +1,134 @@
 package joelbits.emulator.memory;
 
+import java.util.Arrays;
+
 /**
  * The current display state is stored in this buffer. Value 1 means that a pixel is visible on the display at the corresponding coordinates,
  * while value 0 means that there is no visible pixel at the corresponding coordinates. Here visible means that the drawn pixel has a color
  * different from the background color.
  *
+ * The pixels are packed into one bit each, where each row of the display is stored in one long for every 64 pixels. The leftmost pixel of a
+ * row is stored in the most significant bit, which makes it possible to XOR a whole sprite row onto the display in one operation.
  */
 public final class DisplayBuffer implements Memory {
-	private final int[] displayBuffer;
-	
+	private static final int PIXELS_PER_WORD = 64;
+	private final int width;
+	private final int height;
+	private final int wordsPerRow;
+	private final long[] displayBuffer;
+
 	public DisplayBuffer(int width, int height) {
-		displayBuffer = new int[width*height];
+		if (width % PIXELS_PER_WORD != 0) {
+			throw new IllegalArgumentException("Display width " + width + " is not a multiple of " + PIXELS_PER_WORD);
+		}
+		this.width = width;
+		this.height = height;
+		wordsPerRow = width / PIXELS_PER_WORD;
+		displayBuffer = new long[wordsPerRow * height];
 	}
-	
+
 	@Override
 	public int read(int index) {
-		return displayBuffer[wrapIndex(index)];
+		int location = wrapIndex(index);
+		return (int) (displayBuffer[wordIndex(location)] >>> bitShift(location)) & 0x1;
 	}
-	
+
 	private int wrapIndex(int index) {
-		return index >= displayBuffer.length ? index % displayBuffer.length : index;
+		return index >= size() ? index % size() : index;
+	}
+
+	private int wordIndex(int location) {
+		return (location / width) * wordsPerRow + (location % width) / PIXELS_PER_WORD;
+	}
+
+	private int bitShift(int location) {
+		return PIXELS_PER_WORD - 1 - (location % width) % PIXELS_PER_WORD;
 	}
 
 	@Override
 	public void write(int index, int data) {
-		displayBuffer[wrapIndex(index)] = data;
+		int location = wrapIndex(index);
+		long bit = 1L << bitShift(location);
+		if (data != 0) {
+			displayBuffer[wordIndex(location)] |= bit;
+		} else {
+			displayBuffer[wordIndex(location)] &= ~bit;
+		}
+	}
+
+	/**
+	 * XORs an 8 pixel wide sprite row onto the display with its leftmost pixel at the supplied coordinates. Coordinates outside of
+	 * the display wrap around to the opposite side of the display.
+	 *
+	 * @param coordinateX	x coordinate of the leftmost pixel of the sprite row
+	 * @param coordinateY	y coordinate of the sprite row
+	 * @param spriteRow		sprite row, where the most significant of the 8 bits is the leftmost pixel
+	 * @return				true if any visible pixel was erased by the sprite row
+	 */
+	public boolean drawSpriteRow(int coordinateX, int coordinateY, int spriteRow) {
+		int rowStart = (coordinateY % height) * wordsPerRow;
+		int column = coordinateX % width;
+		int word = column / PIXELS_PER_WORD;
+		int offset = column % PIXELS_PER_WORD;
+		long sprite = (long) (spriteRow & 0xFF) << (PIXELS_PER_WORD - 8);
+
+		boolean collision = xor(rowStart + word, sprite >>> offset);
+		if (offset > PIXELS_PER_WORD - 8) {
+			collision |= xor(rowStart + (word + 1) % wordsPerRow, sprite << (PIXELS_PER_WORD - offset));
+		}
+		return collision;
+	}
+
+	private boolean xor(int wordIndex, long spriteMask) {
+		long row = displayBuffer[wordIndex];
+		displayBuffer[wordIndex] = row ^ spriteMask;
+		return (row & spriteMask) != 0;
+	}
+
+	/**
+	 * Copies the packed pixels into the destination, which must hold at least as many longs as there are words.
+	 */
+	public void snapshot(long[] destination) {
+		System.arraycopy(displayBuffer, 0, destination, 0, displayBuffer.length);
+	}
+
+	/**
+	 * Replaces all pixels with the packed pixels of the source.
+	 */
+	public void restore(long[] source) {
+		System.arraycopy(source, 0, displayBuffer, 0, displayBuffer.length);
+	}
+
+	/**
+	 * Returns the 64 pixels packed into the supplied word. Since the width is a multiple of 64, word i holds the pixels at
+	 * locations i * 64 to i * 64 + 63, with the first of them in the most significant bit.
+	 */
+	public long word(int word) {
+		return displayBuffer[word];
+	}
+
+	/**
+	 * The number of longs the pixels are packed into.
+	 */
+	public int words() {
+		return displayBuffer.length;
 	}
 
 	@Override
 	public void clear() {
-		for (int i = 0; i < displayBuffer.length; i++) {
-			displayBuffer[i] = 0;
-		}
+		Arrays.fill(displayBuffer, 0L);
 	}
-	
+
 	@Override
 	public int size() {
-		return displayBuffer.length;
+		return width * height;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
 	}
 }
@@ -2,35 +2,109 @@ package joelbits.emulator.memory;
 
 import lombok.RequiredArgsConstructor;
 
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+
 /**
  * Memory Management Unit. Handles tasks related to memory.
  */
 @RequiredArgsConstructor
 public final class MMU {
     private final Memory primaryMemory;
+    private MemoryWriteListener writeListener = (location, length) -> { };
+    private byte[] restoreBuffer = new byte[0];
+
+    /**
+     * The listener is notified after every write to primary memory, including clearing it.
+     */
+    public void setWriteListener(MemoryWriteListener writeListener) {
+        this.writeListener = writeListener;
+    }
 
     public void clearPrimaryMemory() {
         primaryMemory.clear();
+        writeListener.written(0, primaryMemory.size());
     }
 
     public void writePrimaryMemory(int[] data) {
-        for (int i = 0; i < data.length; i++) {
-            primaryMemory.write(i, data[i]);
-        }
+        primaryMemory.write(0, data);
+        writeListener.written(0, data.length);
+    }
+
+    public void writePrimaryMemory(int location, byte[] data) {
+        primaryMemory.write(location, data);
+        writeListener.written(location, data.length);
     }
 
     public void writePrimaryMemory(int location, int data) {
         primaryMemory.write(location, data);
+        writeListener.written(location, 1);
     }
 
+    /**
+     * Returns a copy of the whole primary memory. Use readPrimaryMemory to read single locations in place.
+     */
     public int[] primaryMemory() {
         int[] ram = new int[primaryMemory.size()];
-        for (int i = 0; i < primaryMemory.size(); i++) {
-            ram[i] = primaryMemory.read(i);
-        }
+        primaryMemory.read(0, ram);
         return ram;
     }
 
+    /**
+     * Copies the whole primary memory into the destination, which must be as large as the primary memory.
+     */
+    public void snapshotPrimaryMemory(byte[] destination) {
+        primaryMemory.read(0, destination);
+    }
+
+    /**
+     * Replaces the whole primary memory with the source, which must be as large as the primary memory. The listener is
+     * only notified of the range between the first and the last location that actually changed, so that the code
+     * decoded from the rest of the memory stays valid when a snapshot of the same program is restored. The memories are
+     * compared eight bytes at a time.
+     */
+    public void restorePrimaryMemory(byte[] source) {
+        if (restoreBuffer.length != primaryMemory.size()) {
+            restoreBuffer = new byte[primaryMemory.size()];
+        }
+        primaryMemory.read(0, restoreBuffer);
+        LongBuffer current = ByteBuffer.wrap(restoreBuffer).asLongBuffer();
+        LongBuffer restored = ByteBuffer.wrap(source).asLongBuffer();
+        int words = source.length / Long.BYTES;
+        int firstWord = 0;
+        while (firstWord < words && current.get(firstWord) == restored.get(firstWord)) {
+            firstWord++;
+        }
+        int first = firstWord * Long.BYTES;
+        while (first < source.length && restoreBuffer[first] == source[first]) {
+            first++;
+        }
+        if (first == source.length) {
+            return;
+        }
+        int tail = words * Long.BYTES;
+        int last = source.length - 1;
+        while (last >= tail && restoreBuffer[last] == source[last]) {
+            last--;
+        }
+        if (last < tail) {
+            int lastWord = words - 1;
+            while (lastWord > firstWord && current.get(lastWord) == restored.get(lastWord)) {
+                lastWord--;
+            }
+            last = lastWord * Long.BYTES + Long.BYTES - 1;
+            while (restoreBuffer[last] == source[last]) {
+                last--;
+            }
+        }
+        primaryMemory.write(0, source);
+        writeListener.written(first, last - first + 1);
+    }
+
+    public int primaryMemorySize() {
+        return primaryMemory.size();
+    }
+
     public int readPrimaryMemory(int location) {
         return primaryMemory.read(location);
     }
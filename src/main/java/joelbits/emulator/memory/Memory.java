@@ -5,4 +5,40 @@ public interface Memory {
 	void write(int location, int data);
 	void clear();
 	int size();
+
+	/**
+	 * Reads consecutive locations, starting at the supplied location, into the destination array.
+	 */
+	default void read(int location, int[] destination) {
+		for (int i = 0; i < destination.length; i++) {
+			destination[i] = read(location + i);
+		}
+	}
+
+	/**
+	 * Reads consecutive locations, starting at the supplied location, into the destination array as unsigned bytes.
+	 */
+	default void read(int location, byte[] destination) {
+		for (int i = 0; i < destination.length; i++) {
+			destination[i] = (byte) read(location + i);
+		}
+	}
+
+	/**
+	 * Writes the data to consecutive locations, starting at the supplied location.
+	 */
+	default void write(int location, int[] data) {
+		for (int i = 0; i < data.length; i++) {
+			write(location + i, data[i]);
+		}
+	}
+
+	/**
+	 * Writes the bytes as unsigned values to consecutive locations, starting at the supplied location.
+	 */
+	default void write(int location, byte[] data) {
+		for (int i = 0; i < data.length; i++) {
+			write(location + i, Byte.toUnsignedInt(data[i]));
+		}
+	}
 }
@@ -0,0 +1,8 @@
+package joelbits.emulator.memory;
+
+/**
+ * Notified of every write to primary memory through the MMU.
+ */
+public interface MemoryWriteListener {
+    void written(int location, int length);
+}
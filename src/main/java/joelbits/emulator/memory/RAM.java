@@ -1,34 +1,76 @@
 package joelbits.emulator.memory;
 
+import java.util.Arrays;
+
 /**
  * A memory where the array represents the 4096 memory locations (0x000 - 0xFFF) that is used by the CHIP-8, where the 
  * CHIP-8 interpreter itself will occupy the first 512 bytes (0x000 to 0x1FF) of the memory space.
  *
+ * Each location is stored in one byte. Locations are masked to 12 bits, so an address past 0xFFF (e.g., when the index
+ * register plus an offset overflows) wraps around to the start of the memory instead of failing.
  */
 public final class RAM implements Memory {
-	private final int[] memory;
+	private static final int MEMORY_SIZE = 4096;
+	private static final int ADDRESS_MASK = MEMORY_SIZE - 1;
+	private final byte[] memory;
 	
 	public RAM() {
-		memory = new int[4096];
+		memory = new byte[MEMORY_SIZE];
 	}
 
 	@Override
 	public int read(int index) {
-		return memory[index];
+		return memory[index & ADDRESS_MASK] & 0xFF;
 	}
 
 	@Override
 	public void write(int index, int data) {
-		memory[index] = data;
+		memory[index & ADDRESS_MASK] = (byte) data;
 	}
-	
+
 	@Override
-	public void clear() {
-		for (int i = 0; i < memory.length; i++) {
-			memory[i] = 0x0;
+	public void read(int location, int[] destination) {
+		for (int i = 0; i < destination.length; i++) {
+			destination[i] = memory[(location + i) & ADDRESS_MASK] & 0xFF;
+		}
+	}
+
+	@Override
+	public void read(int location, byte[] destination) {
+		int start = location & ADDRESS_MASK;
+		if (start + destination.length <= MEMORY_SIZE) {
+			System.arraycopy(memory, start, destination, 0, destination.length);
+		} else {
+			for (int i = 0; i < destination.length; i++) {
+				destination[i] = memory[(start + i) & ADDRESS_MASK];
+			}
+		}
+	}
+
+	@Override
+	public void write(int location, int[] data) {
+		for (int i = 0; i < data.length; i++) {
+			memory[(location + i) & ADDRESS_MASK] = (byte) data[i];
+		}
+	}
+
+	@Override
+	public void write(int location, byte[] data) {
+		int start = location & ADDRESS_MASK;
+		if (start + data.length <= MEMORY_SIZE) {
+			System.arraycopy(data, 0, memory, start, data.length);
+		} else {
+			for (int i = 0; i < data.length; i++) {
+				memory[(start + i) & ADDRESS_MASK] = data[i];
+			}
 		}
 	}
 
+	@Override
+	public void clear() {
+		Arrays.fill(memory, (byte) 0x0);
+	}
+
 	@Override
 	public int size() {
 		return memory.length;
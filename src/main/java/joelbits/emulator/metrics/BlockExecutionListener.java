@@ -0,0 +1,14 @@
+package joelbits.emulator.metrics;
+
+/**
+ * Notified of every basic block executed in a frame, of any tier, as the instructions at consecutive addresses starting
+ * at the address of the block.
+ */
+public interface BlockExecutionListener {
+	/**
+	 * Ignores the executed blocks, for frames whose instructions are not counted.
+	 */
+	BlockExecutionListener NONE = (address, instructions) -> { };
+
+	void executed(int address, int instructions);
+}
@@ -0,0 +1,328 @@
+package joelbits.emulator.metrics;
+
+import static joelbits.emulator.utils.Chip8Util.FIT_12BIT_ADDRESS;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import joelbits.emulator.cpu.TieringPolicy;
+import joelbits.emulator.cpu.instructions.BlockCache;
+import joelbits.emulator.cpu.instructions.Instructions;
+import joelbits.emulator.memory.MMU;
+
+/**
+ * Counts what an emulator does: executed instructions, frames, sprites drawn, pixels flipped, screen draws, timer ticks
+ * and promotions between execution tiers. The time spent drawing the screen is estimated from every
+ * SCREEN_DRAW_SAMPLE_INTERVAL draws, and the executions of every instruction from every INSTRUCTION_SAMPLE_INTERVAL
+ * frames, scaled to the total number of executed instructions.
+ *
+ * The counters are confined to the emulation thread, which increments them as plain fields without any synchronization.
+ * The instructions executed in sampled frames are counted as runs of consecutive addresses, in a difference array with
+ * one increment where a run starts and one decrement where it ends, and are only attributed to the instructions at
+ * those addresses when the counters are published. Executions of code that is modified by the program before the
+ * counters are published are attributed to the modified code. A few times a second the emulation thread publishes the
+ * counters to an atomic array, which is what other threads, e.g., JMX clients, read. The rates are computed over
+ * windows of at least one second.
+ */
+public final class EmulatorMetrics implements EmulatorMetricsMXBean, BlockExecutionListener {
+	private static final Instructions[] INSTRUCTIONS = Instructions.values();
+	private static final int MEMORY_SIZE = FIT_12BIT_ADDRESS + 1;
+	/**
+	 * The fused form of a basic block may also execute the jump following the block.
+	 */
+	private static final int MAX_RUN_INSTRUCTIONS = BlockCache.MAX_BLOCK_INSTRUCTIONS + 1;
+	private static final int PUBLISH_CHECK_INTERVAL = 16;
+	private static final long PUBLISH_INTERVAL_NANOS = 250_000_000L;
+	private static final int SCREEN_DRAW_SAMPLE_INTERVAL = 8;
+	private static final int INSTRUCTION_SAMPLE_INTERVAL = 16;
+	private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+	/**
+	 * The counters of the instructions come first, indexed by ordinal, followed by the other counters.
+	 */
+	private static final int FRAMES = INSTRUCTIONS.length;
+	private static final int INSTRUCTIONS_TOTAL = FRAMES + 1;
+	private static final int SPRITES_DRAWN = FRAMES + 2;
+	private static final int PIXELS_FLIPPED = FRAMES + 3;
+	private static final int SCREEN_DRAWS = FRAMES + 4;
+	private static final int SCREEN_DRAW_NANOS = FRAMES + 5;
+	private static final int DELAY_TIMER_TICKS = FRAMES + 6;
+	private static final int SOUND_TIMER_TICKS = FRAMES + 7;
+	private static final int PROMOTIONS_TO_WARM = FRAMES + 8;
+	private static final int PROMOTIONS_TO_HOT = FRAMES + 9;
+	private static final int COUNTERS = FRAMES + 10;
+	private final MMU mmu;
+	private final long[] counters = new long[COUNTERS];
+	/**
+	 * Runs of executed instructions by address. Runs are at most MAX_RUN_INSTRUCTIONS long, and runs past the last
+	 * address end in the extra space after it.
+	 */
+	private final long[] runs = new long[MEMORY_SIZE + 2 * MAX_RUN_INSTRUCTIONS + 2];
+	private final AtomicLongArray published = new AtomicLongArray(COUNTERS);
+	private long sampledInstructions;
+	private TieringPolicy tieringPolicy;
+	private long countedPromotionsToWarm;
+	private long countedPromotionsToHot;
+	private volatile boolean resetRequested;
+	private volatile double instructionsPerSecond;
+	private volatile double framesPerSecond;
+	private long publishedAt;
+	private long windowStart = -1;
+	private long windowInstructions;
+	private long windowFrames;
+
+	/**
+	 * Creates metrics attributing executed instructions to the instructions in the supplied memory.
+	 */
+	public EmulatorMetrics(MMU mmu) {
+		this.mmu = mmu;
+	}
+
+	/**
+	 * Returns where the blocks executed in the current frame are to be passed: these metrics every
+	 * INSTRUCTION_SAMPLE_INTERVAL frames, and a listener ignoring them otherwise, since counting every basic block
+	 * would take a noticeable part of the time spent executing it.
+	 */
+	public BlockExecutionListener frameBlockListener() {
+		return counters[FRAMES] % INSTRUCTION_SAMPLE_INTERVAL == 0 ? this : BlockExecutionListener.NONE;
+	}
+
+	/**
+	 * Counts an execution of the instructions at consecutive addresses starting at the supplied address, which is what a
+	 * basic block of any tier executes. Runs past the last address end in the extra space after it.
+	 */
+	@Override
+	public void executed(int address, int instructions) {
+		int start = address & FIT_12BIT_ADDRESS;
+		runs[start]++;
+		runs[start + 2 * instructions]--;
+	}
+
+	/**
+	 * Attributes the runs of executed instructions counted so far to the instructions now in memory. Must be called before
+	 * the memory holding executed code is replaced, e.g., when another program is loaded or a state is restored.
+	 */
+	public void attributeExecutions() {
+		for (int parity = 0; parity < 2; parity++) {
+			long executions = 0;
+			for (int address = parity; address < runs.length; address += 2) {
+				executions += runs[address];
+				if (executions != 0) {
+					sampledInstructions += executions;
+					int location = address & FIT_12BIT_ADDRESS;
+					int opcode = mmu.readPrimaryMemory(location) << 8 | mmu.readPrimaryMemory(location + 1);
+					Instructions instruction = Instructions.decode(opcode);
+					if (instruction != null) {
+						counters[instruction.ordinal()] += executions;
+					}
+				}
+			}
+		}
+		Arrays.fill(runs, 0L);
+	}
+
+	/**
+	 * Sets the tiering policy whose promotions are counted from now on. The promotions of the previous policy are kept.
+	 */
+	public void setTieringPolicy(TieringPolicy tieringPolicy) {
+		countPromotions();
+		this.tieringPolicy = tieringPolicy;
+		countedPromotionsToWarm = tieringPolicy.getPromotionsToWarm();
+		countedPromotionsToHot = tieringPolicy.getPromotionsToHot();
+	}
+
+	private void countPromotions() {
+		if (tieringPolicy == null) {
+			return;
+		}
+		counters[PROMOTIONS_TO_WARM] += tieringPolicy.getPromotionsToWarm() - countedPromotionsToWarm;
+		counters[PROMOTIONS_TO_HOT] += tieringPolicy.getPromotionsToHot() - countedPromotionsToHot;
+		countedPromotionsToWarm = tieringPolicy.getPromotionsToWarm();
+		countedPromotionsToHot = tieringPolicy.getPromotionsToHot();
+	}
+
+	public void instructionsExecuted(int instructions) {
+		counters[INSTRUCTIONS_TOTAL] += instructions;
+	}
+
+	public void spriteDrawn(int flippedPixels) {
+		counters[SPRITES_DRAWN]++;
+		counters[PIXELS_FLIPPED] += flippedPixels;
+	}
+
+	/**
+	 * Counts a screen draw, and returns true if the time of the draw should be measured and passed to screenDrawTimed.
+	 * Only every SCREEN_DRAW_SAMPLE_INTERVAL draws are measured, since reading the clock may take as long as drawing a
+	 * screen where little has changed.
+	 */
+	public boolean screenDrawn() {
+		return ++counters[SCREEN_DRAWS] % SCREEN_DRAW_SAMPLE_INTERVAL == 0;
+	}
+
+	public void screenDrawTimed(long nanos) {
+		counters[SCREEN_DRAW_NANOS] += nanos * SCREEN_DRAW_SAMPLE_INTERVAL;
+	}
+
+	public void delayTimerTicked() {
+		counters[DELAY_TIMER_TICKS]++;
+	}
+
+	public void soundTimerTicked() {
+		counters[SOUND_TIMER_TICKS]++;
+	}
+
+	/**
+	 * Counts the end of a frame. Every PUBLISH_CHECK_INTERVAL frames the clock is read, and the counters are published if
+	 * PUBLISH_INTERVAL_NANOS have passed since they were last published.
+	 */
+	public void frameEnded() {
+		if ((++counters[FRAMES] & (PUBLISH_CHECK_INTERVAL - 1)) == 0) {
+			long now = System.nanoTime();
+			if (now - publishedAt >= PUBLISH_INTERVAL_NANOS) {
+				publish(now);
+			}
+		}
+	}
+
+	/**
+	 * Publishes the counters to other threads. Must be called on the thread counting, or when that thread is stopped.
+	 */
+	public void publish() {
+		publish(System.nanoTime());
+	}
+
+	private void publish(long now) {
+		publishedAt = now;
+		if (resetRequested) {
+			resetRequested = false;
+			clearCounters();
+		}
+		attributeExecutions();
+		countPromotions();
+		double scale = sampledInstructions == 0 ? 0 : (double) counters[INSTRUCTIONS_TOTAL] / sampledInstructions;
+		for (int i = 0; i < FRAMES; i++) {
+			published.lazySet(i, Math.round(counters[i] * scale));
+		}
+		for (int i = FRAMES; i < COUNTERS; i++) {
+			published.lazySet(i, counters[i]);
+		}
+		updateRates(now);
+	}
+
+	private void updateRates(long now) {
+		if (windowStart < 0) {
+			startWindow(now);
+			return;
+		}
+		long elapsed = now - windowStart;
+		if (elapsed >= RATE_WINDOW_NANOS) {
+			instructionsPerSecond = (counters[INSTRUCTIONS_TOTAL] - windowInstructions) * 1e9 / elapsed;
+			framesPerSecond = (counters[FRAMES] - windowFrames) * 1e9 / elapsed;
+			startWindow(now);
+		}
+	}
+
+	private void startWindow(long now) {
+		windowStart = now;
+		windowInstructions = counters[INSTRUCTIONS_TOTAL];
+		windowFrames = counters[FRAMES];
+	}
+
+	private void clearCounters() {
+		Arrays.fill(runs, 0L);
+		sampledInstructions = 0;
+		countPromotions();
+		for (int i = 0; i < COUNTERS; i++) {
+			counters[i] = 0;
+		}
+		windowStart = -1;
+		instructionsPerSecond = 0;
+		framesPerSecond = 0;
+	}
+
+	/**
+	 * The estimated number of times the supplied instruction has been executed, as of the latest publishing.
+	 */
+	public long instructionCount(Instructions instruction) {
+		return published.get(instruction.ordinal());
+	}
+
+	@Override
+	public long getFrames() {
+		return published.get(FRAMES);
+	}
+
+	@Override
+	public long getInstructions() {
+		return published.get(INSTRUCTIONS_TOTAL);
+	}
+
+	@Override
+	public Map<String, Long> getInstructionCounts() {
+		Map<String, Long> counts = new LinkedHashMap<>();
+		for (Instructions instruction : INSTRUCTIONS) {
+			counts.put(instruction.name(), published.get(instruction.ordinal()));
+		}
+		return counts;
+	}
+
+	@Override
+	public double getInstructionsPerSecond() {
+		return instructionsPerSecond;
+	}
+
+	@Override
+	public double getFramesPerSecond() {
+		return framesPerSecond;
+	}
+
+	@Override
+	public long getSpritesDrawn() {
+		return published.get(SPRITES_DRAWN);
+	}
+
+	@Override
+	public long getPixelsFlipped() {
+		return published.get(PIXELS_FLIPPED);
+	}
+
+	@Override
+	public long getScreenDraws() {
+		return published.get(SCREEN_DRAWS);
+	}
+
+	@Override
+	public double getScreenDrawMillis() {
+		return published.get(SCREEN_DRAW_NANOS) / 1e6;
+	}
+
+	@Override
+	public long getDelayTimerTicks() {
+		return published.get(DELAY_TIMER_TICKS);
+	}
+
+	@Override
+	public long getSoundTimerTicks() {
+		return published.get(SOUND_TIMER_TICKS);
+	}
+
+	@Override
+	public long getPromotionsToWarm() {
+		return published.get(PROMOTIONS_TO_WARM);
+	}
+
+	@Override
+	public long getPromotionsToHot() {
+		return published.get(PROMOTIONS_TO_HOT);
+	}
+
+	/**
+	 * Clears the counters. The emulation thread clears its counters the next time it publishes them, so the published
+	 * values are only cleared then.
+	 */
+	@Override
+	public void reset() {
+		resetRequested = true;
+	}
+}
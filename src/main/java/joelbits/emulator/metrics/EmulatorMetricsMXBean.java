@@ -0,0 +1,59 @@
+package joelbits.emulator.metrics;
+
+import java.util.Map;
+
+/**
+ * The metrics of one emulator, as published over JMX. The values are those published at the end of the latest
+ * publishing interval, which is a few times a second while the emulator is running at normal speed.
+ */
+public interface EmulatorMetricsMXBean {
+	long getFrames();
+
+	long getInstructions();
+
+	/**
+	 * The estimated number of times each instruction has been executed, by instruction name, sampled from some of the
+	 * frames.
+	 */
+	Map<String, Long> getInstructionCounts();
+
+	double getInstructionsPerSecond();
+
+	double getFramesPerSecond();
+
+	/**
+	 * The number of executed DRW instructions.
+	 */
+	long getSpritesDrawn();
+
+	/**
+	 * The number of display pixels flipped by sprites, i.e., the number of set sprite bits drawn.
+	 */
+	long getPixelsFlipped();
+
+	/**
+	 * The number of times the screen has been drawn from the display buffer.
+	 */
+	long getScreenDraws();
+
+	/**
+	 * The time spent drawing the screen, estimated from a sample of the screen draws.
+	 */
+	double getScreenDrawMillis();
+
+	long getDelayTimerTicks();
+
+	long getSoundTimerTicks();
+
+	/**
+	 * The number of addresses whose code has been promoted from the cold to the warm execution tier.
+	 */
+	long getPromotionsToWarm();
+
+	/**
+	 * The number of addresses whose code has been promoted from the warm to the hot execution tier.
+	 */
+	long getPromotionsToHot();
+
+	void reset();
+}
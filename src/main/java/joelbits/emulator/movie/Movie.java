@@ -0,0 +1,23 @@
+package joelbits.emulator.movie;
+
+import joelbits.emulator.input.InputTimeline;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A recorded session of a deterministic run: the ROM it was recorded with, the seed and velocity, the key pressed in
+ * every frame and the hash of the machine state at the end of every frame.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class Movie {
+	private final long programHash;
+	private final long randomSeed;
+	private final int velocity;
+	private final InputTimeline input;
+	private final long[] frameHashes;
+
+	public int frames() {
+		return frameHashes.length;
+	}
+}
@@ -0,0 +1,44 @@
+package joelbits.emulator.movie;
+
+import java.util.Arrays;
+
+import joelbits.emulator.input.InputTimeline;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Collects the state hash at the end of every frame while a movie is recorded. Recording the hash of a frame discards the
+ * hashes of any later frames, so that recording can continue after the emulation has been rewound.
+ */
+@RequiredArgsConstructor
+public final class MovieRecorder {
+	private static final int INITIAL_CAPACITY = 1024;
+	private final long programHash;
+	private final long randomSeed;
+	private final int velocity;
+	private long[] frameHashes = new long[INITIAL_CAPACITY];
+	private int frames;
+
+	public void frameEnded(long frame, long stateHash) {
+		if (frame >= frameHashes.length) {
+			frameHashes = Arrays.copyOf(frameHashes, (int) Math.max(frame + 1, frameHashes.length * 2L));
+		}
+		frameHashes[(int) frame] = stateHash;
+		frames = (int) frame + 1;
+	}
+
+	public int frames() {
+		return frames;
+	}
+
+	/**
+	 * Creates a movie of the frames recorded so far, with the input recorded for the same frames.
+	 */
+	public Movie createMovie(InputTimeline recordedInput) {
+		InputTimeline input = new InputTimeline();
+		for (int change = 0; change < recordedInput.changes() && recordedInput.changeFrame(change) < frames; change++) {
+			input.record(recordedInput.changeFrame(change), recordedInput.changeKey(change));
+		}
+		input.setLength(frames);
+		return new Movie(programHash, randomSeed, velocity, input, Arrays.copyOf(frameHashes, frames));
+	}
+}
@@ -0,0 +1,49 @@
+package joelbits.emulator.movie;
+
+import joelbits.emulator.Chip8;
+import joelbits.emulator.EmulatorFactory;
+import joelbits.emulator.Program;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Replays movies headless, as fast as the host allows, and verifies the state hash of every frame against the hashes in
+ * the movie. Every replay runs in an emulator of its own.
+ */
+@RequiredArgsConstructor
+public final class MovieReplayer {
+	private final int screenWidth;
+	private final int screenHeight;
+	private final boolean jitEnabled;
+
+	/**
+	 * @throws IllegalArgumentException	if the movie was not recorded with the supplied program
+	 */
+	public ReplayResult replay(Program program, Movie movie) {
+		if (Movies.programHash(program.data()) != movie.getProgramHash()) {
+			throw new IllegalArgumentException("Movie was recorded with a different program");
+		}
+		GameSettings settings = new GameSettings();
+		settings.setDeterministic(true);
+		settings.setRandomSeed(movie.getRandomSeed());
+		settings.setVelocity(movie.getVelocity());
+		settings.setJitEnabled(jitEnabled);
+		Chip8 emulator = EmulatorFactory.createChip8(settings, new Keypad(), new SilentAudio(), new HeadlessScreen(screenWidth, screenHeight));
+		emulator.load(program);
+		emulator.setInputTimeline(movie.getInput());
+
+		long[] frameHashes = movie.getFrameHashes();
+		long start = System.nanoTime();
+		for (int frame = 0; frame < frameHashes.length; frame++) {
+			emulator.runFrame();
+			long hash = emulator.stateHash();
+			if (hash != frameHashes[frame]) {
+				return new ReplayResult(frame, frame, frameHashes[frame], hash, System.nanoTime() - start);
+			}
+		}
+		return new ReplayResult(frameHashes.length, -1, 0, 0, System.nanoTime() - start);
+	}
+}
@@ -0,0 +1,163 @@
+package joelbits.emulator.movie;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import joelbits.emulator.input.InputTimeline;
+
+/**
+ * Reads and writes movies in a versioned binary format. All values are stored big-endian:
+ *
+ * <pre>
+ * int     magic "C8MV"
+ * short   format version
+ * long    program hash, long random seed, int velocity
+ * int     number of frames
+ * runs    the key of every frame, run-length encoded as a varint number of frames followed by a byte key, until
+ *         all frames are covered
+ * long[]  the state hash at the end of every frame
+ * </pre>
+ */
+public final class Movies {
+	public static final int MAGIC = 0x43384D56;
+	public static final int VERSION = 1;
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	private static final int INITIAL_FRAME_CAPACITY = 1024;
+
+	private Movies() {
+	}
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of a program, which identifies the ROM a movie was recorded with.
+	 */
+	public static long programHash(byte[] program) {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte data : program) {
+			hash = (hash ^ (data & 0xFF)) * FNV_PRIME;
+		}
+		return hash;
+	}
+
+	public static void write(Movie movie, OutputStream stream) throws IOException {
+		DataOutputStream output = new DataOutputStream(stream);
+		output.writeInt(MAGIC);
+		output.writeShort(VERSION);
+		output.writeLong(movie.getProgramHash());
+		output.writeLong(movie.getRandomSeed());
+		output.writeInt(movie.getVelocity());
+		output.writeInt(movie.frames());
+
+		InputTimeline input = movie.getInput();
+		long runStart = 0;
+		int key = 0;
+		for (int change = 0; change < input.changes() && input.changeFrame(change) < movie.frames(); change++) {
+			writeRun(output, input.changeFrame(change) - runStart, key);
+			runStart = input.changeFrame(change);
+			key = input.changeKey(change);
+		}
+		writeRun(output, movie.frames() - runStart, key);
+
+		for (long hash : movie.getFrameHashes()) {
+			output.writeLong(hash);
+		}
+		output.flush();
+	}
+
+	private static void writeRun(DataOutputStream output, long frames, int key) throws IOException {
+		if (frames == 0) {
+			return;
+		}
+		while ((frames & ~0x7FL) != 0) {
+			output.writeByte((int) (frames & 0x7F) | 0x80);
+			frames >>>= 7;
+		}
+		output.writeByte((int) frames);
+		output.writeByte(key);
+	}
+
+	/**
+	 * The frame hashes are read into an array that grows with the frames actually read, so a corrupt number of frames
+	 * ends the stream early instead of allocating memory for every frame up front.
+	 *
+	 * @throws IllegalArgumentException	if the stream does not hold a movie of a supported version, or the movie is
+	 * 									corrupt
+	 * @throws java.io.EOFException		if the stream ends before the movie does
+	 */
+	public static Movie read(InputStream stream) throws IOException {
+		DataInputStream input = new DataInputStream(stream);
+		int magic = input.readInt();
+		if (magic != MAGIC) {
+			throw new IllegalArgumentException("Not a movie, magic number is " + Integer.toHexString(magic));
+		}
+		int version = input.readUnsignedShort();
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported movie version " + version + ", expected " + VERSION);
+		}
+		long programHash = input.readLong();
+		long randomSeed = input.readLong();
+		int velocity = input.readInt();
+		int frames = input.readInt();
+		if (velocity <= 0) {
+			throw new IllegalArgumentException("Invalid velocity " + velocity + " in movie");
+		}
+		if (frames < 0) {
+			throw new IllegalArgumentException("Invalid number of frames " + frames + " in movie");
+		}
+
+		InputTimeline timeline = new InputTimeline();
+		long frame = 0;
+		while (frame < frames) {
+			long run = readVarint(input);
+			if (run <= 0 || run > frames - frame) {
+				throw new IllegalArgumentException("Invalid run of " + run + " frames at frame " + frame + " of " + frames);
+			}
+			timeline.record(frame, input.readUnsignedByte());
+			frame += run;
+		}
+		timeline.setLength(frames);
+
+		long[] frameHashes = new long[Math.min(frames, INITIAL_FRAME_CAPACITY)];
+		for (int i = 0; i < frames; i++) {
+			if (i == frameHashes.length) {
+				frameHashes = Arrays.copyOf(frameHashes, (int) Math.min(frames, 2L * frameHashes.length));
+			}
+			frameHashes[i] = input.readLong();
+		}
+		return new Movie(programHash, randomSeed, velocity, timeline, frameHashes);
+	}
+
+	private static long readVarint(DataInputStream input) throws IOException {
+		long value = 0;
+		for (int shift = 0; ; shift += 7) {
+			if (shift >= Long.SIZE) {
+				throw new IllegalArgumentException("Run length longer than " + Long.SIZE + " bits");
+			}
+			int b = input.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+	}
+
+	public static void write(Movie movie, Path file) throws IOException {
+		try (OutputStream stream = new BufferedOutputStream(Files.newOutputStream(file))) {
+			write(movie, stream);
+		}
+	}
+
+	public static Movie read(Path file) throws IOException {
+		try (InputStream stream = new BufferedInputStream(Files.newInputStream(file))) {
+			return read(stream);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package joelbits.emulator.movie;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The outcome of replaying a movie. A replay stops at the first frame whose state hash differs from the recording.
+ */
+@Getter
+@RequiredArgsConstructor
+public final class ReplayResult {
+	private final int framesReplayed;
+	private final int mismatchFrame;
+	private final long expectedHash;
+	private final long actualHash;
+	private final long elapsedNanos;
+
+	public boolean isVerified() {
+		return mismatchFrame < 0;
+	}
+
+	@Override
+	public String toString() {
+		if (isVerified()) {
+			return String.format("verified frames=%d elapsedMs=%.3f", framesReplayed, elapsedNanos / 1e6);
+		}
+		return String.format("mismatch frame=%d expected=%016x actual=%016x", mismatchFrame, expectedHash, actualHash);
+	}
+}
@@ -1,31 +1,109 @@
 package joelbits.emulator.output;
 
+import java.util.Arrays;
+
+import javafx.animation.AnimationTimer;
 import javafx.scene.canvas.GraphicsContext;
-import joelbits.emulator.cache.EmulatorCache;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
 
+/**
+ * Renders the display into an ARGB frame with one int per pixel. Once per frame the emulator presents the frame, which
+ * scales every pixel up to a block of pixelSize by pixelSize, after which it is uploaded to an image through a
+ * PixelWriter on the JavaFX thread at the next pulse, and drawn unscaled onto the canvas. The image is scaled by hand
+ * since JavaFX 8 always smooths images that are drawn scaled. The graphics context is therefore only used on the JavaFX
+ * thread, and the cost of rendering a frame does not depend on how many pixels were changed.
+ */
 public class Chip8Screen extends Screen<Integer> {
-    private final GraphicsContext graphicsContext = EmulatorCache.getInstance().getGraphicsContext();
+    private static final int FOREGROUND = 0xFFFFFFFF;
+    private static final int BACKGROUND = 0xFF000000;
+    private final GraphicsContext graphicsContext;
+    private final WritableImage image;
+    private final AnimationTimer uploadTimer;
+    private final int[] frame;
+    private final int[] presentedFrame;
+    private final int scaledWidth;
+    private final int scaledHeight;
+    private boolean framePresented;
 
-    public Chip8Screen(Integer width, Integer height, Integer pixelSize) {
+    public Chip8Screen(GraphicsContext graphicsContext, Integer width, Integer height, Integer pixelSize) {
         super(width, height, pixelSize);
+        this.graphicsContext = graphicsContext;
+        scaledWidth = width * pixelSize;
+        scaledHeight = height * pixelSize;
+        image = new WritableImage(scaledWidth, scaledHeight);
+        frame = new int[width * height];
+        presentedFrame = new int[scaledWidth * scaledHeight];
+        Arrays.fill(frame, BACKGROUND);
+        uploadTimer = createUploadTimer();
+        uploadTimer.start();
+    }
+
+    private AnimationTimer createUploadTimer() {
+        return new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                uploadFrame();
+            }
+        };
+    }
+
+    private void uploadFrame() {
+        synchronized (presentedFrame) {
+            if (!framePresented) {
+                return;
+            }
+            image.getPixelWriter().setPixels(0, 0, scaledWidth, scaledHeight, PixelFormat.getIntArgbInstance(), presentedFrame, 0, scaledWidth);
+            framePresented = false;
+        }
+        graphicsContext.drawImage(image, 0, 0);
     }
 
     @Override
     public void fill(double x, double y) {
-        graphicsContext.fillRect(x* getPixelSize(), y* getPixelSize(), getPixelSize(), getPixelSize());
+        frame[(int) y * getWidth() + (int) x] = FOREGROUND;
     }
 
     @Override
     public void clear(double x, double y) {
-        graphicsContext.clearRect(x* getPixelSize(), y* getPixelSize(), getPixelSize(), getPixelSize());
+        frame[(int) y * getWidth() + (int) x] = BACKGROUND;
     }
 
     @Override
     public void clearAll(int bufferSize) {
-        for (int i = 0; i < bufferSize; i++) {
-            int coordinateX = i % getWidth();
-            int coordinateY = i / getWidth();
-            graphicsContext.clearRect(coordinateX* getPixelSize(), coordinateY* getPixelSize(), getPixelSize(), getPixelSize());
+        Arrays.fill(frame, BACKGROUND);
+    }
+
+    @Override
+    public void dispose() {
+        uploadTimer.stop();
+    }
+
+    @Override
+    public void render() {
+        synchronized (presentedFrame) {
+            scaleFrame();
+            framePresented = true;
+        }
+    }
+
+    /**
+     * Writes every pixel of the frame as a block of pixelSize by pixelSize pixels to the presented frame. The first row
+     * of each block is filled pixel by pixel, and copied to the other rows of the block.
+     */
+    private void scaleFrame() {
+        int width = getWidth();
+        int height = getHeight();
+        int pixelSize = getPixelSize();
+        for (int y = 0; y < height; y++) {
+            int rowStart = y * pixelSize * scaledWidth;
+            for (int x = 0; x < width; x++) {
+                int blockStart = rowStart + x * pixelSize;
+                Arrays.fill(presentedFrame, blockStart, blockStart + pixelSize, frame[y * width + x]);
+            }
+            for (int row = 1; row < pixelSize; row++) {
+                System.arraycopy(presentedFrame, rowStart, presentedFrame, rowStart + row * scaledWidth, scaledWidth);
+            }
         }
     }
 }
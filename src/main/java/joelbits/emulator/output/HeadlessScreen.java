@@ -0,0 +1,24 @@
+package joelbits.emulator.output;
+
+/**
+ * A screen that renders nothing. The display buffer is the only representation of what is shown, which makes it
+ * possible to run the emulator without a JavaFX toolkit.
+ */
+public class HeadlessScreen extends Screen<Integer> {
+
+    public HeadlessScreen(Integer width, Integer height) {
+        super(width, height, 1);
+    }
+
+    @Override
+    public void fill(double x, double y) { }
+
+    @Override
+    public void clear(double x, double y) { }
+
+    @Override
+    public void clearAll(int bufferSize) { }
+
+    @Override
+    public void render() { }
+}
@@ -13,4 +13,15 @@ public abstract class Screen<T> {
 	public abstract void fill(double x, double y);
 	public abstract void clear(double x, double y);
 	public abstract void clearAll(int bufferSize);
+
+	/**
+	 * Presents the current frame. Called once per frame, after all changed pixels have been filled or cleared.
+	 */
+	public abstract void render();
+
+	/**
+	 * Releases any resources held by the screen. The screen is not used after it has been disposed.
+	 */
+	public void dispose() {
+	}
 }
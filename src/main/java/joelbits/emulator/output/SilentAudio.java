@@ -0,0 +1,19 @@
+package joelbits.emulator.output;
+
+/**
+ * Audio that never plays anything, used when the emulator runs without a sound device.
+ */
+public final class SilentAudio implements Audio {
+
+	@Override
+	public void start() { }
+
+	@Override
+	public void stop() { }
+
+	@Override
+	public void mute() { }
+
+	@Override
+	public void unmute() { }
+}
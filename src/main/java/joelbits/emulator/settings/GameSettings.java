@@ -1,5 +1,6 @@
 package joelbits.emulator.settings;
 
+import joelbits.emulator.cpu.CallStack;
 import lombok.Data;
 
 import java.net.URI;
@@ -7,7 +8,14 @@ import java.net.URI;
 @Data
 public class GameSettings {
 	private int velocity = 10;
-	private boolean running;
-	private boolean paused;
+	private volatile boolean paused;
+	private boolean jitEnabled;
+	private int warmThreshold = 2;
+	private int hotThreshold = 50;
+	private int stackLevels = CallStack.DEFAULT_LEVELS;
+	private int rewindSeconds;
+	private boolean deterministic;
+	private long randomSeed;
+	private boolean metricsEnabled;
 	private URI gamePath;
 }
@@ -0,0 +1,103 @@
+package joelbits.emulator.state;
+
+import lombok.Data;
+
+/**
+ * A copy of everything that determines how a running program continues: memory, registers, stack, timers, display,
+ * random number generator state, a pending key wait and the number of frames run so far. The velocity is a setting of
+ * the user rather than of the machine, so it is not part of the state.
+ *
+ * The arrays are allocated once, so that the same state can be snapshotted into and restored from again and again
+ * without allocating. Only the first stack pointer elements of the stack are part of the state.
+ */
+@Data
+public final class MachineState {
+	private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+	private static final long FNV_PRIME = 0x100000001B3L;
+	private final byte[] memory;
+	private final int[] dataRegisters;
+	private final int[] stack;
+	private final long[] display;
+	private long frame;
+	private int index;
+	private int programCounter;
+	private int stackPointer;
+	private int delayTimer;
+	private int soundTimer;
+	private long randomState;
+	private boolean waitingForKey;
+	private int keyPressedWhileWaiting;
+
+	public MachineState(int memorySize, int stackLevels, int displayWords) {
+		memory = new byte[memorySize];
+		dataRegisters = new int[16];
+		stack = new int[stackLevels];
+		display = new long[displayWords];
+	}
+
+	/**
+	 * Copies the supplied state into this state, which must have been created with the same sizes.
+	 */
+	public void copyFrom(MachineState source) {
+		System.arraycopy(source.memory, 0, memory, 0, memory.length);
+		System.arraycopy(source.dataRegisters, 0, dataRegisters, 0, dataRegisters.length);
+		System.arraycopy(source.stack, 0, stack, 0, stack.length);
+		System.arraycopy(source.display, 0, display, 0, display.length);
+		frame = source.frame;
+		index = source.index;
+		programCounter = source.programCounter;
+		stackPointer = source.stackPointer;
+		delayTimer = source.delayTimer;
+		soundTimer = source.soundTimer;
+		randomState = source.randomState;
+		waitingForKey = source.waitingForKey;
+		keyPressedWhileWaiting = source.keyPressedWhileWaiting;
+	}
+
+	/**
+	 * Returns a 64-bit FNV-1a hash of the state. Two runs of the same program with the same seed and input are in the
+	 * same state after the same number of frames if and only if, barring collisions, their hashes are equal.
+	 */
+	public long stateHash() {
+		long hash = FNV_OFFSET_BASIS;
+		for (byte location : memory) {
+			hash = (hash ^ (location & 0xFF)) * FNV_PRIME;
+		}
+		for (int register : dataRegisters) {
+			hash = hash(hash, register);
+		}
+		for (int i = 0; i < stackPointer; i++) {
+			hash = hash(hash, stack[i]);
+		}
+		for (long word : display) {
+			hash = hash(hash, word);
+		}
+		hash = hash(hash, frame);
+		hash = hash(hash, index);
+		hash = hash(hash, programCounter);
+		hash = hash(hash, stackPointer);
+		hash = hash(hash, delayTimer);
+		hash = hash(hash, soundTimer);
+		hash = hash(hash, randomState);
+		hash = hash(hash, waitingForKey ? 1 : 0);
+		return hash(hash, keyPressedWhileWaiting);
+	}
+
+	/**
+	 * Returns a 64-bit FNV-1a hash of the display only, i.e., of what is on the screen.
+	 */
+	public long displayHash() {
+		long hash = FNV_OFFSET_BASIS;
+		for (long word : display) {
+			hash = hash(hash, word);
+		}
+		return hash;
+	}
+
+	private static long hash(long hash, long value) {
+		for (int shift = 0; shift < Long.SIZE; shift += Byte.SIZE) {
+			hash = (hash ^ ((value >>> shift) & 0xFF)) * FNV_PRIME;
+		}
+		return hash;
+	}
+}
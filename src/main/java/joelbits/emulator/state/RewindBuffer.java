@@ -0,0 +1,308 @@
+package joelbits.emulator.state;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Keeps the machine states of the most recent frames, so that the emulation can be stepped backwards one frame at a time.
+ *
+ * Each captured state is flattened into an image of fixed layout, XORed with the image of the latest keyframe and
+ * run-length encoded, so that a frame only costs the bytes that differ from its keyframe. Keyframes are encoded the same
+ * way against an image of zeros, which compresses the unused parts of memory. A new keyframe is taken every keyframe
+ * interval frames, so a frame is always decoded from its keyframe and its own delta only.
+ *
+ * All encoded frames are stored in one arena of fixed size that is used as a ring. When the arena or the frame index is
+ * full, the oldest frames are dropped, together with any frames whose keyframe has been dropped. Capturing and rewinding
+ * never allocate.
+ *
+ * An encoded frame is a sequence of pairs, each a varint number of unchanged bytes followed by a varint number of changed
+ * bytes and the changed bytes XORed with the keyframe. The pairs continue until the whole image has been covered.
+ */
+public final class RewindBuffer {
+	private static final int MIN_UNCHANGED_RUN = 3;
+	private static final int MAX_VARINT_BYTES = 5;
+	private final int maxFrames;
+	private final int keyframeInterval;
+	private final byte[] arena;
+	private final int[] offsets;
+	private final int[] lengths;
+	private final long[] keyframes;
+	private final byte[] image;
+	private final byte[] keyImage;
+	private final byte[] zeros;
+	private final byte[] record;
+	private final ByteBuffer imageBuffer;
+	private long keyImageSequence = -1;
+	private long oldest;
+	private long next;
+	private int head;
+	private int usedBytes;
+
+	/**
+	 * @param template			a state of the same sizes as the states that will be captured
+	 * @param maxFrames			the number of frames that can be kept at most
+	 * @param keyframeInterval	the number of frames from one keyframe to the next
+	 * @param arenaSize			the number of bytes available for encoded frames, which must fit at least one keyframe
+	 */
+	public RewindBuffer(MachineState template, int maxFrames, int keyframeInterval, int arenaSize) {
+		if (maxFrames < 1 || keyframeInterval < 1) {
+			throw new IllegalArgumentException("Rewind buffer of " + maxFrames + " frames with keyframe interval " + keyframeInterval);
+		}
+		int imageSize = template.getMemory().length + Long.BYTES * template.getDisplay().length
+				+ template.getDataRegisters().length + Short.BYTES * template.getStack().length + 32;
+		int recordBound = imageSize + 2 * MAX_VARINT_BYTES * (imageSize / MIN_UNCHANGED_RUN + 2);
+		if (arenaSize < recordBound) {
+			throw new IllegalArgumentException("Rewind arena of " + arenaSize + " bytes is smaller than one frame of " + recordBound + " bytes");
+		}
+		this.maxFrames = maxFrames;
+		this.keyframeInterval = keyframeInterval;
+		arena = new byte[arenaSize];
+		offsets = new int[maxFrames];
+		lengths = new int[maxFrames];
+		keyframes = new long[maxFrames];
+		image = new byte[imageSize];
+		keyImage = new byte[imageSize];
+		zeros = new byte[imageSize];
+		record = new byte[recordBound];
+		imageBuffer = ByteBuffer.wrap(image);
+	}
+
+	/**
+	 * Adds the state as the newest frame, dropping the oldest frames if there is no room for it.
+	 */
+	public void capture(MachineState state) {
+		writeImage(state);
+		long newestKeyframe = size() > 0 ? keyframes[slot(next - 1)] : -1;
+		boolean keyframe = newestKeyframe < 0 || newestKeyframe != keyImageSequence || next - keyImageSequence >= keyframeInterval;
+		int length = encode(keyframe ? zeros : keyImage);
+		int offset = reserve(length);
+		if (!keyframe && keyImageSequence < oldest) {
+			keyframe = true;
+			length = encode(zeros);
+			head = offset;
+			offset = reserve(length);
+		}
+		System.arraycopy(record, 0, arena, offset, length);
+		int slot = slot(next);
+		offsets[slot] = offset;
+		lengths[slot] = length;
+		if (keyframe) {
+			System.arraycopy(image, 0, keyImage, 0, image.length);
+			keyImageSequence = next;
+		}
+		keyframes[slot] = keyImageSequence;
+		usedBytes += length;
+		next++;
+	}
+
+	/**
+	 * Removes the newest frame and copies its state into the supplied state.
+	 *
+	 * @return	false if there are no frames left, in which case the state is left as it is
+	 */
+	public boolean rewind(MachineState state) {
+		if (size() == 0) {
+			return false;
+		}
+		long sequence = next - 1;
+		int slot = slot(sequence);
+		long keyframe = keyframes[slot];
+		if (keyframe != keyImageSequence) {
+			System.arraycopy(zeros, 0, keyImage, 0, keyImage.length);
+			int keySlot = slot(keyframe);
+			decode(offsets[keySlot], lengths[keySlot], keyImage);
+			keyImageSequence = keyframe;
+		}
+		System.arraycopy(keyImage, 0, image, 0, image.length);
+		if (sequence != keyframe) {
+			decode(offsets[slot], lengths[slot], image);
+		}
+		readImage(state);
+
+		next = sequence;
+		head = offsets[slot];
+		usedBytes -= lengths[slot];
+		if (next == oldest) {
+			clear();
+		}
+		return true;
+	}
+
+	public void clear() {
+		oldest = next;
+		head = 0;
+		usedBytes = 0;
+		keyImageSequence = -1;
+	}
+
+	/**
+	 * The number of frames that can currently be rewound.
+	 */
+	public int size() {
+		return (int) (next - oldest);
+	}
+
+	/**
+	 * The number of bytes used by the encoded frames.
+	 */
+	public int usedBytes() {
+		return usedBytes;
+	}
+
+	public int arenaSize() {
+		return arena.length;
+	}
+
+	private int slot(long sequence) {
+		return (int) (sequence % maxFrames);
+	}
+
+	/**
+	 * Returns the offset in the arena where a frame of the supplied length is written, after dropping the frames that
+	 * are in the way. Frames at or after the head of the arena are older than the frames before it, so if the frame
+	 * does not fit after the head all of them are dropped and the frame is written at the start of the arena instead.
+	 */
+	private int reserve(int length) {
+		if (size() == maxFrames) {
+			dropOldest();
+		}
+		int start = head;
+		if (start + length > arena.length) {
+			while (size() > 0 && offsets[slot(oldest)] >= head) {
+				dropOldest();
+			}
+			start = 0;
+		}
+		while (size() > 0 && offsets[slot(oldest)] >= start && offsets[slot(oldest)] < start + length) {
+			dropOldest();
+		}
+		head = start + length;
+		return start;
+	}
+
+	/**
+	 * Drops the oldest frame, and then every frame that depends on a keyframe that is no longer kept.
+	 */
+	private void dropOldest() {
+		do {
+			usedBytes -= lengths[slot(oldest)];
+			oldest++;
+		} while (size() > 0 && keyframes[slot(oldest)] < oldest);
+	}
+
+	private int encode(byte[] base) {
+		int length = 0;
+		int position = 0;
+		while (position < image.length) {
+			int unchanged = position;
+			while (position < image.length && image[position] == base[position]) {
+				position++;
+			}
+			length = writeVarint(position - unchanged, length);
+			int changed = position;
+			while (position < image.length && !isUnchangedRun(base, position)) {
+				position++;
+			}
+			length = writeVarint(position - changed, length);
+			for (int i = changed; i < position; i++) {
+				record[length++] = (byte) (image[i] ^ base[i]);
+			}
+		}
+		return length;
+	}
+
+	private boolean isUnchangedRun(byte[] base, int position) {
+		int end = Math.min(position + MIN_UNCHANGED_RUN, image.length);
+		for (int i = position; i < end; i++) {
+			if (image[i] != base[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private int writeVarint(int value, int position) {
+		while ((value & ~0x7F) != 0) {
+			record[position++] = (byte) ((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		record[position++] = (byte) value;
+		return position;
+	}
+
+	private void decode(int offset, int length, byte[] target) {
+		int position = offset;
+		int end = offset + length;
+		int location = 0;
+		while (position < end) {
+			int unchanged = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = arena[position++];
+				unchanged |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					break;
+				}
+			}
+			location += unchanged;
+			int changed = 0;
+			for (int shift = 0; ; shift += 7) {
+				byte b = arena[position++];
+				changed |= (b & 0x7F) << shift;
+				if (b >= 0) {
+					break;
+				}
+			}
+			for (int i = 0; i < changed; i++) {
+				target[location++] ^= arena[position++];
+			}
+		}
+	}
+
+	private void writeImage(MachineState state) {
+		imageBuffer.clear();
+		imageBuffer.put(state.getMemory());
+		for (long word : state.getDisplay()) {
+			imageBuffer.putLong(word);
+		}
+		for (int register : state.getDataRegisters()) {
+			imageBuffer.put((byte) register);
+		}
+		for (int address : state.getStack()) {
+			imageBuffer.putShort((short) address);
+		}
+		imageBuffer.putLong(state.getFrame());
+		imageBuffer.putShort((short) state.getIndex());
+		imageBuffer.putShort((short) state.getProgramCounter());
+		imageBuffer.putShort((short) state.getStackPointer());
+		imageBuffer.putInt(state.getDelayTimer());
+		imageBuffer.putInt(state.getSoundTimer());
+		imageBuffer.putLong(state.getRandomState());
+		imageBuffer.put((byte) (state.isWaitingForKey() ? 1 : 0));
+		imageBuffer.put((byte) state.getKeyPressedWhileWaiting());
+	}
+
+	private void readImage(MachineState state) {
+		imageBuffer.clear();
+		imageBuffer.get(state.getMemory());
+		long[] display = state.getDisplay();
+		for (int i = 0; i < display.length; i++) {
+			display[i] = imageBuffer.getLong();
+		}
+		int[] dataRegisters = state.getDataRegisters();
+		for (int i = 0; i < dataRegisters.length; i++) {
+			dataRegisters[i] = imageBuffer.get() & 0xFF;
+		}
+		int[] stack = state.getStack();
+		for (int i = 0; i < stack.length; i++) {
+			stack[i] = imageBuffer.getShort() & 0xFFFF;
+		}
+		state.setFrame(imageBuffer.getLong());
+		state.setIndex(imageBuffer.getShort() & 0xFFFF);
+		state.setProgramCounter(imageBuffer.getShort() & 0xFFFF);
+		state.setStackPointer(imageBuffer.getShort() & 0xFFFF);
+		state.setDelayTimer(imageBuffer.getInt());
+		state.setSoundTimer(imageBuffer.getInt());
+		state.setRandomState(imageBuffer.getLong());
+		state.setWaitingForKey(imageBuffer.get() != 0);
+		state.setKeyPressedWhileWaiting(imageBuffer.get() & 0xFF);
+	}
+}
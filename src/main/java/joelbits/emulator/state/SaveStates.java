@@ -0,0 +1,146 @@
+package joelbits.emulator.state;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Reads and writes machine states in a compact, versioned binary format. All values are stored big-endian:
+ *
+ * <pre>
+ * int     magic "C8SS"
+ * short   format version
+ * short   memory size, short stack levels, short display words
+ * long    frame
+ * byte[]  memory
+ * byte[]  V0 - VF
+ * short   I, short PC
+ * short   stack pointer, followed by that many shorts of stack addresses
+ * byte    delay timer, byte sound timer
+ * long[]  display, one bit per pixel
+ * long    random number generator state
+ * byte    waiting for key, byte key pressed while waiting
+ * </pre>
+ *
+ * A saved state can only be read into a machine state of the same sizes.
+ */
+public final class SaveStates {
+	public static final int MAGIC = 0x43385353;
+	public static final int VERSION = 1;
+	public static final int MAX_STACK_LEVELS = 0xFFFF;
+	private static final int HEADER_SIZE = 4 + 2 + 2 + 2 + 2 + 8;
+
+	private SaveStates() {
+	}
+
+	/**
+	 * The number of bytes needed to write the supplied state.
+	 */
+	public static int size(MachineState state) {
+		return HEADER_SIZE + state.getMemory().length + state.getDataRegisters().length + 2 + 2 + 2
+				+ 2 * state.getStackPointer() + 1 + 1 + 8 * state.getDisplay().length + 8 + 1 + 1;
+	}
+
+	/**
+	 * Writes the state to the buffer.
+	 *
+	 * @throws IllegalArgumentException	if the state has more stack levels than fit the format
+	 */
+	public static void write(MachineState state, ByteBuffer buffer) {
+		if (state.getStack().length > MAX_STACK_LEVELS) {
+			throw new IllegalArgumentException("Save states hold at most " + MAX_STACK_LEVELS + " stack levels, not " + state.getStack().length);
+		}
+		buffer.putInt(MAGIC);
+		buffer.putShort((short) VERSION);
+		buffer.putShort((short) state.getMemory().length);
+		buffer.putShort((short) state.getStack().length);
+		buffer.putShort((short) state.getDisplay().length);
+		buffer.putLong(state.getFrame());
+		buffer.put(state.getMemory());
+		for (int register : state.getDataRegisters()) {
+			buffer.put((byte) register);
+		}
+		buffer.putShort((short) state.getIndex());
+		buffer.putShort((short) state.getProgramCounter());
+		buffer.putShort((short) state.getStackPointer());
+		for (int i = 0; i < state.getStackPointer(); i++) {
+			buffer.putShort((short) state.getStack()[i]);
+		}
+		buffer.put((byte) state.getDelayTimer());
+		buffer.put((byte) state.getSoundTimer());
+		for (long word : state.getDisplay()) {
+			buffer.putLong(word);
+		}
+		buffer.putLong(state.getRandomState());
+		buffer.put((byte) (state.isWaitingForKey() ? 1 : 0));
+		buffer.put((byte) state.getKeyPressedWhileWaiting());
+	}
+
+	/**
+	 * Reads a saved state from the buffer into the supplied state.
+	 *
+	 * @throws IllegalArgumentException	if the buffer does not hold a saved state of a supported version, or if the
+	 * 									saved state does not have the same sizes as the supplied state
+	 */
+	public static void read(ByteBuffer buffer, MachineState state) {
+		int magic = buffer.getInt();
+		if (magic != MAGIC) {
+			throw new IllegalArgumentException("Not a save state, magic number is " + Integer.toHexString(magic));
+		}
+		int version = buffer.getShort() & 0xFFFF;
+		if (version != VERSION) {
+			throw new IllegalArgumentException("Unsupported save state version " + version + ", expected " + VERSION);
+		}
+		checkSize("Memory size", buffer.getShort() & 0xFFFF, state.getMemory().length);
+		checkSize("Stack levels", buffer.getShort() & 0xFFFF, state.getStack().length);
+		checkSize("Display words", buffer.getShort() & 0xFFFF, state.getDisplay().length);
+		state.setFrame(buffer.getLong());
+		buffer.get(state.getMemory());
+		int[] dataRegisters = state.getDataRegisters();
+		for (int i = 0; i < dataRegisters.length; i++) {
+			dataRegisters[i] = buffer.get() & 0xFF;
+		}
+		state.setIndex(buffer.getShort() & 0xFFFF);
+		state.setProgramCounter(buffer.getShort() & 0xFFFF);
+		int stackPointer = buffer.getShort() & 0xFFFF;
+		if (stackPointer > state.getStack().length) {
+			throw new IllegalArgumentException("Stack pointer " + stackPointer + " does not fit " + state.getStack().length + " levels");
+		}
+		state.setStackPointer(stackPointer);
+		int[] stack = state.getStack();
+		for (int i = 0; i < stack.length; i++) {
+			stack[i] = i < stackPointer ? buffer.getShort() & 0xFFFF : 0;
+		}
+		state.setDelayTimer(buffer.get() & 0xFF);
+		state.setSoundTimer(buffer.get() & 0xFF);
+		long[] display = state.getDisplay();
+		for (int i = 0; i < display.length; i++) {
+			display[i] = buffer.getLong();
+		}
+		state.setRandomState(buffer.getLong());
+		state.setWaitingForKey(buffer.get() != 0);
+		state.setKeyPressedWhileWaiting(buffer.get() & 0xFF);
+	}
+
+	private static void checkSize(String name, int saved, int expected) {
+		if (saved != expected) {
+			throw new IllegalArgumentException(name + " of save state is " + saved + ", expected " + expected);
+		}
+	}
+
+	public static void write(MachineState state, Path file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(size(state));
+		write(state, buffer);
+		Files.write(file, buffer.array());
+	}
+
+	public static void read(Path file, MachineState state) throws IOException {
+		try {
+			read(ByteBuffer.wrap(Files.readAllBytes(file)), state);
+		} catch (BufferUnderflowException e) {
+			throw new IOException("Save state " + file + " is truncated", e);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+package joelbits.emulator.timers;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The time source of the FramePacer, and the way it waits for time to pass.
+ */
+public interface FrameClock {
+	/**
+	 * Reads System.nanoTime and parks with LockSupport.
+	 */
+	FrameClock SYSTEM = new FrameClock() {
+		@Override
+		public long nanoTime() {
+			return System.nanoTime();
+		}
+
+		@Override
+		public void parkNanos(long nanos) {
+			LockSupport.parkNanos(nanos);
+		}
+
+		@Override
+		public void park(Object blocker) {
+			LockSupport.park(blocker);
+		}
+	};
+
+	long nanoTime();
+
+	/**
+	 * Waits at most the supplied number of nanoseconds. May return earlier, e.g., when the thread is unparked.
+	 */
+	void parkNanos(long nanos);
+
+	/**
+	 * Waits until the thread is unparked. May return spuriously.
+	 */
+	void park(Object blocker);
+}
@@ -0,0 +1,13 @@
+package joelbits.emulator.timers;
+
+/**
+ * A frame of the emulation as seen by the FramePacer. Every frame starts with a timer tick, continues with the
+ * instructions of the frame executed in slices, and ends when the frame is presented.
+ */
+public interface FrameCycle {
+	void startFrame();
+	void executeInstructions(int instructions);
+	void endFrame();
+	int instructionsPerFrame();
+	boolean isPaused();
+}
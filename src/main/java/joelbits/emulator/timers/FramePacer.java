@@ -0,0 +1,128 @@
+package joelbits.emulator.timers;
+
+import java.util.concurrent.TimeUnit;
+
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Paces the emulation at exactly 60 frames per second using System.nanoTime deadlines, so that the delay and sound timers
+ * are decremented at the rate a CHIP-8 expects. The instructions of a frame are spread evenly over the frame in slices,
+ * instead of being executed in one burst followed by a long sleep.
+ *
+ * Deadlines are absolute, so any lateness of one frame is corrected by the following frames. After a stall the pacer
+ * catches up by running the missed frames back to back, but never more than MAX_CATCH_UP_FRAMES of them. Frames beyond
+ * that are dropped.
+ *
+ * An unexpected exception thrown by the frame cycle is logged and stops the pacer, instead of silently ending the thread.
+ *
+ * While the frame cycle is paused the pacer parks without any timed wakeups. Whoever resumes the frame cycle, or stops
+ * the pacer, must unpark the thread running the pacer.
+ *
+ * Time is read, and waited for, through a FrameClock, which is the system clock unless another one is supplied.
+ */
+public final class FramePacer implements Runnable {
+	private static final Logger log = LoggerFactory.getLogger(FramePacer.class);
+	public static final int FRAMES_PER_SECOND = 60;
+	public static final long FRAME_PERIOD = TimeUnit.SECONDS.toNanos(1) / FRAMES_PER_SECOND;
+	private static final int SLICES_PER_FRAME = 4;
+	private static final int MAX_CATCH_UP_FRAMES = 5;
+	private final FrameCycle frameCycle;
+	private final FrameClock clock;
+	private volatile boolean running = true;
+	@Getter private volatile long frames;
+	/**
+	 * True while the pacer is parked waiting for the frame cycle to be resumed.
+	 */
+	@Getter private volatile boolean parked;
+	@Getter private volatile long droppedFrames;
+	@Getter private volatile long maxJitterNanos;
+	private volatile long totalJitterNanos;
+
+	public FramePacer(FrameCycle frameCycle) {
+		this(frameCycle, FrameClock.SYSTEM);
+	}
+
+	public FramePacer(FrameCycle frameCycle, FrameClock clock) {
+		this.frameCycle = frameCycle;
+		this.clock = clock;
+	}
+
+	@Override
+	public void run() {
+		long deadline = clock.nanoTime();
+		while (running) {
+			if (frameCycle.isPaused()) {
+				parked = true;
+				clock.park(this);
+				parked = false;
+				deadline = clock.nanoTime();
+				continue;
+			}
+
+			long lateness = clock.nanoTime() - deadline;
+			if (lateness > MAX_CATCH_UP_FRAMES * FRAME_PERIOD) {
+				long dropped = lateness / FRAME_PERIOD - MAX_CATCH_UP_FRAMES;
+				droppedFrames += dropped;
+				deadline += dropped * FRAME_PERIOD;
+				log.debug("Dropped " + dropped + " frames after a stall of " + lateness / 1000 + " us");
+			}
+			recordJitter(Math.max(0, clock.nanoTime() - deadline));
+
+			try {
+				runFrame(deadline);
+			} catch (RuntimeException e) {
+				log.error("Stopped pacing frames after an unexpected error in frame " + frames, e);
+				running = false;
+				break;
+			}
+			deadline += FRAME_PERIOD;
+			waitUntil(deadline);
+		}
+		log.debug("Stopped after " + frames + " frames, average jitter " + getAverageJitterNanos() / 1000
+				+ " us, max jitter " + maxJitterNanos / 1000 + " us, " + droppedFrames + " dropped frames");
+	}
+
+	private void runFrame(long frameStart) {
+		frameCycle.startFrame();
+		int instructions = frameCycle.instructionsPerFrame();
+		int executed = 0;
+		for (int slice = 1; slice <= SLICES_PER_FRAME; slice++) {
+			int target = instructions * slice / SLICES_PER_FRAME;
+			frameCycle.executeInstructions(target - executed);
+			executed = target;
+			if (slice < SLICES_PER_FRAME) {
+				waitUntil(frameStart + FRAME_PERIOD * slice / SLICES_PER_FRAME);
+			}
+		}
+		frameCycle.endFrame();
+		frames++;
+	}
+
+	private void waitUntil(long deadline) {
+		long remaining = deadline - clock.nanoTime();
+		while (running && remaining > 0) {
+			clock.parkNanos(remaining);
+			remaining = deadline - clock.nanoTime();
+		}
+	}
+
+	private void recordJitter(long jitter) {
+		totalJitterNanos += jitter;
+		if (jitter > maxJitterNanos) {
+			maxJitterNanos = jitter;
+		}
+	}
+
+	/**
+	 * Returns the average time by which frames have started later than their deadlines.
+	 */
+	public long getAverageJitterNanos() {
+		return frames > 0 ? totalJitterNanos / frames : 0;
+	}
+
+	public void stop() {
+		running = false;
+	}
+}
@@ -28,6 +28,7 @@ public final class Chip8Util {
 	// Values related to registers
 	public static final int FIT_8BIT_REGISTER = 0xFF;
 	public static final int FIT_16BIT_REGISTER = 0xFFFF;
+	public static final int FIT_12BIT_ADDRESS = 0xFFF;
 	public static final int NUMBER_OF_REGISTERS = 0xF;
 	public static final int REGISTER_VF = 0xF;
 
@@ -2,13 +2,59 @@ package joelbits.emulator.utils;
 
 import lombok.Getter;
 
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
+/**
+ * A 48-bit linear congruential generator producing the same sequence as java.util.Random for the same seed. Unlike
+ * java.util.Random its whole state is one long that can be read and replaced, so that the generator can be saved
+ * and restored together with the rest of the machine state.
+ */
 public class RandomNumberGenerator {
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+	private static final long ADDEND = 0xBL;
+	private static final long MASK = (1L << 48) - 1;
 	@Getter private int value;
-	private final Random random = new Random();
-	
+	private long state;
+
+	public RandomNumberGenerator() {
+		this(ThreadLocalRandom.current().nextLong());
+	}
+
+	public RandomNumberGenerator(long seed) {
+		setSeed(seed);
+	}
+
+	public void setSeed(long seed) {
+		state = (seed ^ MULTIPLIER) & MASK;
+	}
+
 	public void generate(int bound) {
-		value = random.nextInt(bound);
+		value = nextInt(bound);
+	}
+
+	private int nextInt(int bound) {
+		if ((bound & -bound) == bound) {
+			return (int) ((bound * (long) next(31)) >> 31);
+		}
+		int bits;
+		int result;
+		do {
+			bits = next(31);
+			result = bits % bound;
+		} while (bits - result + (bound - 1) < 0);
+		return result;
+	}
+
+	private int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int) (state >>> (48 - bits));
+	}
+
+	public long getState() {
+		return state;
+	}
+
+	public void setState(long state) {
+		this.state = state & MASK;
 	}
 }
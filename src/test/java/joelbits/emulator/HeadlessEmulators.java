@@ -0,0 +1,41 @@
+package joelbits.emulator;
+
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+
+/**
+ * Creates emulators without sound or a visible screen, and the programs they run in tests.
+ */
+final class HeadlessEmulators {
+	private HeadlessEmulators() { }
+
+	static Chip8 create(GameSettings settings) {
+		return create(settings, new Keypad());
+	}
+
+	static Chip8 create(GameSettings settings, Keypad keypad) {
+		return EmulatorFactory.createChip8(settings, keypad, new SilentAudio(), new HeadlessScreen(64, 32));
+	}
+
+	/**
+	 * A program of the supplied opcodes, starting at the beginning of the program space.
+	 */
+	static Program program(int... opcodes) {
+		byte[] data = new byte[opcodes.length * 2];
+		for (int i = 0; i < opcodes.length; i++) {
+			data[2 * i] = (byte) (opcodes[i] >> 8);
+			data[2 * i + 1] = (byte) opcodes[i];
+		}
+		return new Program(data);
+	}
+
+	/**
+	 * Stores a random byte at a random location, and moves a sprite whenever the key matching the random location is
+	 * pressed.
+	 */
+	static Program randomStoresAndKeyMovedSprite() {
+		return program(0xC0FF, 0xC10F, 0xA500, 0xF11E, 0xF055, 0xE19E, 0x1200, 0x7201, 0xD231, 0x1200);
+	}
+}
@@ -0,0 +1,119 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+/**
+ * Creates random programs for comparing different ways of executing the same program, and compares the resulting
+ * machine states.
+ */
+final class RandomPrograms {
+	private static final int LOOP_START = 0x220;
+	private static final int[] registerOperations = {0x6000, 0x7000, 0x8000, 0x8001, 0x8002, 0x8003, 0x8004, 0x8005, 0x8006, 0x8007, 0x800E};
+
+	private RandomPrograms() { }
+
+	/**
+	 * All registers are loaded with random values, after which a loop of random instructions runs forever. Memory is only
+	 * written at 0x300 and above, so the program never modifies itself.
+	 */
+	static Program create(Random random) {
+		ByteArrayOutputStream program = new ByteArrayOutputStream();
+		for (int register = 0; register <= 0xF; register++) {
+			writeOpcode(program, 0x6000 | register << 8 | random.nextInt(0x100));
+		}
+		int loopLength = 16 + random.nextInt(48);
+		int written = 0;
+		while (written < loopLength - 1) {
+			written += writeRandomInstructions(program, random, loopLength);
+		}
+		writeOpcode(program, 0x1000 | LOOP_START);
+		return new Program(program.toByteArray());
+	}
+
+	/**
+	 * Writes one random instruction, or a random sequence of instructions that can be fused into a superinstruction.
+	 *
+	 * @return	the number of written instructions
+	 */
+	private static int writeRandomInstructions(ByteArrayOutputStream program, Random random, int loopLength) {
+		int x = random.nextInt(0x10) << 8;
+		int kk = random.nextInt(0x100);
+		switch (random.nextInt(16)) {
+			case 0:
+				writeOpcode(program, 0x6000 | x | kk);
+				writeOpcode(program, 0xA300 | random.nextInt(0x100));
+				return 2;
+			case 1:
+				writeOpcode(program, 0xF01E | x);
+				writeOpcode(program, 0xF065 | random.nextInt(0x10) << 8);
+				return 2;
+			case 2:
+				writeOpcode(program, 0x7000 | x | random.nextInt(4));
+				writeOpcode(program, (random.nextBoolean() ? 0x3000 : 0x4000) | x | random.nextInt(4));
+				writeOpcode(program, randomJump(random, loopLength));
+				return 3;
+			case 3:
+				writeOpcode(program, (random.nextBoolean() ? 0x3000 : 0x4000) | x | random.nextInt(4));
+				writeOpcode(program, randomJump(random, loopLength));
+				return 2;
+			default:
+				writeOpcode(program, createRandomOpcode(random, loopLength));
+				return 1;
+		}
+	}
+
+	private static int createRandomOpcode(Random random, int loopLength) {
+		int x = random.nextInt(0x10) << 8;
+		int y = random.nextInt(0x10) << 4;
+		int kk = random.nextInt(0x100);
+		switch (random.nextInt(12)) {
+			case 0:
+				return 0x3000 | x | random.nextInt(4);
+			case 1:
+				return 0x4000 | x | kk;
+			case 2:
+				return (random.nextBoolean() ? 0x5000 : 0x9000) | x | y;
+			case 3:
+				return 0xA300 | random.nextInt(0x100);
+			case 4:
+				return 0xF01E | x;
+			case 5:
+				return random.nextBoolean() ? 0xF065 | x : 0xF055 | x;
+			case 6:
+				return 0xD000 | x | y | random.nextInt(0x10);
+			case 7:
+				return randomJump(random, loopLength);
+			default:
+				int operation = registerOperations[random.nextInt(registerOperations.length)];
+				return operation < 0x8000 ? operation | x | kk : operation | x | y;
+		}
+	}
+
+	private static int randomJump(Random random, int loopLength) {
+		return 0x1000 | (LOOP_START + 2 * random.nextInt(loopLength));
+	}
+
+	private static void writeOpcode(ByteArrayOutputStream program, int opcode) {
+		program.write(opcode >> 8);
+		program.write(opcode);
+	}
+
+	static void assertSameState(String message, Chip8 expected, Chip8 actual) {
+		for (int register = 0; register <= 0xF; register++) {
+			assertEquals(message + " V" + register, expected.registers().read(register), actual.registers().read(register));
+		}
+		assertEquals(message + " I", expected.registers().readIndex(), actual.registers().readIndex());
+		assertEquals(message + " PC", expected.registers().readProgramCounter(), actual.registers().readProgramCounter());
+		for (int location = 0; location < 0x1000; location++) {
+			assertEquals(message + " memory " + location, expected.readMemory(location), actual.readMemory(location));
+		}
+		for (int y = 0; y < 32; y++) {
+			for (int x = 0; x < 64; x++) {
+				assertEquals(message + " pixel " + x + "," + y, expected.readPixel(x, y), actual.readPixel(x, y));
+			}
+		}
+	}
+}
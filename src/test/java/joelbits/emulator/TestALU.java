@@ -6,34 +6,35 @@ import org.junit.Before;
 import org.junit.Test;
 
 import joelbits.emulator.cpu.ALU;
-import joelbits.emulator.cpu.registers.DataRegister;
-import joelbits.emulator.cpu.registers.ProgramCounter;
 import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import joelbits.emulator.utils.RandomNumberGenerator;
 
 public class TestALU {
 	private ALU target;
+	private RegisterFile registers;
 	private Register<Integer> programCounter;
 	private Register<Integer> dataRegisterVF;
 	private Register<Integer> register;
 	private RandomNumberGenerator randomNumberGenerator;
-	private final int FIT_8BIT_REGISTER = 0xFF;
+	private final int REGISTER = 0x3;
 	
 	@Before
 	public void setUp() {
-		programCounter = ProgramCounter.getInstance();
-		dataRegisterVF = new DataRegister<>();
-		register = new DataRegister<>();
+		registers = new RegisterFile();
+		programCounter = registers.programCounter();
+		dataRegisterVF = registers.dataRegister(0xF);
+		register = registers.dataRegister(REGISTER);
 		randomNumberGenerator = new RandomNumberGenerator();
 		programCounter.write(0x200);
 
-		target = new ALU(programCounter, dataRegisterVF, randomNumberGenerator);
+		target = new ALU(registers, randomNumberGenerator);
 	}
 
 	@Test
 	public void loadValueIntoRegister() {
 		register.write(0x45);
-		target.load(register, 0xA);
+		target.load(REGISTER, 0xA);
 
 		assertEquals(0xA, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -42,7 +43,7 @@ public class TestALU {
 	@Test
 	public void addSmallValues() {
 		register.write(0x3);
-		target.add(register, 0x8);
+		target.add(REGISTER, 0x8);
 
 		assertEquals(0xB, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -51,7 +52,7 @@ public class TestALU {
 	@Test
 	public void addLargeValues() {
 		register.write(145);
-		target.add(register, 0x3455);
+		target.add(REGISTER, 0x3455);
 
 		assertEquals(0xE6, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -59,7 +60,7 @@ public class TestALU {
 	
 	@Test
 	public void addWithRandom() {
-		target.addWithRandom(register, 0x2);
+		target.addWithRandom(REGISTER, 0x2);
 
 		assertEquals((int) register.read(), 0x2 & randomNumberGenerator.getValue());
 		assertEquals(0x202, (int) programCounter.read());
@@ -68,7 +69,7 @@ public class TestALU {
 	@Test
 	public void addAndDoNotSetCarry() {
 		register.write(0x21);
-		target.addWithCarry(register, 0x2, FIT_8BIT_REGISTER);
+		target.addWithCarry(REGISTER, 0x2);
 
 		assertEquals(0x23, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -78,7 +79,7 @@ public class TestALU {
 	@Test
 	public void addAndSetCarry() {
 		register.write(0xB0);
-		target.addWithCarry(register, 0x3, FIT_8BIT_REGISTER);
+		target.addWithCarry(REGISTER, 0x3);
 
 		assertEquals(0xB3, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -88,7 +89,7 @@ public class TestALU {
 	@Test
 	public void subtractAndDoNotSetBorrow() {
 		register.write(0x3);
-		target.subtractWithNegatedBorrow(register, 0x2);
+		target.subtractWithNegatedBorrow(REGISTER, 0x2);
 
 		assertEquals(0xFF, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -98,7 +99,7 @@ public class TestALU {
 	@Test
 	public void subtractAndSetBorrow() {
 		register.write(0x2);
-		target.subtractWithNegatedBorrow(register, 0x3);
+		target.subtractWithNegatedBorrow(REGISTER, 0x3);
 
 		assertEquals(0x1, (int) register.read());
 		assertEquals(0x1, (int) dataRegisterVF.read());
@@ -108,7 +109,7 @@ public class TestALU {
 	@Test
 	public void subtractAndSetNegatedBorrow() {
 		register.write(0x3);
-		target.subtractWithNegatedBorrow(register, 0x2);
+		target.subtractWithNegatedBorrow(REGISTER, 0x2);
 
 		assertEquals(0xFF, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -118,7 +119,7 @@ public class TestALU {
 	@Test
 	public void subtractAndDoNotSetNegatedBorrow() {
 		register.write(0x2);
-		target.subtractWithNegatedBorrow(register, 0x5);
+		target.subtractWithNegatedBorrow(REGISTER, 0x5);
 
 		assertEquals(0x3, (int) register.read());
 		assertEquals(0x1, (int) dataRegisterVF.read());
@@ -128,7 +129,7 @@ public class TestALU {
 	@Test
 	public void bitwiseOR() {
 		register.write(0x21);
-		target.bitwiseOR(register, 0x94);
+		target.bitwiseOR(REGISTER, 0x94);
 
 		assertEquals(0xB5, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -137,7 +138,7 @@ public class TestALU {
 	@Test
 	public void bitwiseAND() {
 		register.write(0xAC);
-		target.bitwiseAND(register, 0xF2);
+		target.bitwiseAND(REGISTER, 0xF2);
 
 		assertEquals(0xA0, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -146,7 +147,7 @@ public class TestALU {
 	@Test
 	public void bitwiseXOR() {
 		register.write(0xFC);
-		target.bitwiseXOR(register, 0x72);
+		target.bitwiseXOR(REGISTER, 0x72);
 
 		assertEquals(0x8E, (int) register.read());
 		assertEquals(0x202, (int) programCounter.read());
@@ -156,7 +157,7 @@ public class TestALU {
 	@Test
 	public void leftShiftWithCarryNotSet() {
 		register.write(0x30);
-		target.leftShiftWithCarry(register);
+		target.leftShiftWithCarry(REGISTER);
 
 		assertEquals(0x60, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -166,7 +167,7 @@ public class TestALU {
 	@Test
 	public void leftShiftWithCarrySet() {
 		register.write(0xCE);
-		target.leftShiftWithCarry(register);
+		target.leftShiftWithCarry(REGISTER);
 
 		assertEquals(0x9C, (int) register.read());
 		assertEquals(0x1, (int) dataRegisterVF.read());
@@ -176,7 +177,7 @@ public class TestALU {
 	@Test
 	public void rightShiftWithCarryNotSet() {
 		register.write(0x30);
-		target.rightShiftWithCarry(register);
+		target.rightShiftWithCarry(REGISTER);
 
 		assertEquals(0x18, (int) register.read());
 		assertEquals(0x0, (int) dataRegisterVF.read());
@@ -186,7 +187,7 @@ public class TestALU {
 	@Test
 	public void rightShiftWithCarrySet() {
 		register.write(0x21);
-		target.rightShiftWithCarry(register);
+		target.rightShiftWithCarry(REGISTER);
 
 		assertEquals(0x10, (int) register.read());
 		assertEquals(0x1, (int) dataRegisterVF.read());
@@ -196,7 +197,7 @@ public class TestALU {
 	@Test
 	public void doNotskipNextSinceNotEqual() {
 		register.write(0x55);
-		target.skipNextIfEqual(register, 0x50);
+		target.skipNextIfEqual(REGISTER, 0x50);
 
 		assertEquals(0x202, (int) programCounter.read());
 	}
@@ -204,7 +205,7 @@ public class TestALU {
 	@Test
 	public void skipNextBecauseEqual() {
 		register.write(0x55);
-		target.skipNextIfEqual(register, 0x55);
+		target.skipNextIfEqual(REGISTER, 0x55);
 
 		assertEquals(0x204, (int) programCounter.read());
 	}
@@ -212,7 +213,7 @@ public class TestALU {
 	@Test
 	public void skipNextBecauseNotEqual() {
 		register.write(0x55);
-		target.skipNextIfNotEqual(register, 0x50);
+		target.skipNextIfNotEqual(REGISTER, 0x50);
 
 		assertEquals(0x204, (int) programCounter.read());
 	}
@@ -220,7 +221,7 @@ public class TestALU {
 	@Test
 	public void doNotSkipNextBecauseEqual() {
 		register.write(0x55);
-		target.skipNextIfNotEqual(register, 0x55);
+		target.skipNextIfNotEqual(REGISTER, 0x55);
 
 		assertEquals(0x202, (int) programCounter.read());
 	}
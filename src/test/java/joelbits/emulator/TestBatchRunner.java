@@ -0,0 +1,127 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import joelbits.emulator.batch.BatchResult;
+import joelbits.emulator.batch.BatchRunner;
+import joelbits.emulator.cpu.Fault;
+
+public class TestBatchRunner {
+	private static final int FRAMES = 120;
+	@Rule public TemporaryFolder folder = new TemporaryFolder();
+	private BatchRunner target;
+	private Path directory;
+
+	@Before
+	public void setUp() throws IOException {
+		target = new BatchRunner(64, 32, FRAMES, 10, false, 42);
+		directory = folder.getRoot().toPath();
+	}
+
+	private Path writeRom(String name, int... opcodes) throws IOException {
+		byte[] data = new byte[opcodes.length * 2];
+		for (int i = 0; i < opcodes.length; i++) {
+			data[2 * i] = (byte) (opcodes[i] >> 8);
+			data[2 * i + 1] = (byte) opcodes[i];
+		}
+		return Files.write(directory.resolve(name), data);
+	}
+
+	/**
+	 * Draws random sprite rows at a moving position.
+	 */
+	private Path writeDrawingRom(String name, int seedRegisterValue) throws IOException {
+		return writeRom(name, 0x6300 | seedRegisterValue, 0xC2FF, 0xA500, 0xF255, 0xD011, 0x7001, 0x8134, 0x1202);
+	}
+
+	private List<BatchResult> runAll(int threads) throws IOException {
+		List<BatchResult> results = new ArrayList<>();
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		try {
+			target.runAll(BatchRunner.roms(directory), pool, results::add);
+		} finally {
+			pool.shutdown();
+		}
+		return results;
+	}
+
+	@Test
+	public void onlyRomsAreRunInOrderOfTheirNames() throws IOException {
+		writeDrawingRom("b.ch8", 1);
+		writeDrawingRom("a.ROM", 2);
+		writeDrawingRom("c.txt", 3);
+
+		List<BatchResult> results = runAll(2);
+
+		assertEquals(2, results.size());
+		assertEquals("a.ROM", results.get(0).getRom());
+		assertEquals("b.ch8", results.get(1).getRom());
+	}
+
+	@Test
+	public void parallelResultsAreEqualToSequentialResults() throws IOException {
+		for (int i = 0; i < 16; i++) {
+			writeDrawingRom(String.format("rom%02d.ch8", i), i);
+		}
+
+		List<BatchResult> parallel = runAll(4);
+		List<BatchResult> sequential = runAll(1);
+
+		assertEquals(16, parallel.size());
+		for (int i = 0; i < parallel.size(); i++) {
+			assertEquals(sequential.get(i).getRom(), parallel.get(i).getRom());
+			assertEquals(sequential.get(i).getDisplayHash(), parallel.get(i).getDisplayHash());
+			assertEquals(sequential.get(i).getStateHash(), parallel.get(i).getStateHash());
+			assertEquals(FRAMES * 10, parallel.get(i).getInstructions());
+		}
+	}
+
+	@Test
+	public void unknownOpcodesAreCounted() throws IOException {
+		BatchResult result = target.run(writeRom("unknown.ch8", 0x6001, 0xF0FF));
+
+		assertEquals(1 + FRAMES * 10 - 1, result.getInstructions());
+		assertEquals(FRAMES * 10 - 1, result.getUnknownInstructions());
+		assertTrue(Arrays.equals(new int[] {0xF0FF}, result.getUnknownOpcodes()));
+		assertTrue(result.toJson().contains("\"unknownOpcodes\":[\"f0ff\"]"));
+	}
+
+	@Test
+	public void faultIsReported() throws IOException {
+		BatchResult result = target.run(writeRom("recursion.ch8", 0x2200));
+
+		assertEquals(Fault.Type.STACK_OVERFLOW, result.getFault().getType());
+		assertTrue(result.toJson().contains("\"fault\":{\"type\":\"STACK_OVERFLOW\""));
+	}
+
+	@Test
+	public void romThatCanNotBeReadFails() {
+		BatchResult result = target.run(directory.resolve("missing.ch8"));
+
+		assertTrue(result.isFailed());
+		assertTrue(result.toJson().startsWith("{\"rom\":\"missing.ch8\",\"error\":"));
+	}
+
+	@Test
+	public void jsonLineHasHexadecimalHashes() throws IOException {
+		BatchResult result = target.run(writeDrawingRom("draw.ch8", 7));
+
+		String json = result.toJson();
+		assertTrue(json.contains(String.format("\"framebufferHash\":\"%016x\"", result.getDisplayHash())));
+		assertTrue(json.contains("\"fault\":null"));
+		assertFalse(json.contains("\n"));
+	}
+}
@@ -0,0 +1,75 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.cpu.instructions.BasicBlock;
+import joelbits.emulator.cpu.instructions.BlockCache;
+import joelbits.emulator.cpu.instructions.InstructionUnit;
+import joelbits.emulator.cpu.instructions.Instructions;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+
+public class TestBlockCache {
+	private static final int START = 0x200;
+	private BlockCache target;
+	private MMU mmu;
+
+	@Before
+	public void setUp() {
+		mmu = new MMU(new RAM());
+		target = new BlockCache(new InstructionUnit(mmu));
+		mmu.setWriteListener(target);
+		mmu.writePrimaryMemory(START, new byte[] {0x60, 0x01, 0x71, 0x02, 0x32, 0x03, 0x63, 0x04, 0x12, 0x00});
+	}
+
+	@Test
+	public void blockEndsWithTheFirstBranch() {
+		BasicBlock block = target.block(START);
+
+		assertEquals(3, block.size());
+		assertEquals(Instructions.LOAD_BYTE_TO_REGISTER, block.instruction(0).getOperation());
+		assertEquals(0x1, block.instruction(1).getRegisterLocationX());
+		assertEquals(0x02, block.instruction(1).getLowestByte());
+		assertEquals(Instructions.SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL, block.instruction(2).getOperation());
+	}
+
+	@Test
+	public void sameBlockReturnedUntilItsCodeIsWritten() {
+		BasicBlock block = target.block(START);
+
+		assertSame(block, target.block(START));
+	}
+
+	@Test
+	public void invalidateBlockWhenItsCodeIsWritten() {
+		target.block(START);
+		mmu.writePrimaryMemory(START + 3, 0x05);
+
+		assertFalse(target.isCached(START));
+		assertEquals(0x05, target.block(START).instruction(1).getLowestByte());
+	}
+
+	@Test
+	public void keepBlockWhenMemoryOutsideOfItIsWritten() {
+		target.block(START);
+		mmu.writePrimaryMemory(START + 6, 0x00);
+		mmu.writePrimaryMemory(START - 1, 0x00);
+
+		assertTrue(target.isCached(START));
+	}
+
+	@Test
+	public void invalidateEveryBlockContainingTheWrittenCode() {
+		target.block(START);
+		target.block(START + 2);
+		target.block(START + 6);
+		mmu.writePrimaryMemory(START + 4, 0x00);
+
+		assertFalse(target.isCached(START));
+		assertFalse(target.isCached(START + 2));
+		assertTrue(target.isCached(START + 6));
+	}
+}
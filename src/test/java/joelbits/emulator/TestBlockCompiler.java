@@ -0,0 +1,130 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.lang.ref.WeakReference;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.cpu.instructions.BlockCache;
+import joelbits.emulator.cpu.instructions.InstructionUnit;
+import joelbits.emulator.cpu.jit.BlockCompiler;
+import joelbits.emulator.cpu.jit.CompiledBlock;
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestBlockCompiler {
+	private static final int NUMBER_OF_PROGRAMS = 50;
+	private static final int NUMBER_OF_FRAMES = 100;
+	private static final int HOT_THRESHOLD = 4;
+	private BlockCompiler target;
+	private MMU mmu;
+	private BlockCache blockCache;
+
+	@Before
+	public void setUp() {
+		target = new BlockCompiler();
+		mmu = new MMU(new RAM());
+		blockCache = new BlockCache(new InstructionUnit(mmu));
+		mmu.setWriteListener(blockCache);
+	}
+
+	@Test
+	public void compileBlockOfRegisterOperationsEndingWithJump() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x61, (byte) 0x85, 0x71, (byte) 0xFE, (byte) 0x81, 0x14, (byte) 0xA2, 0x34, 0x12, 0x00});
+		RegisterFile registers = new RegisterFile();
+
+		CompiledBlock compiledBlock = target.compile(blockCache.block(0x200));
+		compiledBlock.execute(registers);
+
+		assertEquals(0x06, registers.read(0x1));
+		assertEquals(0x1, registers.read(0xF));
+		assertEquals(0x234, registers.readIndex());
+		assertEquals(0x200, registers.readProgramCounter());
+	}
+
+	@Test
+	public void compiledClassIsUnloadedWhenItsBlockIsNoLongerUsed() throws InterruptedException {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x61, (byte) 0x85, 0x12, 0x00});
+		WeakReference<Class<?>> compiledClass = new WeakReference<>(target.compile(blockCache.block(0x200)).getClass());
+		mmu.writePrimaryMemory(0x200, new byte[] {0x61, (byte) 0x86});
+
+		for (int i = 0; i < 10 && compiledClass.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		assertNull(compiledClass.get());
+	}
+
+	@Test
+	public void doNotCompileBlockThatDrawsOrWaitsForKey() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x61, 0x05, (byte) 0xD0, 0x15, 0x12, 0x00});
+		mmu.writePrimaryMemory(0x300, new byte[] {0x61, 0x05, (byte) 0xF1, 0x0A});
+
+		assertNull(target.compile(blockCache.block(0x200)));
+		assertNull(target.compile(blockCache.block(0x300)));
+	}
+
+	/**
+	 * Random programs of register operations, skips, draws and memory accesses are run both interpreted and with the JIT,
+	 * and the machine state is compared after every frame.
+	 */
+	@Test
+	public void compiledProgramsHaveSameStateAsInterpretedPrograms() {
+		Random random = new Random(0xC8);
+		for (int program = 0; program < NUMBER_OF_PROGRAMS; program++) {
+			Program randomProgram = RandomPrograms.create(random);
+			Chip8 interpreted = createEmulator(false);
+			Chip8 compiled = createEmulator(true);
+			interpreted.load(randomProgram);
+			compiled.load(randomProgram);
+
+			for (int frame = 0; frame < NUMBER_OF_FRAMES; frame++) {
+				interpreted.runFrame();
+				compiled.runFrame();
+				RandomPrograms.assertSameState("Program " + program + " frame " + frame, interpreted, compiled);
+			}
+		}
+	}
+
+	/**
+	 * V1 is incremented in a loop until it is 0x10, after which the program overwrites the increment instruction so that
+	 * it increments V2 instead, and runs the loop again.
+	 */
+	@Test
+	public void executeModifiedCodeInsteadOfCompiledBlock() {
+		Program program = new Program(new byte[] {
+				0x71, 0x01,
+				0x31, 0x10,
+				0x12, 0x00,
+				0x60, 0x72,
+				(byte) 0xA2, 0x00,
+				(byte) 0xF0, 0x55,
+				0x61, 0x00,
+				0x12, 0x00
+		});
+		Chip8 interpreted = createEmulator(false);
+		Chip8 compiled = createEmulator(true);
+		interpreted.load(program);
+		compiled.load(program);
+		for (int frame = 0; frame < 10; frame++) {
+			interpreted.runFrame();
+			compiled.runFrame();
+		}
+
+		assertTrue(compiled.registers().read(0x2) > 0);
+		RandomPrograms.assertSameState("Self-modifying program", interpreted, compiled);
+	}
+
+	private Chip8 createEmulator(boolean jitEnabled) {
+		GameSettings settings = new GameSettings();
+		settings.setJitEnabled(jitEnabled);
+		settings.setHotThreshold(jitEnabled ? HOT_THRESHOLD : Integer.MAX_VALUE);
+		return HeadlessEmulators.create(settings);
+	}
+}
@@ -7,10 +7,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.initMocks;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Stack;
-
+import joelbits.emulator.cpu.instructions.BlockCache;
 import joelbits.emulator.cpu.instructions.InstructionUnit;
 import joelbits.emulator.input.Input;
 import joelbits.emulator.memory.RAM;
@@ -25,10 +22,10 @@ import org.mockito.Mock;
 import javafx.scene.input.KeyCode;
 import joelbits.emulator.cpu.ALU;
 import joelbits.emulator.cpu.CPU;
-import joelbits.emulator.cpu.registers.DataRegister;
-import joelbits.emulator.cpu.registers.IndexRegister;
-import joelbits.emulator.cpu.registers.ProgramCounter;
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.CallStack;
+import joelbits.emulator.cpu.Fault;
+import joelbits.emulator.cpu.TieringPolicy;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import joelbits.emulator.input.Keyboard;
 import joelbits.emulator.timers.DelayTimer;
 import joelbits.emulator.timers.SoundTimer;
@@ -41,14 +38,14 @@ public class TestCPU {
 
 	private final Input<Integer, KeyCode> keyboard = new Keyboard();
 	private CPU target;
-	private List<Register<Integer>> dataRegisters;
+	private RegisterFile registers;
 	private Timer<Integer> delayTimer;
 	private Timer<Integer> soundTimer;
-	private Stack<Integer> stack;
-	private Register<Integer> indexRegister;
+	private CallStack stack;
 	private MMU mmu;
 	private ALU alu;
 	private InstructionUnit instructionUnit;
+	private BlockCache blockCache;
 
 	private int[] dataRegisterValues = {43, 176, 40, 206, 33, 148, 33, 136, 77, 29, 48, 81, 30, 8, 1, 0};
 	private int[] fontset = new int[80];
@@ -59,23 +56,24 @@ public class TestCPU {
 	
 	@Before
 	public void setUp() {
-		dataRegisters = new ArrayList<>();
+		registers = new RegisterFile();
 		for (int i = 0; i <= 0xF; i++) {
-			dataRegisters.add(i, new DataRegister<>());
-			dataRegisters.get(i).write(dataRegisterValues[i]);
+			registers.write(i, dataRegisterValues[i]);
 		}
 		delayTimer = new DelayTimer<>();
 		soundTimer = new SoundTimer<>();
-		indexRegister = IndexRegister.getInstance();
-		stack = new Stack<>();
+		stack = new CallStack();
 		mmu = new MMU(new RAM());
 		instructionUnit = new InstructionUnit(mmu);
-		alu = Mockito.spy(new ALU(ProgramCounter.getInstance(), dataRegisters.get(0xF), new RandomNumberGenerator()));
+		blockCache = new BlockCache(instructionUnit);
+		mmu.setWriteListener(blockCache);
+		alu = Mockito.spy(new ALU(registers, new RandomNumberGenerator()));
 		
 		initMocks(this);
 		
-		target = new CPU(stack, mmu, keyboard, dataRegisters, indexRegister, delayTimer, soundTimer, alu, gmu, instructionUnit);
+		target = new CPU(stack, mmu, keyboard, registers, delayTimer, soundTimer, alu, gmu, instructionUnit, blockCache);
 		target.initialize(address, index, delayTime, soundTime, fontset);
+		target.setTieringPolicy(new TieringPolicy(0, Integer.MAX_VALUE));
 	}
 	
 	/**
@@ -111,16 +109,50 @@ public class TestCPU {
 	@Test
 	public void popTopOfStackAddressIntoProgramCounter() {
 		executeOpCode(0x2567);
-		assertEquals((int) stack.peek(), address);
+		assertEquals(stack.peek(), address);
 		
 		writeToMemory(0x567, 0x0);
 		writeToMemory(0x568, 0xEE);
 		executeOpCode(0x00EE);
 		
-		assertTrue(stack.empty());
+		assertTrue(stack.isEmpty());
 		assertEquals(alu.programCounter(), address+2);
 	}
 	
+	@Test
+	public void faultInsteadOfThrowingSinceReturningWithEmptyStack() {
+		writeToMemory(address, 0x00);
+		writeToMemory(address + 1, 0xEE);
+
+		assertEquals(0, target.executeBlock(10));
+		assertEquals(Fault.Type.STACK_UNDERFLOW, target.getFault().getType());
+		assertEquals(address, target.getFault().getAddress());
+		assertEquals(0x00EE, target.getFault().getOpcode());
+	}
+
+	@Test
+	public void faultSinceCallingBeyondTheLastStackLevel() {
+		writeToMemory(address, 0x22);
+		writeToMemory(address + 1, 0x00);
+		for (int i = 0; i <= stack.levels(); i++) {
+			target.executeBlock(10);
+		}
+
+		assertEquals(Fault.Type.STACK_OVERFLOW, target.getFault().getType());
+		assertEquals(stack.levels(), stack.getStackPointer());
+		assertEquals(0, target.executeBlock(10));
+	}
+
+	@Test
+	public void clearFaultWhenInitialized() {
+		writeToMemory(address, 0x00);
+		writeToMemory(address + 1, 0xEE);
+		target.executeBlock(10);
+		target.initialize(address, index, delayTime, soundTime, fontset);
+
+		assertNull(target.getFault());
+	}
+
 	/**
 	 * 1nnn - JP addr
 	 * 
@@ -143,7 +175,7 @@ public class TestCPU {
 	public void pushProgramCounterValueOntoStack() {
 		executeOpCode(0x2567);
 
-		assertEquals((int) stack.peek(), address);
+		assertEquals(stack.peek(), address);
 		assertEquals(alu.programCounter(), 0x567);
 	}
 	
@@ -156,7 +188,7 @@ public class TestCPU {
 	public void skipNextInstructionIfEqual() {
 		executeOpCode(0x3421);
 
-		verify(alu, times(1)).skipNextIfEqual(eq(dataRegisters.get(0x4)), eq(0x21));
+		verify(alu, times(1)).skipNextIfEqual(eq(0x4), eq(0x21));
 	}
 	
 	/**
@@ -169,7 +201,7 @@ public class TestCPU {
 	public void skipNextInstructionSinceDataRegisterValueAndLowestByteNotEqual() {
 		executeOpCode(0x439E);
 		
-		verify(alu, times(1)).skipNextIfNotEqual(eq(dataRegisters.get(0x3)), eq(0x9E));
+		verify(alu, times(1)).skipNextIfNotEqual(eq(0x3), eq(0x9E));
 	}
 	
 	/**
@@ -182,7 +214,7 @@ public class TestCPU {
 	public void doNotSkipNextInstructionSinceDataRegisterValuesNotEqual() {
 		executeOpCode(0x5180);
 		
-		verify(alu, times(1)).skipNextIfEqual(eq(dataRegisters.get(0x1)), eq(dataRegisters.get(0x8).read()));
+		verify(alu, times(1)).skipNextIfEqual(eq(0x1), eq(registers.read(0x8)));
 	}
 	
 	/**
@@ -194,7 +226,7 @@ public class TestCPU {
 	public void storeLowestByteIntoDataRegister() {
 		executeOpCode(0x63DA);
 		
-		verify(alu, times(1)).load(eq(dataRegisters.get(0x3)), eq(0xDA));
+		verify(alu, times(1)).load(eq(0x3), eq(0xDA));
 	}
 	
 	/**
@@ -206,7 +238,7 @@ public class TestCPU {
 	public void addsLowestByteToDataRegister() {
 		executeOpCode(0x7398);
 		
-		verify(alu, times(1)).add(eq(dataRegisters.get(0x3)), eq(0x98));
+		verify(alu, times(1)).add(eq(0x3), eq(0x98));
 	}
 	
 	/**
@@ -218,7 +250,7 @@ public class TestCPU {
 	public void storeDataRegisterValueInAnotherDataRegister() {
 		executeOpCode(0x8DC0);
 		
-		verify(alu, times(1)).load(eq(dataRegisters.get(0xD)), eq(dataRegisters.get(0xC).read()));
+		verify(alu, times(1)).load(eq(0xD), eq(registers.read(0xC)));
 	}
 	
 	/**
@@ -230,7 +262,7 @@ public class TestCPU {
 	public void storeBitwiseORedDataRegisterValuesInDataRegister() {
 		executeOpCode(0x8341);
 		
-		verify(alu, times(1)).bitwiseOR(eq(dataRegisters.get(0x3)), eq(dataRegisters.get(0x4).read()));
+		verify(alu, times(1)).bitwiseOR(eq(0x3), eq(registers.read(0x4)));
 	}
 	
 	/**
@@ -242,7 +274,7 @@ public class TestCPU {
 	public void storeBitwiseANDedDataRegisterValuesInDataRegister() {
 		executeOpCode(0x8342);
 		
-		verify(alu, times(1)).bitwiseAND(eq(dataRegisters.get(0x3)), eq(dataRegisters.get(0x4).read()));
+		verify(alu, times(1)).bitwiseAND(eq(0x3), eq(registers.read(0x4)));
 	}
 	
 	/**
@@ -254,7 +286,7 @@ public class TestCPU {
 	public void storeBitwiseXORedDataRegisterValuesInDataRegister() {
 		executeOpCode(0x85D3);
 		
-		verify(alu, times(1)).bitwiseXOR(eq(dataRegisters.get(0x5)), eq(dataRegisters.get(0xD).read()));
+		verify(alu, times(1)).bitwiseXOR(eq(0x5), eq(registers.read(0xD)));
 	}
 	
 	/**
@@ -267,7 +299,7 @@ public class TestCPU {
 	public void performAdditionWithCarry() {
 		executeOpCode(0x8424);
 		
-		verify(alu, times(1)).addWithCarry(eq(dataRegisters.get(0x4)), eq(dataRegisters.get(0x2).read()), eq(Chip8Util.FIT_8BIT_REGISTER));
+		verify(alu, times(1)).addWithCarry(eq(0x4), eq(registers.read(0x2)));
 	}
 	
 	/**
@@ -280,7 +312,7 @@ public class TestCPU {
 	public void setBorrowSinceFirstDataRegisterLargerThanSecondDataRegister() {
 		executeOpCode(0x8325);
 		
-		verify(alu, times(1)).subtractWithBorrow(eq(dataRegisters.get(0x3)), eq(dataRegisters.get(0x2).read()));
+		verify(alu, times(1)).subtractWithBorrow(eq(0x3), eq(registers.read(0x2)));
 	}
 	
 	/**
@@ -292,7 +324,7 @@ public class TestCPU {
 	public void shiftRight() {
 		executeOpCode(0x8AB6);
 		
-		verify(alu, times(1)).rightShiftWithCarry(eq(dataRegisters.get(0xA)));
+		verify(alu, times(1)).rightShiftWithCarry(eq(0xA));
 	}
 	
 	/**
@@ -305,7 +337,7 @@ public class TestCPU {
 	public void doNotSetBorrowAndSubtractFirstDataRegisterValueFromSecondDataRegister() {
 		executeOpCode(0x8107);
 		
-		verify(alu, times(1)).subtractWithNegatedBorrow(eq(dataRegisters.get(0x1)), eq(dataRegisters.get(0x0).read()));
+		verify(alu, times(1)).subtractWithNegatedBorrow(eq(0x1), eq(registers.read(0x0)));
 	}
 	
 	/**
@@ -317,7 +349,7 @@ public class TestCPU {
 	public void leftShift() {
 		executeOpCode(0x835E);
 
-		verify(alu).leftShiftWithCarry(eq(dataRegisters.get(0x3)));
+		verify(alu).leftShiftWithCarry(eq(0x3));
 	}
 	
 	/**
@@ -329,7 +361,7 @@ public class TestCPU {
 	public void skipNextInstructionIfDataRegisterValuesNotEqual() {
 		executeOpCode(0x95C0);
 		
-		verify(alu, times(1)).skipNextIfNotEqual(eq(dataRegisters.get(0x5)), eq(dataRegisters.get(0xC).read()));
+		verify(alu, times(1)).skipNextIfNotEqual(eq(0x5), eq(registers.read(0xC)));
 	}
 	
 	/**
@@ -341,7 +373,7 @@ public class TestCPU {
 	public void storeAddressInIndexRegister() {
 		executeOpCode(0xAEBA);
 		
-		verify(alu, times(1)).load(eq(indexRegister), eq(0xEBA));
+		verify(alu, times(1)).loadIndex(eq(0xEBA));
 	}
 	
 	/**
@@ -353,7 +385,7 @@ public class TestCPU {
 	public void setProgramCounterToAddressPlusDataRegisterValue() {
 		executeOpCode(0xB348);
 
-		assertEquals(alu.programCounter(), (0x348 + dataRegisters.get(0).read()));
+		assertEquals(alu.programCounter(), (0x348 + registers.read(0)));
 	}
 	
 	/**
@@ -366,7 +398,7 @@ public class TestCPU {
 	public void performAdditionUsingRandomNumber() {
 		executeOpCode(0xC023);
 		
-		verify(alu, times(1)).addWithRandom(eq(dataRegisters.get(0x0)), eq(0x23));
+		verify(alu, times(1)).addWithRandom(eq(0x0), eq(0x23));
 	}
 	
 	/**
@@ -381,7 +413,7 @@ public class TestCPU {
 	public void drawSprite() {
 		executeOpCode(0xD475);
 		
-		verify(gmu, times(1)).drawSprite(eq(dataRegisters), eq(mmu.primaryMemory()), eq(indexRegister), eq(0xD475));
+		verify(gmu, times(1)).drawSprite(eq(registers), eq(mmu), eq(0xD475));
 	}
 	
 	/**
@@ -395,7 +427,7 @@ public class TestCPU {
 		keyboard.press(KeyCode.R);
 		executeOpCode(0xED9E);
 		
-		verify(alu, times(1)).skipNextIfEqual(eq(dataRegisters.get(0xD)), eq(keyboard.currentlyPressed()));
+		verify(alu, times(1)).skipNextIfEqual(eq(0xD), eq(keyboard.currentlyPressed()));
 	}
 	
 	/**
@@ -409,7 +441,7 @@ public class TestCPU {
 		keyboard.press(KeyCode.R);
 		executeOpCode(0xEDA1);
 		
-		verify(alu, times(1)).skipNextIfNotEqual(eq(dataRegisters.get(0xD)), eq(keyboard.currentlyPressed()));
+		verify(alu, times(1)).skipNextIfNotEqual(eq(0xD), eq(keyboard.currentlyPressed()));
 	}
 	
 	/**
@@ -421,7 +453,7 @@ public class TestCPU {
 	public void storeDelayTimerValueInDataRegister() {
 		executeOpCode(0xF207);
 		
-		verify(alu, times(1)).load(eq(dataRegisters.get(0x2)), eq(delayTimer.getValue()));
+		verify(alu, times(1)).load(eq(0x2), eq(delayTimer.getValue()));
 	}
 	
 	/**
@@ -435,7 +467,72 @@ public class TestCPU {
 		keyboard.press(KeyCode.A);
 		executeOpCode(0xF70A);
 		
-		verify(alu, times(1)).load(eq(dataRegisters.get(0x7)), eq(keyboard.currentlyPressed()));
+		verify(alu, times(1)).load(eq(0x7), eq(keyboard.currentlyPressed()));
+	}
+
+	@Test
+	public void executeBlockUpToAndIncludingTheBranch() {
+		mmu.writePrimaryMemory(address, new byte[] {0x61, 0x05, 0x71, 0x01, 0x12, 0x00, 0x62, 0x07});
+
+		assertEquals(3, target.executeBlock(10));
+		assertEquals(0x6, registers.read(0x1));
+		assertEquals(address, alu.programCounter());
+	}
+
+	@Test
+	public void executeModifiedInstructionSinceStoringRegistersInvalidatedTheBlock() {
+		mmu.writePrimaryMemory(address, new byte[] {0x71, 0x01, 0x12, 0x00});
+		target.executeBlock(10);
+		registers.write(0x0, 0x72);
+		registers.writeIndex(address);
+		mmu.writePrimaryMemory(address + 4, new byte[] {(byte) 0xF0, 0x55});
+		registers.writeProgramCounter(address + 4);
+		target.executeBlock(10);
+
+		registers.writeProgramCounter(address);
+		target.executeBlock(10);
+
+		assertEquals(dataRegisterValues[0x2] + 1, registers.read(0x2));
+		assertEquals(dataRegisterValues[0x1] + 1, registers.read(0x1));
+	}
+
+	@Test
+	public void detectIdleLoops() {
+		mmu.writePrimaryMemory(0x300, new byte[] {0x13, 0x00});
+		mmu.writePrimaryMemory(0x310, new byte[] {(byte) 0xF2, 0x07, 0x42, 0x00, 0x13, 0x10});
+		mmu.writePrimaryMemory(0x320, new byte[] {(byte) 0xE5, (byte) 0xA1, 0x13, 0x20});
+
+		assertEquals(1, target.idleLoopLength(0x300));
+		assertEquals(3, target.idleLoopLength(0x310));
+		assertEquals(2, target.idleLoopLength(0x320));
+	}
+
+	@Test
+	public void doNotDetectLoopsThatChangeState() {
+		mmu.writePrimaryMemory(0x300, new byte[] {(byte) 0xF2, 0x07, 0x43, 0x00, 0x13, 0x00});
+		mmu.writePrimaryMemory(0x310, new byte[] {0x72, 0x01, 0x13, 0x10});
+
+		assertEquals(0, target.idleLoopLength(0x300));
+		assertEquals(0, target.idleLoopLength(0x310));
+	}
+
+	@Test
+	public void haltWithoutAdvancingProgramCounterSinceNoKeyIsPressed() {
+		executeOpCode(0xF70A);
+
+		assertTrue(target.isWaitingForKey());
+		assertEquals(address, alu.programCounter());
+	}
+
+	@Test
+	public void storeKeyPressedWhileHaltedEvenIfItHasBeenReleased() {
+		executeOpCode(0xF70A);
+		target.keyPressed(0xB);
+		target.executeNextOperation();
+
+		assertFalse(target.isWaitingForKey());
+		assertEquals(0xB, registers.read(0x7));
+		assertEquals(address + 2, alu.programCounter());
 	}
 	
 	/**
@@ -447,7 +544,7 @@ public class TestCPU {
 	public void setDelayTimerEqualToDataRegisterValue() {
 		executeOpCode(0xF615);
 		
-		assertEquals(dataRegisters.get(0x6).read(), delayTimer.getValue());
+		assertEquals(registers.read(0x6), (int) delayTimer.getValue());
 	}
 	
 	/**
@@ -460,7 +557,7 @@ public class TestCPU {
 	public void setSoundTimerEqualToDataRegisterValue() {
 		executeOpCode(0xF518);
 		
-		assertEquals(dataRegisters.get(0x5).read(), soundTimer.getValue());
+		assertEquals(registers.read(0x5), (int) soundTimer.getValue());
 	}
 	
 	/**
@@ -473,7 +570,7 @@ public class TestCPU {
 	public void setSoundTimerEqualToTwoSinceDataRegisterValueIsOne() {
 		executeOpCode(0xFE18);
 
-		assertEquals(1, (int) dataRegisters.get(0xE).read());
+		assertEquals(1, registers.read(0xE));
 		assertEquals(2, (int) soundTimer.getValue());
 	}
 	
@@ -489,7 +586,7 @@ public class TestCPU {
 		target.initialize(address, index, delayTime, soundTime, fontset);
 		executeOpCode(0xFD1E);
 		
-		verify(alu, times(1)).addWithCarry(eq(indexRegister), eq(dataRegisters.get(0xD).read()), eq(index));
+		verify(alu, times(1)).addToIndexWithCarry(eq(registers.read(0xD)));
 	}
 	
 	/**
@@ -502,7 +599,7 @@ public class TestCPU {
 	public void storeSpriteLocationInIndexRegister() {
 		executeOpCode(0xFD29);
 		
-		verify(alu, times(1)).load(eq(indexRegister), eq(dataRegisters.get(0xD).read()*5 & Chip8Util.FIT_16BIT_REGISTER));
+		verify(alu, times(1)).loadIndex(eq(registers.read(0xD)*5 & Chip8Util.FIT_16BIT_REGISTER));
 	}
 	
 	/**
@@ -532,7 +629,7 @@ public class TestCPU {
 		executeOpCode(0xF755);
 
 		for (int i = 0; i < 8; i++) {
-			assertEquals((int) dataRegisters.get(i).read(), mmu.readPrimaryMemory(index + i));
+			assertEquals(registers.read(i), mmu.readPrimaryMemory(index + i));
 		}
 	}
 	
@@ -547,7 +644,7 @@ public class TestCPU {
 		executeOpCode(0xF465);
 		
 		for (int i = 0; i < 5; i++) {
-			assertEquals(mmu.readPrimaryMemory(index+i), dataRegisters.get(i).read().intValue());
+			assertEquals(mmu.readPrimaryMemory(index+i), registers.read(i));
 		}
 	}
 }
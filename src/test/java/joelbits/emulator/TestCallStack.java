@@ -0,0 +1,69 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.cpu.CallStack;
+import joelbits.emulator.cpu.Fault;
+import joelbits.emulator.cpu.FaultException;
+
+public class TestCallStack {
+	private CallStack target;
+
+	@Before
+	public void setUp() {
+		target = new CallStack(2);
+	}
+
+	@Test
+	public void popAddressesInReverseOrder() {
+		target.push(0x200);
+		target.push(0x300);
+
+		assertEquals(0x300, target.pop());
+		assertEquals(0x200, target.pop());
+		assertTrue(target.isEmpty());
+	}
+
+	@Test
+	public void faultWithOverflowSinceAllLevelsAreUsed() {
+		target.push(0x200);
+		target.push(0x300);
+		try {
+			target.push(0x400);
+			fail();
+		} catch (FaultException e) {
+			assertEquals(Fault.Type.STACK_OVERFLOW, e.getType());
+		}
+	}
+
+	@Test
+	public void faultWithUnderflowSinceStackIsEmpty() {
+		try {
+			target.pop();
+			fail();
+		} catch (FaultException e) {
+			assertEquals(Fault.Type.STACK_UNDERFLOW, e.getType());
+		}
+	}
+
+	@Test
+	public void restoreSnapshotOfStack() {
+		target.push(0x200);
+		target.push(0x300);
+		int[] addresses = new int[target.levels()];
+		int stackPointer = target.snapshot(addresses);
+		target.clear();
+		target.restore(addresses, stackPointer);
+
+		assertEquals(2, target.getStackPointer());
+		assertEquals(0x300, target.pop());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwExceptionSinceStackHasNoLevels() {
+		new CallStack(0);
+	}
+}
@@ -0,0 +1,211 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestChip8 {
+	private static final int NUMBER_OF_EMULATORS = 64;
+	private static final int NUMBER_OF_FRAMES = 500;
+	private static final int RESULT_LOCATION = 0x300;
+	private List<Chip8> emulators;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Before
+	public void setUp() {
+		emulators = EmulatorFactory.createChip8s(NUMBER_OF_EMULATORS, SilentAudio::new, () -> new HeadlessScreen(64, 32));
+	}
+
+	/**
+	 * V0 is set to the id of the emulator, after which V1 is incremented and V0 - V1 are stored in memory in a loop.
+	 */
+	private Program createProgram(int id) {
+		return new Program(new byte[] {
+				0x60, (byte) id,
+				0x71, 0x01,
+				(byte) 0xA3, 0x00,
+				(byte) 0xF1, 0x55,
+				0x12, 0x02
+		});
+	}
+
+	@Test
+	public void emulatorsRunningConcurrentlyDoNotAffectEachOther() throws Exception {
+		Chip8 reference = EmulatorFactory.createChip8s(1, SilentAudio::new, () -> new HeadlessScreen(64, 32)).get(0);
+		reference.load(createProgram(0));
+		for (int frame = 0; frame < NUMBER_OF_FRAMES; frame++) {
+			reference.runFrame();
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(8);
+		List<Future<?>> futures = new ArrayList<>();
+		for (int i = 0; i < emulators.size(); i++) {
+			Chip8 emulator = emulators.get(i);
+			emulator.load(createProgram(i));
+			futures.add(executor.submit((Callable<Void>) () -> {
+				for (int frame = 0; frame < NUMBER_OF_FRAMES; frame++) {
+					emulator.runFrame();
+				}
+				return null;
+			}));
+		}
+		for (Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+
+		for (int i = 0; i < emulators.size(); i++) {
+			Chip8 emulator = emulators.get(i);
+			assertEquals(i, emulator.registers().read(0x0));
+			assertEquals(i, emulator.readMemory(RESULT_LOCATION));
+			assertEquals(reference.registers().read(0x1), emulator.registers().read(0x1));
+			assertEquals(reference.registers().readIndex(), emulator.registers().readIndex());
+			assertEquals(reference.registers().readProgramCounter(), emulator.registers().readProgramCounter());
+		}
+	}
+
+	private void awaitCondition(BooleanSupplier condition) throws InterruptedException {
+		long timeout = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (!condition.getAsBoolean()) {
+			assertTrue("Timed out waiting for the emulation thread", System.nanoTime() < timeout);
+			Thread.sleep(1);
+		}
+	}
+
+	@Test
+	public void pausedEmulationThreadParksWithoutRunningFramesUntilResumed() throws Exception {
+		Chip8 emulator = emulators.get(0);
+		emulator.start(createProgram(1));
+		assertTrue(emulator.isRunning());
+
+		emulator.pause();
+		awaitCondition(emulator::isParked);
+		long pausedFrame = emulator.getFrame();
+		int pausedProgress = emulator.registers().read(0x1);
+		Thread.yield();
+
+		assertTrue(emulator.isParked());
+		assertEquals(pausedFrame, emulator.getFrame());
+		assertEquals(pausedProgress, emulator.registers().read(0x1));
+
+		emulator.resume();
+		awaitCondition(() -> emulator.getFrame() > pausedFrame + 1);
+		emulator.stop();
+		assertFalse(emulator.isRunning());
+		assertFalse(emulator.isParked());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void runningInstructionsWithoutPositiveVelocityIsRejected() {
+		GameSettings settings = new GameSettings();
+		settings.setVelocity(0);
+		Chip8 emulator = HeadlessEmulators.create(settings);
+		emulator.load(createProgram(1));
+
+		emulator.runInstructions(100);
+	}
+
+	@Test
+	public void disposeStopsEmulationThread() {
+		Chip8 emulator = emulators.get(0);
+		emulator.start(createProgram(1));
+		emulator.dispose();
+
+		assertFalse(emulator.isRunning());
+	}
+
+	@Test
+	public void resumeWaitForKeyOnKeyPressedBetweenFrames() {
+		Keypad keypad = new Keypad();
+		Chip8 emulator = HeadlessEmulators.create(new GameSettings(), keypad);
+		emulator.load(new Program(new byte[] {(byte) 0xF3, 0x0A, 0x12, 0x02}));
+		emulator.runFrame();
+		emulator.runFrame();
+		assertEquals(0x200, emulator.registers().readProgramCounter());
+
+		keypad.press(0x5);
+		keypad.releasePressed();
+		emulator.runFrame();
+
+		assertEquals(0x6, emulator.registers().read(0x3));
+		assertEquals(0x202, emulator.registers().readProgramCounter());
+	}
+
+	@Test
+	public void skipRestOfFrameWhenJumpingToItself() {
+		Chip8 emulator = emulators.get(0);
+		emulator.load(new Program(new byte[] {0x12, 0x00}));
+		emulator.runFrame();
+
+		assertEquals(8, emulator.getSkippedCycles());
+		assertEquals(0x200, emulator.registers().readProgramCounter());
+	}
+
+	/**
+	 * The delay timer is set to 5 and polled until it reaches 0, after which the program jumps to itself.
+	 */
+	@Test
+	public void leaveSkippedDelayTimerLoopOnTheSameFrameAsWithoutSkipping() {
+		Chip8 emulator = emulators.get(0);
+		emulator.load(new Program(new byte[] {
+				0x60, 0x05,
+				(byte) 0xF0, 0x15,
+				(byte) 0xF1, 0x07,
+				0x31, 0x00,
+				0x12, 0x04,
+				0x12, 0x0A
+		}));
+		for (int frame = 0; frame < 5; frame++) {
+			emulator.runFrame();
+		}
+		assertTrue(emulator.registers().readProgramCounter() != 0x20A);
+		assertTrue(emulator.getSkippedCycles() > 0);
+
+		emulator.runFrame();
+		assertEquals(0x20A, emulator.registers().readProgramCounter());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void startingWithoutProgramOrGamePathFailsFast() {
+		emulators.get(0).start();
+	}
+
+	@Test
+	public void failingToReadTheGameLeavesTheMachineInitializedAndStopped() {
+		GameSettings settings = new GameSettings();
+		Chip8 emulator = HeadlessEmulators.create(settings);
+		emulator.load(createProgram(7));
+		emulator.runInstructions(100);
+		assertEquals(7, emulator.registers().read(0x0));
+
+		settings.setGamePath(new File(folder.getRoot(), "missing.ch8").toURI());
+		emulator.start();
+
+		assertFalse(emulator.isRunning());
+		assertEquals(0x200, emulator.registers().readProgramCounter());
+		assertEquals(0, emulator.registers().read(0x0));
+		assertEquals(0, emulator.registers().read(0x1));
+		assertEquals(0, emulator.createState().getMemory()[RESULT_LOCATION]);
+		assertEquals(0, emulator.createState().getMemory()[0x200]);
+	}
+}
@@ -0,0 +1,110 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import joelbits.emulator.input.InputTimeline;
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestDeterministicMode {
+	private static final int FRAMES = 300;
+	private static final long SEED = 42;
+
+	private Chip8 createChip8(Keypad keypad, long seed, boolean jitEnabled) {
+		GameSettings settings = new GameSettings();
+		settings.setDeterministic(true);
+		settings.setRandomSeed(seed);
+		settings.setJitEnabled(jitEnabled);
+		settings.setHotThreshold(4);
+		Chip8 emulator = HeadlessEmulators.create(settings, keypad);
+		emulator.load(HeadlessEmulators.randomStoresAndKeyMovedSprite());
+		return emulator;
+	}
+
+	private InputTimeline createTimeline() {
+		InputTimeline timeline = new InputTimeline();
+		for (int frame = 0; frame < FRAMES; frame += 7) {
+			timeline.record(frame, frame % 3 == 0 ? 0 : 1 + frame % 16);
+		}
+		return timeline;
+	}
+
+	private long[] runFrames(Chip8 emulator) {
+		long[] hashes = new long[FRAMES];
+		for (int frame = 0; frame < FRAMES; frame++) {
+			emulator.runFrame();
+			hashes[frame] = emulator.stateHash();
+		}
+		return hashes;
+	}
+
+	@Test
+	public void sameSeedAndInputGiveSameStateHashes() {
+		Chip8 first = createChip8(new Keypad(), SEED, false);
+		Chip8 second = createChip8(new Keypad(), SEED, true);
+		first.setInputTimeline(createTimeline());
+		second.setInputTimeline(createTimeline());
+
+		assertArrayEquals(runFrames(first), runFrames(second));
+		RandomPrograms.assertSameState("deterministic", first, second);
+	}
+
+	@Test
+	public void differentSeedsGiveDifferentStateHashes() {
+		long[] first = runFrames(createChip8(new Keypad(), SEED, false));
+		long[] second = runFrames(createChip8(new Keypad(), SEED + 1, false));
+
+		assertTrue(first[FRAMES - 1] != second[FRAMES - 1]);
+	}
+
+	@Test
+	public void keyboardInputIsRecordedAtFrameBoundariesAndReplayed() {
+		Keypad keypad = new Keypad();
+		Chip8 recording = createChip8(keypad, SEED, false);
+		long[] expected = new long[FRAMES];
+		for (int frame = 0; frame < FRAMES; frame++) {
+			if (frame % 11 == 0) {
+				keypad.press(frame % 16);
+			} else if (frame % 11 == 5) {
+				keypad.releasePressed();
+			}
+			recording.runFrame();
+			expected[frame] = recording.stateHash();
+		}
+
+		Chip8 replaying = createChip8(new Keypad(), SEED, false);
+		replaying.setInputTimeline(recording.recordedInput());
+
+		assertArrayEquals(expected, runFrames(replaying));
+	}
+
+	@Test
+	public void keyPressedDuringFrameIsNotSeenUntilNextFrame() {
+		Keypad keypad = new Keypad();
+		Chip8 emulator = createChip8(keypad, SEED, false);
+		emulator.runFrame();
+
+		keypad.press(0x3);
+
+		assertEquals(0, emulator.recordedInput().keyAt(0));
+		emulator.runFrame();
+		assertEquals(0x4, emulator.recordedInput().keyAt(1));
+	}
+
+	@Test
+	public void recordingFromEarlierFrameReplacesLaterFrames() {
+		InputTimeline timeline = new InputTimeline();
+		timeline.record(0, 0);
+		timeline.record(5, 2);
+		timeline.record(10, 3);
+
+		timeline.record(7, 0);
+
+		assertEquals(2, timeline.keyAt(6));
+		assertEquals(0, timeline.keyAt(7));
+		assertEquals(0, timeline.keyAt(10));
+		assertEquals(8, timeline.length());
+	}
+}
@@ -12,7 +12,7 @@ public class TestDirtyBuffer {
 	
 	@Before
 	public void setUp() {
-		target = new DirtyBuffer();
+		target = new DirtyBuffer(2048);
 	}
 	
 	@Test
@@ -31,4 +31,25 @@ public class TestDirtyBuffer {
 		
 		assertEquals(0, target.size());
 	}
+
+	@Test
+	public void locationWrittenSeveralTimesIsOnlyStoredOnce() {
+		target.write(0x200, 0x1);
+		target.write(0x200, 0x0);
+		target.write(0x200, 0x1);
+
+		assertEquals(1, target.size());
+	}
+
+	@Test
+	public void dirtyLocationsAreIteratedInAscendingOrder() {
+		target.write(0x7FF, 0x1);
+		target.write(0x040, 0x1);
+		target.write(0x03F, 0x1);
+
+		assertEquals(0x03F, target.nextDirty(0));
+		assertEquals(0x040, target.nextDirty(0x040));
+		assertEquals(0x7FF, target.nextDirty(0x041));
+		assertEquals(-1, target.nextDirty(0x800));
+	}
 }
@@ -24,18 +24,62 @@ public class TestDisplayBuffer {
 	
 	@Test
 	public void writtenDataReturnedWhenLocationRead() {
-		target.write(0x200, 0x55);
+		target.write(0x200, 0x1);
 		
-		assertEquals(0x55, target.read(0x200));
+		assertEquals(0x1, target.read(0x200));
 	}
 	
 	@Test
 	public void allBufferLocationsAreZeroAfterBufferCleared() {
-		target.write(0x200, 0x55);
+		target.write(0x200, 0x1);
 		target.clear();
 		
 		for (int i = 0; i < SCREEN_WIDTH*SCREEN_HEIGHT; i++) {
 			assertEquals(0, target.read(i));
 		}
 	}
+
+	@Test
+	public void spriteRowIsXoredOntoDisplayAndCollisionReported() {
+		target.write(0x203, 0x1);
+
+		assertTrue(target.drawSpriteRow(0, 8, 0x91));
+		assertEquals(1, target.read(0x200));
+		assertEquals(0, target.read(0x203));
+		assertEquals(1, target.read(0x207));
+		assertEquals(0, target.read(0x201));
+	}
+
+	@Test
+	public void noCollisionReportedWhenNoVisiblePixelIsErased() {
+		target.write(0x203, 0x1);
+
+		assertFalse(target.drawSpriteRow(0, 8, 0xEF));
+		assertEquals(1, target.read(0x203));
+		assertEquals(1, target.read(0x200));
+	}
+
+	@Test
+	public void spriteRowWrapsAroundToOppositeSideOfTheDisplay() {
+		target.drawSpriteRow(SCREEN_WIDTH - 2, SCREEN_HEIGHT + 1, 0xF0);
+
+		assertEquals(1, target.read(SCREEN_WIDTH + SCREEN_WIDTH - 2));
+		assertEquals(1, target.read(SCREEN_WIDTH + SCREEN_WIDTH - 1));
+		assertEquals(1, target.read(SCREEN_WIDTH));
+		assertEquals(1, target.read(SCREEN_WIDTH + 1));
+		assertEquals(0, target.read(SCREEN_WIDTH + 2));
+	}
+
+	@Test
+	public void spriteRowSpanningTwoWordsOfAWideDisplay() {
+		DisplayBuffer wideDisplay = new DisplayBuffer(128, 64);
+		wideDisplay.drawSpriteRow(60, 0, 0xFF);
+
+		for (int x = 60; x < 68; x++) {
+			assertEquals(1, wideDisplay.read(x));
+		}
+		assertEquals(0, wideDisplay.read(59));
+		assertEquals(0, wideDisplay.read(68));
+		assertTrue(wideDisplay.drawSpriteRow(66, 0, 0x80));
+	}
 }
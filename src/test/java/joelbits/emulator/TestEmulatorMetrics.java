@@ -0,0 +1,229 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import joelbits.emulator.cpu.instructions.Instructions;
+import joelbits.emulator.metrics.EmulatorMetrics;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestEmulatorMetrics {
+	private static final int FRAMES = 200;
+	private static final int[] LOOP = {0x6000, 0x7001, 0x3010, 0x1202, 0x6000, 0x1202};
+	private static final int[] DRAWING = {0x600A, 0xF015, 0xF018, 0xA000, 0xD125, 0x120A};
+
+	private Chip8 createChip8(boolean metricsEnabled, boolean jitEnabled, int... opcodes) {
+		return createChip8(metricsEnabled, jitEnabled, new GameSettings().getVelocity(), opcodes);
+	}
+
+	private Chip8 createChip8(boolean metricsEnabled, boolean jitEnabled, int velocity, int... opcodes) {
+		GameSettings settings = new GameSettings();
+		settings.setVelocity(velocity);
+		settings.setMetricsEnabled(metricsEnabled);
+		settings.setJitEnabled(jitEnabled);
+		settings.setHotThreshold(4);
+		Chip8 emulator = HeadlessEmulators.create(settings);
+		emulator.load(HeadlessEmulators.program(opcodes));
+		return emulator;
+	}
+
+	private EmulatorMetrics runFrames(Chip8 emulator, int frames) {
+		for (int frame = 0; frame < frames; frame++) {
+			emulator.runFrame();
+		}
+		emulator.metrics().publish();
+		return emulator.metrics();
+	}
+
+	/**
+	 * Counts the instructions of the supplied number of steps of the loop, which counts V0 up to 0x10 and then starts
+	 * over from 0.
+	 */
+	private Map<Instructions, Long> expectedLoopCounts(long steps) {
+		Map<Instructions, Long> counts = new EnumMap<>(Instructions.class);
+		int programCounter = 0;
+		int value = 0;
+		for (long step = 0; step < steps; step++) {
+			Instructions instruction;
+			int next = programCounter + 1;
+			switch (programCounter) {
+			case 0:
+			case 4:
+				instruction = Instructions.LOAD_BYTE_TO_REGISTER;
+				value = 0;
+				break;
+			case 1:
+				instruction = Instructions.ADD_BYTE_TO_REGISTER;
+				value++;
+				break;
+			case 2:
+				instruction = Instructions.SKIP_NEXT_INSTRUCTION_IF_VALUES_EQUAL;
+				next = value == 0x10 ? 4 : 3;
+				break;
+			default:
+				instruction = Instructions.JUMP_TO_LOCATION;
+				next = 1;
+			}
+			Long count = counts.get(instruction);
+			counts.put(instruction, count == null ? 1 : count + 1);
+			programCounter = next;
+		}
+		return counts;
+	}
+
+	/**
+	 * Asserts that the counts of the loop instructions are within the supplied fraction of all executed instructions from
+	 * the actual counts.
+	 */
+	private void assertLoopCounts(EmulatorMetrics metrics, long executedInstructions, double tolerance) {
+		Map<Instructions, Long> expected = expectedLoopCounts(executedInstructions);
+		long sum = 0;
+		for (Instructions instruction : Instructions.values()) {
+			Long count = expected.get(instruction);
+			long expectedCount = count == null ? 0 : count;
+			double delta = executedInstructions * tolerance;
+			assertEquals(instruction.name(), expectedCount, metrics.instructionCount(instruction), delta);
+			sum += metrics.instructionCount(instruction);
+		}
+		assertEquals(executedInstructions, metrics.getInstructions());
+		assertEquals(metrics.getInstructions(), sum, Instructions.values().length);
+	}
+
+	private void assertSampledFrameCounts(boolean jitEnabled) {
+		Chip8 emulator = createChip8(true, jitEnabled, 1000, LOOP);
+		EmulatorMetrics metrics = runFrames(emulator, 1);
+
+		assertLoopCounts(metrics, emulator.getExecutedInstructions(), 0);
+		emulator.dispose();
+	}
+
+	private void assertEstimatedCounts(boolean jitEnabled) {
+		Chip8 emulator = createChip8(true, jitEnabled, LOOP);
+		EmulatorMetrics metrics = runFrames(emulator, FRAMES);
+
+		assertLoopCounts(metrics, emulator.getExecutedInstructions(), 0.02);
+		assertEquals(FRAMES, metrics.getFrames());
+		emulator.dispose();
+	}
+
+	@Test
+	public void interpretedInstructionsAreCountedPerInstructionInSampledFrames() {
+		assertSampledFrameCounts(false);
+	}
+
+	@Test
+	public void compiledInstructionsAreCountedPerInstructionInSampledFrames() {
+		assertSampledFrameCounts(true);
+	}
+
+	@Test
+	public void interpretedInstructionCountsAreEstimatedFromSampledFrames() {
+		assertEstimatedCounts(false);
+	}
+
+	@Test
+	public void compiledInstructionCountsAreEstimatedFromSampledFrames() {
+		assertEstimatedCounts(true);
+	}
+
+	@Test
+	public void spritesPixelsAndTimerTicksAreCounted() {
+		Chip8 emulator = createChip8(true, false, DRAWING);
+		EmulatorMetrics metrics = runFrames(emulator, 20);
+
+		assertEquals(1, metrics.getSpritesDrawn());
+		assertEquals(14, metrics.getPixelsFlipped());
+		assertEquals(10, metrics.getDelayTimerTicks());
+		assertEquals(10, metrics.getSoundTimerTicks());
+		assertTrue(metrics.instructionCount(Instructions.DRAW_SPRITE) > 0);
+		emulator.dispose();
+	}
+
+	@Test
+	public void metricsAreReadableOverJmxUntilDisposed() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName pattern = new ObjectName("joelbits.emulator:type=Chip8,*");
+		Set<ObjectName> registered = server.queryNames(pattern, null);
+		Chip8 emulator = createChip8(true, false, DRAWING);
+		runFrames(emulator, 20);
+
+		Set<ObjectName> names = server.queryNames(pattern, null);
+		names.removeAll(registered);
+		assertEquals(1, names.size());
+		ObjectName name = names.iterator().next();
+		assertEquals(1L, server.getAttribute(name, "SpritesDrawn"));
+		assertEquals(20L, server.getAttribute(name, "Frames"));
+
+		emulator.dispose();
+
+		assertFalse(server.isRegistered(name));
+	}
+
+	@Test
+	public void tierPromotionsAreReadableOverJmx() throws Exception {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		ObjectName pattern = new ObjectName("joelbits.emulator:type=Chip8,*");
+		Set<ObjectName> registered = server.queryNames(pattern, null);
+		Chip8 emulator = createChip8(true, true, LOOP);
+		EmulatorMetrics metrics = runFrames(emulator, FRAMES);
+
+		Set<ObjectName> names = server.queryNames(pattern, null);
+		names.removeAll(registered);
+		ObjectName name = names.iterator().next();
+		assertTrue(metrics.getPromotionsToHot() > 0);
+		assertEquals(emulator.tieringPolicy().getPromotionsToWarm(), server.getAttribute(name, "PromotionsToWarm"));
+		assertEquals(emulator.tieringPolicy().getPromotionsToHot(), server.getAttribute(name, "PromotionsToHot"));
+		emulator.dispose();
+	}
+
+	@Test
+	public void countsAreKeptWhenAnotherProgramIsLoaded() {
+		Chip8 emulator = createChip8(true, true, LOOP);
+		for (int frame = 0; frame < FRAMES; frame++) {
+			emulator.runFrame();
+		}
+		long executed = emulator.getExecutedInstructions();
+		long promotionsToHot = emulator.tieringPolicy().getPromotionsToHot();
+
+		emulator.load(new Program(new byte[] {0x12, 0x00}));
+		EmulatorMetrics metrics = emulator.metrics();
+		metrics.publish();
+
+		assertLoopCounts(metrics, executed, 0.02);
+		assertEquals(promotionsToHot, metrics.getPromotionsToHot());
+		emulator.dispose();
+	}
+
+	@Test
+	public void metricsAreDisabledByDefault() {
+		Chip8 emulator = HeadlessEmulators.create(new GameSettings());
+		emulator.load(new Program(new byte[] {0x12, 0x00}));
+		emulator.runFrame();
+
+		assertNull(emulator.metrics());
+	}
+
+	@Test
+	public void resetClearsCountersWhenPublished() {
+		Chip8 emulator = createChip8(true, true, LOOP);
+		EmulatorMetrics metrics = runFrames(emulator, FRAMES);
+		assertTrue(metrics.getInstructions() > 0);
+
+		metrics.reset();
+		metrics.publish();
+
+		assertEquals(0, metrics.getInstructions());
+		assertEquals(0, metrics.getFrames());
+		assertEquals(0, metrics.instructionCount(Instructions.ADD_BYTE_TO_REGISTER));
+		emulator.dispose();
+	}
+}
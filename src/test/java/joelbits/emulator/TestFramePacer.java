@@ -0,0 +1,187 @@
+package joelbits.emulator;
+
+import static joelbits.emulator.timers.FramePacer.FRAME_PERIOD;
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.timers.FrameClock;
+import joelbits.emulator.timers.FrameCycle;
+import joelbits.emulator.timers.FramePacer;
+
+public class TestFramePacer {
+	private static final int VELOCITY = 10;
+	private FakeClock clock;
+	private CountingFrameCycle frameCycle;
+	private FramePacer target;
+
+	@Before
+	public void setUp() {
+		clock = new FakeClock();
+		frameCycle = new CountingFrameCycle();
+		target = new FramePacer(frameCycle, clock);
+		frameCycle.pacer = target;
+	}
+
+	private void assertFrameStarts(long... starts) {
+		assertEquals(starts.length, frameCycle.frameStarts.size());
+		for (int frame = 0; frame < starts.length; frame++) {
+			assertEquals("frame " + frame, starts[frame], (long) frameCycle.frameStarts.get(frame));
+		}
+	}
+
+	@Test
+	public void framesStartAtDeadlinesSixtyTimesASecondAndAllInstructionsOfAFrameAreExecuted() {
+		frameCycle.stopAfterFrames = 60;
+
+		target.run();
+
+		for (int frame = 0; frame < 60; frame++) {
+			assertEquals(frame * FRAME_PERIOD, (long) frameCycle.frameStarts.get(frame));
+		}
+		assertEquals(60 * VELOCITY, frameCycle.executedInstructions);
+		assertEquals(60, target.getFrames());
+		assertEquals(0, target.getMaxJitterNanos());
+	}
+
+	@Test
+	public void instructionsAreSpreadOverTheFrameInSlices() {
+		frameCycle.stopAfterFrames = 2;
+
+		target.run();
+
+		assertEquals(8, frameCycle.sliceStarts.size());
+		for (int slice = 0; slice < 8; slice++) {
+			assertEquals(slice * FRAME_PERIOD / 4, (long) frameCycle.sliceStarts.get(slice), 1);
+		}
+	}
+
+	@Test
+	public void lateFrameIsCorrectedByTheFollowingDeadlines() {
+		frameCycle.stopAfterFrames = 4;
+		frameCycle.stalls.put(1, FRAME_PERIOD / 2);
+
+		target.run();
+
+		assertFrameStarts(0, FRAME_PERIOD, 2 * FRAME_PERIOD, 3 * FRAME_PERIOD);
+		assertEquals(0, target.getDroppedFrames());
+	}
+
+	@Test
+	public void missedFramesAreCaughtUpBackToBack() {
+		frameCycle.stopAfterFrames = 6;
+		frameCycle.stalls.put(1, 3 * FRAME_PERIOD);
+
+		target.run();
+
+		assertFrameStarts(0, FRAME_PERIOD, 4 * FRAME_PERIOD, 4 * FRAME_PERIOD, 4 * FRAME_PERIOD, 5 * FRAME_PERIOD);
+		assertEquals(0, target.getDroppedFrames());
+		assertEquals(2 * FRAME_PERIOD, target.getMaxJitterNanos());
+	}
+
+	@Test
+	public void framesBeyondTheCatchUpCapAreDropped() {
+		frameCycle.stopAfterFrames = 9;
+		frameCycle.stalls.put(1, 10 * FRAME_PERIOD + FRAME_PERIOD / 2);
+
+		target.run();
+
+		long stallEnd = 11 * FRAME_PERIOD + FRAME_PERIOD / 2;
+		assertFrameStarts(0, FRAME_PERIOD, stallEnd, stallEnd, stallEnd, stallEnd, stallEnd, stallEnd, 12 * FRAME_PERIOD);
+		assertEquals(4, target.getDroppedFrames());
+	}
+
+	@Test
+	public void pausedFrameCycleParksWithoutTimedWakeupsUntilResumed() {
+		frameCycle.stopAfterFrames = 2;
+		frameCycle.paused = true;
+		clock.onPark = () -> {
+			assertTrue(target.isParked());
+			assertTrue(frameCycle.frameStarts.isEmpty());
+			assertEquals(0, clock.now);
+			frameCycle.paused = false;
+		};
+
+		target.run();
+
+		assertEquals(1, clock.parks);
+		assertFalse(target.isParked());
+		assertFrameStarts(0, FRAME_PERIOD);
+	}
+
+	/**
+	 * A clock whose time only passes when the pacer waits, or when a frame cycle stalls. Parking runs onPark, which
+	 * stands in for whoever unparks the pacer.
+	 */
+	private static class FakeClock implements FrameClock {
+		private long now;
+		private int parks;
+		private Runnable onPark = () -> {
+			throw new AssertionError("The frame cycle is never paused");
+		};
+
+		@Override
+		public long nanoTime() {
+			return now;
+		}
+
+		@Override
+		public void parkNanos(long nanos) {
+			now += nanos;
+		}
+
+		@Override
+		public void park(Object blocker) {
+			parks++;
+			onPark.run();
+		}
+	}
+
+	private class CountingFrameCycle implements FrameCycle {
+		private final List<Long> frameStarts = new ArrayList<>();
+		private final List<Long> sliceStarts = new ArrayList<>();
+		private final Map<Integer, Long> stalls = new HashMap<>();
+		private FramePacer pacer;
+		private int stopAfterFrames;
+		private boolean paused;
+		private int executedInstructions;
+
+		@Override
+		public void startFrame() {
+			frameStarts.add(clock.nanoTime());
+		}
+
+		@Override
+		public void executeInstructions(int instructions) {
+			sliceStarts.add(clock.nanoTime());
+			executedInstructions += instructions;
+			Long stall = stalls.remove(frameStarts.size() - 1);
+			if (stall != null) {
+				clock.now += stall;
+			}
+		}
+
+		@Override
+		public void endFrame() {
+			if (frameStarts.size() == stopAfterFrames) {
+				pacer.stop();
+			}
+		}
+
+		@Override
+		public int instructionsPerFrame() {
+			return VELOCITY;
+		}
+
+		@Override
+		public boolean isPaused() {
+			return paused;
+		}
+	}
+}
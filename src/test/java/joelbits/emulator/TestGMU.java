@@ -0,0 +1,59 @@
+package joelbits.emulator;
+
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import joelbits.emulator.cpu.registers.RegisterFile;
+import joelbits.emulator.graphics.GMU;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.Screen;
+
+public class TestGMU {
+	private GMU target;
+	private Screen<Integer> screen;
+	private RegisterFile registers;
+	private MMU mmu;
+
+	@Before
+	public void setUp() {
+		screen = Mockito.spy(new HeadlessScreen(64, 32));
+		registers = new RegisterFile();
+		mmu = new MMU(new RAM());
+		mmu.writePrimaryMemory(0x300, 0xFF);
+		registers.writeIndex(0x300);
+
+		target = new GMU(screen);
+	}
+
+	@Test
+	public void screenIsRenderedOnceWhenSpritesHaveBeenDrawn() {
+		target.drawSprite(registers, mmu, 0xD011);
+		target.drawSprite(registers, mmu, 0xD011);
+		target.updateScreen();
+
+		verify(screen, times(1)).render();
+	}
+
+	@Test
+	public void screenIsNotRenderedWhenNothingHasChanged() {
+		target.updateScreen();
+
+		verify(screen, never()).render();
+	}
+
+	@Test
+	public void screenIsClearedBeforeItIsRenderedWhenBuffersHaveBeenCleared() {
+		target.clearBuffers();
+		target.updateScreen();
+
+		verify(screen, times(1)).clearAll(64 * 32);
+		verify(screen, times(1)).render();
+	}
+}
@@ -2,52 +2,50 @@ package joelbits.emulator;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
-
-import java.util.ArrayList;
-import java.util.List;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import joelbits.emulator.memory.RAM;
-import joelbits.emulator.output.Chip8Screen;
 import joelbits.emulator.memory.MMU;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import joelbits.emulator.graphics.GPU;
-import joelbits.emulator.cpu.registers.DataRegister;
-import joelbits.emulator.cpu.registers.IndexRegister;
-import joelbits.emulator.cpu.registers.Register;
+import joelbits.emulator.cpu.registers.RegisterFile;
 import joelbits.emulator.flags.ClearFlag;
 import joelbits.emulator.flags.DrawFlag;
 import joelbits.emulator.flags.Flag;
 import joelbits.emulator.memory.BufferFactory;
+import joelbits.emulator.memory.DirtyBuffer;
+import joelbits.emulator.memory.DisplayBuffer;
 import joelbits.emulator.memory.Memory;
+import joelbits.emulator.output.HeadlessScreen;
 import joelbits.emulator.output.Screen;
 
 public class TestGPU {
 	private GPU target;
 	private MMU mmu;
-	private Memory displayBuffer;
-	private Memory dirtyBuffer;
-	private List<Register<Integer>> dataRegisters;
+	private DisplayBuffer displayBuffer;
+	private DirtyBuffer dirtyBuffer;
+	private RegisterFile registers;
 	private Flag drawFlag;
+	private Screen<Integer> screen;
 	private Flag clearFlag;
-	private Register<Integer> indexRegister;
 
 	private int[] dataRegisterValues = {43, 176, 40, 206, 33, 148, 33, 136, 77, 29, 48, 81, 30, 8, 1, 0};
 	private int SCREEN_WIDTH = 64;
 	private int SCREEN_HEIGHT = 32;
-	private int PIXEL_SIZE = 14;
 	
 	@Before
 	public void setUp() {
-		dataRegisters = new ArrayList<>();
+		registers = new RegisterFile();
 		populateRegisters(dataRegisterValues);
 		drawFlag = new DrawFlag();
 		clearFlag = new ClearFlag();
-		indexRegister = IndexRegister.getInstance();
-		Screen<Integer> screen = new Chip8Screen(SCREEN_WIDTH, SCREEN_HEIGHT, PIXEL_SIZE);
+		screen = Mockito.spy(new HeadlessScreen(SCREEN_WIDTH, SCREEN_HEIGHT));
 		displayBuffer = BufferFactory.createDisplayBuffer(SCREEN_WIDTH, SCREEN_HEIGHT);
-		dirtyBuffer = BufferFactory.createDirtyBuffer();
+		dirtyBuffer = BufferFactory.createDirtyBuffer(SCREEN_WIDTH * SCREEN_HEIGHT);
 		mmu = new MMU(new RAM());
 		
 		target = new GPU(displayBuffer, dirtyBuffer, screen, drawFlag, clearFlag);
@@ -55,8 +53,7 @@ public class TestGPU {
 	
 	private void populateRegisters(int[] registerValues) {
 		for (int i = 0; i < registerValues.length; i++) {
-			dataRegisters.add(i, new DataRegister<>());
-			dataRegisters.get(i).write(dataRegisterValues[i]);
+			registers.write(i, registerValues[i]);
 		}
 	}
 	
@@ -79,19 +76,19 @@ public class TestGPU {
 		initializeSpriteDrawing();
 		int[] addresses = new int[]{0x221,0x222,0x223,0x224,0x264};
 		
-		target.drawSprite(dataRegisters, mmu.primaryMemory(), indexRegister, 0xD475);
+		target.drawSprite(registers, mmu, 0xD475);
 		
 		assertDirtyBuffer(dirtyBuffer, addresses);
 		assertDisplayBuffer(displayBuffer, addresses, -1);
 
-		assertEquals(0, (int) dataRegisters.get(0xF).read());
+		assertEquals(0, registers.read(0xF));
 		assertTrue(drawFlag.isActive());
 	}
 	
 	private void initializeSpriteDrawing() {
-		indexRegister.write(0x200);
-		writeToMemory(indexRegister.read(), 0xF0);
-		writeToMemory(indexRegister.read()+1, 0x10);
+		registers.writeIndex(0x200);
+		writeToMemory(registers.readIndex(), 0xF0);
+		writeToMemory(registers.readIndex()+1, 0x10);
 	}
 	
 	private void writeToMemory(int location, int data) {
@@ -120,12 +117,38 @@ public class TestGPU {
 		int COLLISION_ADDRESS = 0x223;
 		displayBuffer.write(COLLISION_ADDRESS, 0x1);
 		
-		target.drawSprite(dataRegisters, mmu.primaryMemory(), indexRegister, 0xD475);
+		target.drawSprite(registers, mmu, 0xD475);
 		
 		assertDirtyBuffer(dirtyBuffer, addresses);
 		assertDisplayBuffer(displayBuffer, addresses, COLLISION_ADDRESS);
 
-		assertEquals(1, (int) dataRegisters.get(0xF).read());
+		assertEquals(1, registers.read(0xF));
 		assertTrue(drawFlag.isActive());
 	}
+
+	@Test
+	public void eachDirtyPixelIsRenderedOnceWhenSpriteIsDrawnTwiceBeforeScreenIsDrawn() {
+		initializeSpriteDrawing();
+		target.drawSprite(registers, mmu, 0xD475);
+		target.drawSprite(registers, mmu, 0xD475);
+
+		target.drawScreen();
+
+		verify(screen, times(5)).clear(Mockito.anyDouble(), Mockito.anyDouble());
+		verify(screen, times(0)).fill(Mockito.anyDouble(), Mockito.anyDouble());
+		assertEquals(0, dirtyBuffer.size());
+	}
+
+	@Test
+	public void spriteRowsWrappingAroundTheDisplayAreMarkedDirtyOnTheOppositeSide() {
+		initializeSpriteDrawing();
+		registers.write(0x0, 62);
+		registers.write(0x1, 31);
+		int[] addresses = new int[]{0x001,0x7C0,0x7C1,0x7FE,0x7FF};
+
+		target.drawSprite(registers, mmu, 0xD012);
+
+		assertDisplayBuffer(displayBuffer, addresses, -1);
+		assertDirtyBuffer(dirtyBuffer, addresses);
+	}
 }
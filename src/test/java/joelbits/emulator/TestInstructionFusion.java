@@ -0,0 +1,103 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.cpu.instructions.BlockCache;
+import joelbits.emulator.cpu.instructions.FusedInstruction;
+import joelbits.emulator.cpu.instructions.InstructionUnit;
+import joelbits.emulator.cpu.instructions.Superinstructions;
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestInstructionFusion {
+	private static final int NUMBER_OF_PROGRAMS = 50;
+	private static final int NUMBER_OF_FRAMES = 100;
+	private InstructionUnit target;
+	private BlockCache blockCache;
+	private MMU mmu;
+
+	@Before
+	public void setUp() {
+		mmu = new MMU(new RAM());
+		target = new InstructionUnit(mmu);
+		blockCache = new BlockCache(target);
+		mmu.setWriteListener(blockCache);
+	}
+
+	@Test
+	public void fuseLoadsAndIndexOperations() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x61, 0x05, (byte) 0xA3, 0x00, (byte) 0xF1, 0x1E, (byte) 0xF2, 0x65, (byte) 0x82, 0x14, 0x00, (byte) 0xEE});
+
+		FusedInstruction[] steps = target.fuseBlock(blockCache.block(0x200));
+
+		assertEquals(4, steps.length);
+		assertEquals(Superinstructions.LOAD_BYTE_AND_INDEX, steps[0].getSuperinstruction());
+		assertEquals(Superinstructions.ADD_TO_INDEX_AND_LOAD_REGISTERS, steps[1].getSuperinstruction());
+		assertNull(steps[2].getSuperinstruction());
+		assertNull(steps[3].getSuperinstruction());
+	}
+
+	@Test
+	public void fuseLoopCounterWithTheJumpFollowingTheBlock() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x63, 0x00, 0x73, 0x01, 0x43, 0x10, 0x12, 0x02});
+
+		FusedInstruction[] steps = target.fuseBlock(blockCache.block(0x200));
+
+		assertEquals(2, steps.length);
+		assertEquals(Superinstructions.ADD_AND_SKIP_OR_JUMP, steps[1].getSuperinstruction());
+		assertEquals(0x202, steps[1].part(2).getAddress());
+	}
+
+	@Test
+	public void fuseSkipWithTheJumpFollowingTheBlock() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x63, 0x00, 0x33, 0x10, 0x12, 0x00});
+
+		FusedInstruction[] steps = target.fuseBlock(blockCache.block(0x200));
+
+		assertEquals(Superinstructions.SKIP_OR_JUMP, steps[1].getSuperinstruction());
+	}
+
+	@Test
+	public void invalidateFusedBlockWhenTheFusedJumpIsWritten() {
+		mmu.writePrimaryMemory(0x200, new byte[] {0x63, 0x00, 0x33, 0x10, 0x12, 0x00});
+		blockCache.fusedInstructions(blockCache.block(0x200));
+		mmu.writePrimaryMemory(0x205, 0x02);
+
+		assertFalse(blockCache.isCached(0x200));
+	}
+
+	/**
+	 * Random programs full of fusable sequences are run both with every block hot and with every instruction cold, and the
+	 * machine state is compared after every frame.
+	 */
+	@Test
+	public void fusedProgramsHaveSameStateAsInterpretedPrograms() {
+		Random random = new Random(0xF5);
+		for (int program = 0; program < NUMBER_OF_PROGRAMS; program++) {
+			Program randomProgram = RandomPrograms.create(random);
+			Chip8 interpreted = createEmulator(Integer.MAX_VALUE, Integer.MAX_VALUE);
+			Chip8 fused = createEmulator(0, 0);
+			interpreted.load(randomProgram);
+			fused.load(randomProgram);
+
+			for (int frame = 0; frame < NUMBER_OF_FRAMES; frame++) {
+				interpreted.runFrame();
+				fused.runFrame();
+				RandomPrograms.assertSameState("Program " + program + " frame " + frame, interpreted, fused);
+			}
+		}
+	}
+
+	private Chip8 createEmulator(int warmThreshold, int hotThreshold) {
+		GameSettings settings = new GameSettings();
+		settings.setWarmThreshold(warmThreshold);
+		settings.setHotThreshold(hotThreshold);
+		return HeadlessEmulators.create(settings);
+	}
+}
@@ -0,0 +1,41 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import joelbits.emulator.cpu.instructions.Instructions;
+
+public class TestInstructions {
+
+	@Test
+	public void decodeOpcodeWithOperands() {
+		assertEquals(Instructions.DRAW_SPRITE, Instructions.decode(0xD475));
+		assertEquals(Instructions.SHIFT_REGISTER_VALUE_LEFT, Instructions.decode(0x835E));
+		assertEquals(Instructions.LOAD_FROM_MEMORY_TO_DATA_REGISTERS, Instructions.decode(0xF465));
+	}
+
+	@Test
+	public void decodeOpcodeWithoutOperands() {
+		assertEquals(Instructions.CLEAR_THE_DISPLAY, Instructions.decode(0x00E0));
+		assertEquals(Instructions.RETURN_FROM_SUBROUTINE, Instructions.decode(0x00EE));
+	}
+
+	@Test
+	public void returnNullSinceOpcodeIsNotAValidInstruction() {
+		assertNull(Instructions.decode(0x00E1));
+		assertNull(Instructions.decode(0x5121));
+		assertNull(Instructions.decode(0xF0FF));
+	}
+
+	@Test
+	public void sameInstructionReturnedForStringOpcode() {
+		assertEquals(Instructions.decode(0x8AB6), Instructions.getInstruction("8AB6"));
+		assertEquals(Instructions.decode(0xE09E), Instructions.getInstruction("e09e"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwExceptionSinceStringOpcodeIsNotValid() {
+		Instructions.getInstruction("00E1");
+	}
+}
@@ -0,0 +1,39 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.input.Keypad;
+
+public class TestKeypad {
+	private Keypad target;
+
+	@Before
+	public void setUp() {
+		target = new Keypad();
+	}
+
+	@Test
+	public void pressedKeyIsReportedLikeTheKeyboardReportsIt() {
+		target.press(0x7);
+
+		assertEquals(8, (int) target.currentlyPressed());
+	}
+
+	@Test
+	public void returnZeroSinceTheCurrentlyPressedKeyIsNotValid() {
+		target.press(0x10);
+
+		assertEquals(0, (int) target.currentlyPressed());
+	}
+
+	@Test
+	public void returnZeroWhenKeyReleased() {
+		target.press(0x7);
+		target.releasePressed();
+
+		assertEquals(0, (int) target.currentlyPressed());
+	}
+}
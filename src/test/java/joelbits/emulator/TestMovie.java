@@ -0,0 +1,236 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.input.Keypad;
+import joelbits.emulator.movie.Movie;
+import joelbits.emulator.movie.MovieReplayer;
+import joelbits.emulator.movie.Movies;
+import joelbits.emulator.movie.ReplayResult;
+import joelbits.emulator.settings.GameSettings;
+import joelbits.emulator.timers.FrameCycle;
+
+public class TestMovie {
+	private static final int FRAMES = 600;
+	private Keypad keypad;
+	private GameSettings settings;
+	private Chip8 emulator;
+	private Program program;
+
+	@Before
+	public void setUp() {
+		keypad = new Keypad();
+		settings = new GameSettings();
+		settings.setRewindSeconds(10);
+		emulator = HeadlessEmulators.create(settings, keypad);
+		program = HeadlessEmulators.randomStoresAndKeyMovedSprite();
+	}
+
+	private void runFrames(int frames) {
+		for (int frame = 0; frame < frames; frame++) {
+			if (frame % 13 == 0) {
+				keypad.press(frame % 16);
+			} else if (frame % 13 == 4) {
+				keypad.releasePressed();
+			}
+			emulator.runFrame();
+		}
+	}
+
+	private Movie recordMovie() {
+		emulator.loadForRecording(program);
+		runFrames(FRAMES);
+		return emulator.stopRecording();
+	}
+
+	private Movie writeAndRead(Movie movie) throws Exception {
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Movies.write(movie, output);
+		return Movies.read(new ByteArrayInputStream(output.toByteArray()));
+	}
+
+	@Test
+	public void recordedMovieIsVerifiedByReplay() throws Exception {
+		Movie movie = writeAndRead(recordMovie());
+
+		ReplayResult result = new MovieReplayer(64, 32, false).replay(program, movie);
+
+		assertTrue(result.toString(), result.isVerified());
+		assertEquals(FRAMES, result.getFramesReplayed());
+	}
+
+	@Test
+	public void recordedMovieIsVerifiedByReplayWithJit() throws Exception {
+		Movie movie = writeAndRead(recordMovie());
+
+		assertTrue(new MovieReplayer(64, 32, true).replay(program, movie).isVerified());
+	}
+
+	@Test
+	public void movieRecordedWhileRewindingIsVerifiedByReplay() throws Exception {
+		emulator.loadForRecording(program);
+		runFrames(200);
+		for (int frame = 0; frame < 50; frame++) {
+			assertTrue(emulator.rewindFrame());
+		}
+		runFrames(100);
+		Movie movie = writeAndRead(emulator.stopRecording());
+
+		assertEquals(250, movie.frames());
+		assertTrue(new MovieReplayer(64, 32, false).replay(program, movie).isVerified());
+	}
+
+	@Test
+	public void deterministicModeAndSeedAreRestoredWhenRecordingStops() {
+		settings.setRandomSeed(7);
+
+		recordMovie();
+
+		assertFalse(settings.isDeterministic());
+		assertEquals(7, settings.getRandomSeed());
+	}
+
+	@Test
+	public void deterministicModeAndSeedAreRestoredWhenAnotherProgramIsLoaded() {
+		settings.setDeterministic(true);
+		settings.setRandomSeed(7);
+		emulator.loadForRecording(program);
+		runFrames(10);
+
+		emulator.load(program);
+
+		assertTrue(settings.isDeterministic());
+		assertEquals(7, settings.getRandomSeed());
+		assertNull(emulator.stopRecording());
+	}
+
+	/**
+	 * Waits in a three instruction loop polling the delay timer, then counts in V2 and sets the timer again.
+	 */
+	@Test
+	public void movieRecordedWithSlicedFramesIsVerifiedByReplay() throws Exception {
+		Program delayLoop = new Program(new byte[] {
+				0x60, 0x05,
+				(byte) 0xF0, 0x15,
+				(byte) 0xF1, 0x07,
+				0x31, 0x00,
+				0x12, 0x04,
+				0x72, 0x01,
+				0x12, 0x00
+		});
+		emulator.loadForRecording(delayLoop);
+		FrameCycle frameCycle = emulator.new InstructionCycle();
+		for (int frame = 0; frame < 120; frame++) {
+			runSlicedFrame(frameCycle, 4);
+		}
+		Movie movie = writeAndRead(emulator.stopRecording());
+
+		ReplayResult result = new MovieReplayer(64, 32, false).replay(delayLoop, movie);
+
+		assertTrue(result.toString(), result.isVerified());
+	}
+
+	/**
+	 * Runs a frame the way the FramePacer does, with the instructions of the frame spread over a number of slices.
+	 */
+	private void runSlicedFrame(FrameCycle frameCycle, int slices) {
+		frameCycle.startFrame();
+		int instructions = frameCycle.instructionsPerFrame();
+		int executed = 0;
+		for (int slice = 1; slice <= slices; slice++) {
+			int target = instructions * slice / slices;
+			frameCycle.executeInstructions(target - executed);
+			executed = target;
+		}
+		frameCycle.endFrame();
+	}
+
+	@Test
+	public void replayStopsAtFirstFrameThatDiffers() throws Exception {
+		Movie movie = writeAndRead(recordMovie());
+		movie.getFrameHashes()[123] ^= 1;
+
+		ReplayResult result = new MovieReplayer(64, 32, false).replay(program, movie);
+
+		assertFalse(result.isVerified());
+		assertEquals(123, result.getMismatchFrame());
+	}
+
+	@Test
+	public void keysAreRunLengthEncoded() throws Exception {
+		Movie movie = recordMovie();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		Movies.write(movie, output);
+
+		int header = 4 + 2 + 8 + 8 + 4 + 4;
+		int runs = output.size() - header - 8 * FRAMES;
+		assertTrue(runs <= 2 * 2 * (FRAMES / 13 + 1));
+		assertEquals(movie.getInput().keyAt(FRAMES - 1), writeAndRead(movie).getInput().keyAt(FRAMES - 1));
+	}
+
+	/**
+	 * Reads a movie of the supplied number of frames, whose keys are the supplied run-length encoded bytes, followed by
+	 * two frame hashes.
+	 */
+	private Movie readMovie(int frames, int... runs) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream output = new DataOutputStream(bytes);
+		output.writeInt(Movies.MAGIC);
+		output.writeShort(Movies.VERSION);
+		output.writeLong(0);
+		output.writeLong(0);
+		output.writeInt(10);
+		output.writeInt(frames);
+		for (int run : runs) {
+			output.writeByte(run);
+		}
+		output.writeLong(0);
+		output.writeLong(0);
+		return Movies.read(new ByteArrayInputStream(bytes.toByteArray()));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void negativeNumberOfFramesIsRejected() throws Exception {
+		readMovie(-1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void runOfNoFramesIsRejected() throws Exception {
+		readMovie(2, 0, 1, 2, 1);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void runPastTheLastFrameIsRejected() throws Exception {
+		readMovie(2, 3, 1);
+	}
+
+	@Test(expected = EOFException.class)
+	public void hugeNumberOfFramesEndsWithTheStream() throws Exception {
+		readMovie(Integer.MAX_VALUE, 0xFF, 0xFF, 0xFF, 0xFF, 0x07, 1);
+	}
+
+	@Test
+	public void movieOfValidRunsIsRead() throws Exception {
+		Movie movie = readMovie(2, 1, 5, 1, 6);
+
+		assertEquals(2, movie.frames());
+		assertEquals(5, movie.getInput().keyAt(0));
+		assertEquals(6, movie.getInput().keyAt(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void movieOfOtherProgramIsRejected() {
+		Movie movie = recordMovie();
+
+		new MovieReplayer(64, 32, false).replay(new Program(new byte[] {0x12, 0x00}), movie);
+	}
+}
@@ -35,4 +35,31 @@ public class TestRAM {
 		
 		assertEquals(0, target.read(88));
 	}
+
+	@Test
+	public void bytesWrittenInBulkAreReadAsUnsignedValues() {
+		target.write(0x200, new byte[] {0x12, (byte) 0xF0, 0x7F});
+
+		assertEquals(0x12, target.read(0x200));
+		assertEquals(0xF0, target.read(0x201));
+		assertEquals(0x7F, target.read(0x202));
+	}
+
+	@Test
+	public void valuesWrittenInBulkAreReadInBulk() {
+		int[] values = new int[] {0xA, 0xB, 0xC};
+		int[] destination = new int[3];
+		target.write(0x50, values);
+		target.read(0x50, destination);
+
+		assertArrayEquals(values, destination);
+	}
+
+	@Test
+	public void locationsPastTheLastAddressWrapAroundToTheStartOfMemory() {
+		target.write(0x1058, 0xA);
+
+		assertEquals(0xA, target.read(88));
+		assertEquals(0xA, target.read(0xF058));
+	}
 }
@@ -0,0 +1,147 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.settings.GameSettings;
+import joelbits.emulator.state.MachineState;
+import joelbits.emulator.state.RewindBuffer;
+
+public class TestRewindBuffer {
+	private static final int FRAMES = 300;
+	private static final int KEYFRAME_INTERVAL = 60;
+	private static final int ARENA_SIZE = 1024 * 1024;
+	private Chip8 emulator;
+	private List<MachineState> states;
+
+	@Before
+	public void setUp() {
+		GameSettings settings = new GameSettings();
+		settings.setRewindSeconds(60);
+		emulator = HeadlessEmulators.create(settings);
+		emulator.load(createProgram());
+		states = new ArrayList<>();
+	}
+
+	/**
+	 * Draws a random sprite row at a moving position, stores V0 - V2 in memory at an index that moves with V0 and
+	 * clears the screen every 256 frames.
+	 */
+	private Program createProgram() {
+		return HeadlessEmulators.program(0xC2FF, 0xA500, 0xF21E, 0xF255, 0xD011, 0x7001, 0x7103, 0x3000, 0x1200, 0x00E0, 0x1200);
+	}
+
+	private RewindBuffer captureFrames(int frames, int maxFrames, int arenaSize) {
+		RewindBuffer target = new RewindBuffer(emulator.createState(), maxFrames, KEYFRAME_INTERVAL, arenaSize);
+		for (int frame = 0; frame < frames; frame++) {
+			emulator.runFrame();
+			MachineState state = emulator.createState();
+			emulator.snapshot(state);
+			states.add(state);
+			target.capture(state);
+		}
+		return target;
+	}
+
+	@Test
+	public void framesAreRewoundInReverseOrder() {
+		RewindBuffer target = captureFrames(FRAMES, FRAMES, ARENA_SIZE);
+		MachineState state = emulator.createState();
+
+		for (int frame = FRAMES - 1; frame >= 0; frame--) {
+			assertTrue(target.rewind(state));
+			assertEquals("frame " + frame, states.get(frame), state);
+		}
+		assertFalse(target.rewind(state));
+		assertEquals(0, target.usedBytes());
+	}
+
+	@Test
+	public void oldestFramesAreDroppedWhenIndexIsFull() {
+		int maxFrames = 100;
+		RewindBuffer target = captureFrames(FRAMES, maxFrames, ARENA_SIZE);
+		MachineState state = emulator.createState();
+
+		assertTrue(target.size() <= maxFrames);
+		int rewound = 0;
+		while (target.rewind(state)) {
+			rewound++;
+			assertEquals(states.get(FRAMES - rewound), state);
+		}
+		assertTrue(rewound > maxFrames - KEYFRAME_INTERVAL);
+	}
+
+	@Test
+	public void oldestFramesAreDroppedWhenArenaIsFull() {
+		int arenaSize = 64 * 1024;
+		RewindBuffer target = captureFrames(FRAMES, FRAMES, arenaSize);
+		MachineState state = emulator.createState();
+
+		assertTrue(target.size() < FRAMES);
+		assertTrue(target.usedBytes() <= arenaSize);
+		int rewound = 0;
+		while (target.rewind(state)) {
+			rewound++;
+			assertEquals(states.get(FRAMES - rewound), state);
+		}
+		assertTrue(rewound > 0);
+	}
+
+	@Test
+	public void framesCapturedAfterRewindingAreKept() {
+		RewindBuffer target = captureFrames(FRAMES, FRAMES, ARENA_SIZE);
+		MachineState state = emulator.createState();
+		for (int i = 0; i < 90; i++) {
+			target.rewind(state);
+		}
+		emulator.restore(state);
+		List<MachineState> expected = new ArrayList<>(states.subList(0, FRAMES - 90));
+		states.clear();
+		for (int frame = 0; frame < 30; frame++) {
+			emulator.runFrame();
+			MachineState captured = emulator.createState();
+			emulator.snapshot(captured);
+			expected.add(captured);
+			target.capture(captured);
+		}
+
+		for (int frame = expected.size() - 1; frame >= 0; frame--) {
+			assertTrue(target.rewind(state));
+			assertEquals("frame " + frame, expected.get(frame), state);
+		}
+	}
+
+	@Test
+	public void minuteOfFramesFitsInArenaOfEmulator() {
+		for (int frame = 0; frame < 60 * 60; frame++) {
+			emulator.runFrame();
+		}
+		RewindBuffer target = emulator.rewindBuffer();
+
+		assertEquals(60 * 60, target.size());
+		assertTrue(target.arenaSize() < 2 * 1024 * 1024);
+	}
+
+	@Test
+	public void emulatorStepsBackOneFrameAtATime() {
+		List<MachineState> frameStarts = new ArrayList<>();
+		for (int frame = 0; frame < 100; frame++) {
+			MachineState state = emulator.createState();
+			emulator.snapshot(state);
+			frameStarts.add(state);
+			emulator.runFrame();
+		}
+
+		for (int frame = 99; frame >= 80; frame--) {
+			assertTrue(emulator.rewindFrame());
+			MachineState state = emulator.createState();
+			emulator.snapshot(state);
+			assertEquals("frame " + frame, frameStarts.get(frame), state);
+		}
+	}
+}
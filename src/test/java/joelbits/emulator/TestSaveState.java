@@ -0,0 +1,230 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import joelbits.emulator.memory.MMU;
+import joelbits.emulator.memory.RAM;
+import joelbits.emulator.output.HeadlessScreen;
+import joelbits.emulator.output.SilentAudio;
+import joelbits.emulator.settings.GameSettings;
+import joelbits.emulator.state.MachineState;
+import joelbits.emulator.state.SaveStates;
+import joelbits.emulator.utils.RandomNumberGenerator;
+
+public class TestSaveState {
+	private static final int FRAMES_BEFORE_SNAPSHOT = 37;
+	private static final int FRAMES_AFTER_SNAPSHOT = 100;
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	private Chip8 target;
+
+	@Before
+	public void setUp() {
+		target = createChip8();
+		target.load(createProgram());
+	}
+
+	private Chip8 createChip8() {
+		return EmulatorFactory.createChip8s(1, SilentAudio::new, () -> new HeadlessScreen(64, 32)).get(0);
+	}
+
+	/**
+	 * Loads a random number into V1 and calls a subroutine that stores V0 - V1 in memory and draws a sprite at (V0, V1),
+	 * after which V0 is incremented, the delay timer is set to V0 and the loop starts over.
+	 */
+	private Program createProgram() {
+		byte[] program = new byte[0x108];
+		int[] loop = {0x6005, 0xC1FF, 0x2300, 0x7001, 0xF015, 0x1202};
+		int[] subroutine = {0xA400, 0xF155, 0xD012, 0x00EE};
+		writeOpcodes(program, 0x000, loop);
+		writeOpcodes(program, 0x100, subroutine);
+		return new Program(program);
+	}
+
+	private void writeOpcodes(byte[] program, int offset, int[] opcodes) {
+		for (int i = 0; i < opcodes.length; i++) {
+			program[offset + 2 * i] = (byte) (opcodes[i] >> 8);
+			program[offset + 2 * i + 1] = (byte) opcodes[i];
+		}
+	}
+
+	private void runFrames(Chip8 emulator, int frames) {
+		for (int frame = 0; frame < frames; frame++) {
+			emulator.runFrame();
+		}
+	}
+
+	@Test
+	public void restoredEmulatorContinuesLikeTheOriginal() {
+		runFrames(target, FRAMES_BEFORE_SNAPSHOT);
+		MachineState state = target.createState();
+		target.snapshot(state);
+
+		Chip8 restored = createChip8();
+		restored.load(new Program(new byte[] {0x12, 0x00}));
+		restored.restore(state);
+		runFrames(target, FRAMES_AFTER_SNAPSHOT);
+		runFrames(restored, FRAMES_AFTER_SNAPSHOT);
+
+		RandomPrograms.assertSameState("restored", target, restored);
+		assertEquals(snapshot(target), snapshot(restored));
+	}
+
+	@Test
+	public void restoringEarlierStateRewindsEmulator() {
+		runFrames(target, FRAMES_BEFORE_SNAPSHOT);
+		MachineState state = target.createState();
+		target.snapshot(state);
+		runFrames(target, FRAMES_AFTER_SNAPSHOT);
+		MachineState later = snapshot(target);
+
+		target.restore(state);
+		assertEquals(state, snapshot(target));
+		runFrames(target, FRAMES_AFTER_SNAPSHOT);
+
+		assertEquals(later, snapshot(target));
+	}
+
+	@Test
+	public void restoringStateKeepsVelocityOfTheSettings() {
+		GameSettings settings = new GameSettings();
+		Chip8 emulator = HeadlessEmulators.create(settings);
+		emulator.load(createProgram());
+		MachineState state = snapshot(emulator);
+		settings.setVelocity(25);
+
+		emulator.restore(state);
+
+		assertEquals(25, settings.getVelocity());
+	}
+
+	@Test
+	public void stateIsUnchangedAfterWritingAndReadingBuffer() {
+		runFrames(target, FRAMES_BEFORE_SNAPSHOT);
+		MachineState state = snapshot(target);
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStates.size(state));
+		SaveStates.write(state, buffer);
+		assertFalse(buffer.hasRemaining());
+
+		buffer.flip();
+		MachineState read = target.createState();
+		SaveStates.read(buffer, read);
+
+		assertEquals(state, read);
+		assertFalse(buffer.hasRemaining());
+	}
+
+	@Test
+	public void deepStackIsUnchangedAfterWritingAndReadingBuffer() {
+		MachineState state = new MachineState(4096, 300, 32);
+		for (int i = 0; i < 290; i++) {
+			state.getStack()[i] = 0x200 + 2 * i;
+		}
+		state.setStackPointer(290);
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStates.size(state));
+		SaveStates.write(state, buffer);
+
+		buffer.flip();
+		MachineState read = new MachineState(4096, 300, 32);
+		SaveStates.read(buffer, read);
+
+		assertEquals(state, read);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void differentNumberOfStackLevelsIsRejected() {
+		MachineState state = new MachineState(4096, 300, 32);
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStates.size(state));
+		SaveStates.write(state, buffer);
+
+		buffer.flip();
+		SaveStates.read(buffer, new MachineState(4096, 300 - 256, 32));
+	}
+
+	@Test
+	public void stateIsUnchangedAfterWritingAndReadingFile() throws Exception {
+		runFrames(target, FRAMES_BEFORE_SNAPSHOT);
+		MachineState state = snapshot(target);
+		File file = folder.newFile("state.c8s");
+		SaveStates.write(state, file.toPath());
+
+		MachineState read = target.createState();
+		SaveStates.read(file.toPath(), read);
+
+		assertEquals(state, read);
+	}
+
+	@Test
+	public void unsupportedVersionIsRejected() {
+		MachineState state = snapshot(target);
+		ByteBuffer buffer = ByteBuffer.allocate(SaveStates.size(state));
+		SaveStates.write(state, buffer);
+		buffer.putShort(4, (short) (SaveStates.VERSION + 1));
+		buffer.flip();
+		try {
+			SaveStates.read(buffer, target.createState());
+			fail();
+		} catch (IllegalArgumentException e) {
+			assertTrue(e.getMessage().contains("version"));
+		}
+	}
+
+	@Test
+	public void onlyChangedRangeOfMemoryIsReportedWhenRestored() {
+		MMU mmu = new MMU(new RAM());
+		byte[] memory = new byte[mmu.primaryMemorySize()];
+		memory[0x203] = 0x12;
+		memory[0x2F1] = 0x34;
+		List<int[]> written = new ArrayList<>();
+		mmu.setWriteListener((location, length) -> written.add(new int[] {location, length}));
+
+		mmu.restorePrimaryMemory(memory);
+		mmu.restorePrimaryMemory(memory);
+
+		assertEquals(1, written.size());
+		assertArrayEquals(new int[] {0x203, 0x2F1 - 0x203 + 1}, written.get(0));
+		assertEquals(0x34, mmu.readPrimaryMemory(0x2F1));
+	}
+
+	@Test
+	public void randomNumbersAreTheSameAsFromJavaUtilRandom() {
+		long seed = 0x1234567890L;
+		Random expected = new Random(seed);
+		RandomNumberGenerator generator = new RandomNumberGenerator(seed);
+		for (int i = 0; i < 1000; i++) {
+			generator.generate(0xFF);
+			assertEquals(expected.nextInt(0xFF), generator.getValue());
+		}
+	}
+
+	@Test
+	public void randomNumbersRepeatAfterStateIsRestored() {
+		RandomNumberGenerator generator = new RandomNumberGenerator();
+		long state = generator.getState();
+		generator.generate(0xFF);
+		int first = generator.getValue();
+		generator.generate(0xFF);
+
+		generator.setState(state);
+		generator.generate(0xFF);
+
+		assertEquals(first, generator.getValue());
+	}
+
+	private MachineState snapshot(Chip8 emulator) {
+		MachineState state = emulator.createState();
+		emulator.snapshot(state);
+		return state;
+	}
+}
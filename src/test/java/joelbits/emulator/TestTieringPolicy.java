@@ -0,0 +1,71 @@
+package joelbits.emulator;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import joelbits.emulator.cpu.ExecutionTier;
+import joelbits.emulator.cpu.TieringPolicy;
+import joelbits.emulator.settings.GameSettings;
+
+public class TestTieringPolicy {
+	private static final int ADDRESS = 0x200;
+	private TieringPolicy target;
+
+	@Before
+	public void setUp() {
+		target = new TieringPolicy(2, 4);
+	}
+
+	@Test
+	public void promoteThroughEveryTierAtTheThresholds() {
+		assertEquals(ExecutionTier.COLD, target.recordExecution(ADDRESS));
+		assertEquals(ExecutionTier.COLD, target.recordExecution(ADDRESS));
+		assertEquals(ExecutionTier.WARM, target.recordExecution(ADDRESS));
+		assertEquals(ExecutionTier.WARM, target.recordExecution(ADDRESS));
+		assertEquals(ExecutionTier.HOT, target.recordExecution(ADDRESS));
+		assertEquals(ExecutionTier.HOT, target.recordExecution(ADDRESS));
+	}
+
+	@Test
+	public void countEachPromotionOnce() {
+		for (int i = 0; i < 10; i++) {
+			target.recordExecution(ADDRESS);
+			target.recordExecution(ADDRESS + 2);
+		}
+		target.recordExecution(ADDRESS + 4);
+		target.recordExecution(ADDRESS + 4);
+		target.recordExecution(ADDRESS + 4);
+
+		assertEquals(3, target.getPromotionsToWarm());
+		assertEquals(2, target.getPromotionsToHot());
+	}
+
+	@Test
+	public void countExecutionsPerAddress() {
+		for (int i = 0; i < 5; i++) {
+			target.recordExecution(ADDRESS);
+		}
+
+		assertEquals(ExecutionTier.HOT, target.tierOf(ADDRESS));
+		assertEquals(ExecutionTier.COLD, target.tierOf(ADDRESS + 2));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void throwExceptionSinceHotThresholdIsBelowWarmThreshold() {
+		new TieringPolicy(4, 2);
+	}
+
+	@Test
+	public void thresholdsAreTakenFromTheSettings() {
+		GameSettings settings = new GameSettings();
+		settings.setWarmThreshold(3);
+		settings.setHotThreshold(7);
+
+		TieringPolicy policy = new TieringPolicy(settings);
+
+		assertEquals(3, policy.getWarmThreshold());
+		assertEquals(7, policy.getHotThreshold());
+	}
+}